@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+#
+# Measures the time from starting the service until its first successful GET /api/todo, which is what autoscaling
+# waits for. The service is started, timed and stopped once per run, and the time of every run and the median are
+# printed in milliseconds.
+#
+# Usage: scripts/startup-benchmark.sh [-n runs] [-p port] [-- command that starts the service]
+#
+# Without a command the packaged jar is started with the in-memory profile and an empty log, so runs don't depend on
+# a database or on each other. The port is passed to the service as SERVER_PORT. The service is stopped with SIGTERM,
+# so a JVM started with -XX:ArchiveClassesAtExit writes its class data sharing archive, which is how the Dockerfile
+# uses this script for its training run.
+
+set -euo pipefail
+
+runs=5
+port=8080
+while getopts "n:p:" option; do
+    case "$option" in
+        n) runs="$OPTARG" ;;
+        p) port="$OPTARG" ;;
+        *) sed -n '2,14p' "$0"; exit 2 ;;
+    esac
+done
+shift $((OPTIND - 1))
+[[ "${1:-}" == "--" ]] && shift
+
+work_dir="$(mktemp -d)"
+trap 'rm -rf "$work_dir"' EXIT
+
+if [[ $# -eq 0 ]]; then
+    set -- java -jar "$(dirname "$0")/../target/todo-backend-1.0.0.jar" \
+        --spring.profiles.active=in-memory --todo.in-memory.log-path="$work_dir/todo.log"
+fi
+
+# Plain bash, so it works in slim images without curl
+first_request_succeeds() {
+    { exec 3<>"/dev/tcp/localhost/$port"; } 2>/dev/null || return 1
+    printf 'GET /api/todo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n' >&3
+    local status=""
+    read -r -t 5 status <&3 || true
+    exec 3<&- 3>&-
+    [[ "$status" == "HTTP/1.1 200"* ]]
+}
+
+if first_request_succeeds; then
+    echo "Port $port is already serving /api/todo, stop that service first" >&2
+    exit 1
+fi
+
+times=()
+for run in $(seq 1 "$runs"); do
+    rm -f "$work_dir/todo.log"
+    start=$(date +%s%N)
+    SERVER_PORT="$port" "$@" > "$work_dir/service.log" 2>&1 &
+    pid=$!
+
+    until first_request_succeeds; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "The service exited before it answered:" >&2
+            cat "$work_dir/service.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    end=$(date +%s%N)
+
+    kill -TERM "$pid"
+    wait "$pid" || true
+
+    times+=($(( (end - start) / 1000000 )))
+    echo "run $run: ${times[-1]} ms"
+done
+
+sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+echo "median: ${sorted[$(( runs / 2 ))]} ms"
@@ -0,0 +1,67 @@
+package com.rajven.todo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Prints the JMH results of the current run next to a stored baseline, for throughput and for allocated bytes per operation.
+ * Usage: {@code BaselineComparison <baseline.json> <result.json>}, both in the JMH JSON result format.
+ */
+public final class BaselineComparison {
+    private static final String ALLOCATION_METRIC = "·gc.alloc.rate.norm";
+    private static final String ROW_FORMAT = "%-70s %14s %14s %9s %14s %14s%n";
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        var baselineFile = Path.of(args[0]);
+        var resultFile = Path.of(args[1]);
+        if (!Files.exists(baselineFile)) {
+            System.out.printf("No baseline found at %s, copy %s there to create one%n", baselineFile, resultFile);
+            return;
+        }
+
+        var baseline = readResults(baselineFile);
+        var current = readResults(resultFile);
+
+        System.out.printf(ROW_FORMAT, "Benchmark", "Base score", "Score", "Change", "Base B/op", "B/op");
+        current.forEach((name, result) -> {
+            var base = baseline.get(name);
+            System.out.printf(ROW_FORMAT,
+                name,
+                base == null ? "-" : format(base.score()),
+                format(result.score()) + " " + result.unit(),
+                base == null ? "-" : String.format("%+.1f%%", (result.score() - base.score()) / base.score() * 100),
+                base == null ? "-" : format(base.bytesPerOp()),
+                format(result.bytesPerOp()));
+        });
+    }
+
+    private static Map<String, Result> readResults(Path file) throws IOException {
+        var results = new LinkedHashMap<String, Result>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(file.toFile())) {
+            var name = benchmark.path("benchmark").asText() + benchmark.path("params").toString().replace("{}", "").replace("\"", "");
+            var primaryMetric = benchmark.path("primaryMetric");
+            var allocation = benchmark.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score");
+
+            results.put(name, new Result(primaryMetric.path("score").asDouble(), primaryMetric.path("scoreUnit").asText(),
+                allocation.isMissingNode() ? Double.NaN : allocation.asDouble()));
+        }
+
+        return results;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.1f", value);
+    }
+
+    private record Result(double score, String unit, double bytesPerOp) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.rajven.todo.benchmark;
+
+import static com.rajven.todo.config.Constants.API_PATH;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import com.rajven.todo.TodoApplication;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoResponse;
+
+/**
+ * Measures full HTTP round trips through the controller against the in-memory H2 database of the test profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerRoundTripBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private WebClient webClient;
+    private long itemId;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        var baseUrl = "http://localhost:" + freePort();
+
+        // The test helpers are picked up by component scanning, which adds the Clob converter, and need a WebTestClient bean
+        context = new SpringApplicationBuilder(TodoApplication.class)
+            .profiles("test")
+            .properties("server.port=" + URI.create(baseUrl).getPort(), "logging.level.root=WARN")
+            .initializers((GenericApplicationContext ctx) -> ctx.registerBean(WebTestClient.class, () -> WebTestClient.bindToServer().baseUrl(baseUrl).build()))
+            .run();
+
+        webClient = WebClient.create(baseUrl + API_PATH);
+
+        var createCommands = IntStream.range(0, LIST_SIZE)
+            .mapToObj(i -> new TodoCreateCommand("round trip " + i, i % 2 == 0, (long) i))
+            .toList();
+
+        itemId = webClient.post()
+            .uri("/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(createCommands)
+            .retrieve()
+            .bodyToFlux(TodoResponse.class)
+            .blockFirst()
+            .id();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Benchmark
+    public String getItem() {
+        return webClient.get()
+            .uri("/{id}", itemId)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+    }
+
+    @Benchmark
+    public String listItems() {
+        return webClient.get()
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+    }
+
+    @Benchmark
+    public String updateItem() {
+        return webClient.patch()
+            .uri("/{id}", itemId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("""
+                { "completed": true }
+                """)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+    }
+}
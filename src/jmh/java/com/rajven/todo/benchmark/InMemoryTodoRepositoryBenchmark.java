@@ -0,0 +1,75 @@
+package com.rajven.todo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.InMemoryStoreProperties;
+import com.rajven.todo.db.InMemoryTodoRepository;
+import com.rajven.todo.db.RepositoryMetrics;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoQuery;
+import org.openapitools.jackson.nullable.JsonNullable;
+
+/**
+ * Measures the in-memory storage engine on its own, without the web layer, reading single items and pages from
+ * 10 000 items, and updating an item, which appends to the log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryTodoRepositoryBenchmark {
+    private static final int ITEMS = 10_000;
+
+    private InMemoryTodoRepository repository;
+    private InMemoryStoreProperties properties;
+    private TodoUpdateCommand updateCmd;
+    private long nextId;
+
+    @Setup
+    public void start() throws IOException {
+        properties = new InMemoryStoreProperties();
+        properties.setLogPath(Files.createTempDirectory("todo-benchmark").resolve("todo.log"));
+        repository = new InMemoryTodoRepository(properties, new RepositoryMetrics(new SimpleMeterRegistry()));
+        LongStream.rangeClosed(1, ITEMS)
+            .forEach(id -> repository.save(new TodoItem(id, "benchmark item " + id, false, id)).block());
+
+        updateCmd = new TodoUpdateCommand();
+        updateCmd.setCompleted(JsonNullable.of(true));
+    }
+
+    @TearDown
+    public void stop() throws IOException {
+        repository.close();
+        FileSystemUtils.deleteRecursively(properties.getLogPath().getParent());
+    }
+
+    @Benchmark
+    public TodoItem findById() {
+        return repository.findById(nextId()).block();
+    }
+
+    @Benchmark
+    public List<TodoItem> getPage() {
+        return repository.getPage(TodoQuery.afterId(nextId()), 100).collectList().block();
+    }
+
+    @Benchmark
+    public TodoItem update() {
+        return repository.update(nextId(), updateCmd).block();
+    }
+
+    private long nextId() {
+        nextId = nextId % (ITEMS - 100) + 1;
+        return nextId;
+    }
+}
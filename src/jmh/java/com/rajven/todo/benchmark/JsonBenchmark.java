@@ -0,0 +1,50 @@
+package com.rajven.todo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import com.rajven.todo.api.TodoResponse;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.AppConfig;
+
+/**
+ * Measures the JSON (de)serialization of the API models through the {@link ObjectMapper} the application uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final String UPDATE_JSON = """
+        { "title": "deserialize me", "completed": true, "order": null }
+        """;
+
+    private final TodoResponse todoResponse =
+        new TodoResponse(4711, "serialize me", false, 12L, null, "http://localhost:8080/api/todo/4711");
+
+    private ObjectWriter responseWriter;
+    private ObjectReader updateReader;
+
+    @Setup
+    public void setUp() {
+        var objectMapper = new AppConfig().objectMapper();
+        responseWriter = objectMapper.writerFor(TodoResponse.class);
+        updateReader = objectMapper.readerFor(TodoUpdateCommand.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws JsonProcessingException {
+        return responseWriter.writeValueAsBytes(todoResponse);
+    }
+
+    @Benchmark
+    public TodoUpdateCommand deserializeUpdateCommand() throws JsonProcessingException {
+        return updateReader.readValue(UPDATE_JSON);
+    }
+}
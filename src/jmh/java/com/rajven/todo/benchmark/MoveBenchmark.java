@@ -0,0 +1,189 @@
+package com.rajven.todo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.api.TodoMoveCommand;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.BulkProperties;
+import com.rajven.todo.config.InMemoryStoreProperties;
+import com.rajven.todo.config.ItemCacheProperties;
+import com.rajven.todo.config.ReplicaProperties;
+import com.rajven.todo.config.SortOrderProperties;
+import com.rajven.todo.config.StatsProperties;
+import com.rajven.todo.config.TodoEventsProperties;
+import com.rajven.todo.config.UpdateCoalescingProperties;
+import com.rajven.todo.db.InMemoryTodoRepository;
+import com.rajven.todo.db.RepositoryMetrics;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.service.PostgresTodoEventRelay;
+import com.rajven.todo.service.SortOrderRebalancer;
+import com.rajven.todo.service.TodoEventBus;
+import com.rajven.todo.service.TodoItemCache;
+import com.rajven.todo.service.TodoService;
+import com.rajven.todo.service.TodoStatsCounter;
+import com.rajven.todo.service.UpdateCoalescer;
+
+/**
+ * Counts the items written per move on long lists, on the in-memory storage engine. {@code renumber} moves an item the
+ * way clients had to before the move endpoint, by updating the order of every item between the old and the new place so
+ * that the orders stay contiguous. {@code moveToRandomPlace} and {@code moveToTheSamePlace} use the move endpoint's
+ * service, which writes the moved item and, now and then, rebalances the items around a crowded place. Moving to the same
+ * place every time crowds it fastest, so it rebalances the most.
+ * <p>
+ * The writes per move are reported as the {@code writesPerMove} counter of every iteration, next to the time per move.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MoveBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int items;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private InMemoryStoreProperties storeProperties;
+    private CountingRepository repository;
+    private TodoItemCache itemCache;
+    private TodoEventBus eventBus;
+    private TodoStatsCounter statsCounter;
+    private SortOrderRebalancer rebalancer;
+    private TodoService todoService;
+    // The ids by their place in the list, for renumbering
+    private long[] ids;
+
+    @Setup
+    public void start() throws IOException {
+        storeProperties = new InMemoryStoreProperties();
+        storeProperties.setLogPath(Files.createTempDirectory("todo-benchmark").resolve("todo.log"));
+        var meterRegistry = new SimpleMeterRegistry();
+        repository = new CountingRepository(storeProperties, new RepositoryMetrics(meterRegistry));
+
+        // Renumbered lists have contiguous orders, moved ones start with the gaps that moves to the start or end leave
+        var sortOrderProperties = new SortOrderProperties();
+        ids = new long[items];
+        for (int i = 0; i < items; i++) {
+            ids[i] = i + 1;
+            repository.save(new TodoItem(ids[i], "benchmark item " + ids[i], false, (i + 1) * sortOrderProperties.getGap())).block();
+        }
+
+        itemCache = new TodoItemCache(new ItemCacheProperties(), new ReplicaProperties(), meterRegistry);
+        eventBus = new TodoEventBus(new TodoEventsProperties(), itemCache,
+            new DefaultListableBeanFactory().getBeanProvider(PostgresTodoEventRelay.class), meterRegistry);
+        statsCounter = new TodoStatsCounter(repository, new StatsProperties(), meterRegistry);
+        rebalancer = new SortOrderRebalancer(repository, itemCache, eventBus, sortOrderProperties, meterRegistry);
+        todoService = new TodoService(repository, itemCache, new UpdateCoalescer(new UpdateCoalescingProperties(), meterRegistry),
+            eventBus, statsCounter, new BulkProperties(), rebalancer);
+    }
+
+    @TearDown
+    public void stop() throws IOException {
+        rebalancer.close();
+        statsCounter.close();
+        eventBus.close();
+        repository.close();
+        FileSystemUtils.deleteRecursively(storeProperties.getLogPath().getParent());
+    }
+
+    @Benchmark
+    public List<TodoItem> renumber(WriteCounts counts) {
+        var from = random.nextInt(items);
+        var to = random.nextInt(items);
+        var movedId = ids[from];
+        var step = from < to ? 1 : -1;
+        for (int place = from; place != to; place += step) {
+            ids[place] = ids[place + step];
+        }
+        ids[to] = movedId;
+
+        var updateCmds = new LinkedHashMap<Long, TodoUpdateCommand>();
+        for (int place = Math.min(from, to); place <= Math.max(from, to); place++) {
+            updateCmds.put(ids[place], TodoUpdateCommand.withOrder(place + 1));
+        }
+
+        return counts.counted(repository, repository.updateAll(updateCmds).collectList()).block();
+    }
+
+    @Benchmark
+    public TodoItem moveToRandomPlace(WriteCounts counts) {
+        long id = random.nextInt(items) + 1;
+        long target = random.nextInt(items - 1) + 1;
+
+        return counts.counted(repository, todoService.move(id, new TodoMoveCommand(target < id ? target : target + 1, null))).block();
+    }
+
+    @Benchmark
+    public TodoItem moveToTheSamePlace(WriteCounts counts) {
+        // The first item is never moved, so every move goes between it and the item moved right before
+        var id = random.nextInt(items - 1) + 2;
+
+        return counts.counted(repository, todoService.move(id, new TodoMoveCommand(null, 1L))).block();
+    }
+
+    /**
+     * The items written and the moves made in an iteration. Rebalancing in the background is counted by the move it
+     * waits for on the list, which is the next one.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WriteCounts {
+        private long writes;
+        private long moves;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            writes = 0;
+            moves = 0;
+        }
+
+        public double writesPerMove() {
+            return moves == 0 ? 0 : (double) writes / moves;
+        }
+
+        <T> Mono<T> counted(CountingRepository repository, Mono<T> move) {
+            var writesBefore = repository.writes.get();
+            return move.doFinally(signal -> {
+                writes += repository.writes.get() - writesBefore;
+                moves++;
+            });
+        }
+    }
+
+    /**
+     * Counts the items written by updates, which is all a move writes.
+     */
+    static class CountingRepository extends InMemoryTodoRepository {
+        private final AtomicLong writes = new AtomicLong();
+
+        CountingRepository(InMemoryStoreProperties properties, RepositoryMetrics metrics) throws IOException {
+            super(properties, metrics);
+        }
+
+        @Override
+        public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
+            return super.update(id, updateCmd)
+                .doOnNext(todoItem -> writes.incrementAndGet());
+        }
+
+        @Override
+        public Flux<TodoItem> updateAll(Map<Long, TodoUpdateCommand> updateCmds) {
+            return super.updateAll(updateCmds)
+                .doOnNext(todoItem -> writes.incrementAndGet());
+        }
+    }
+}
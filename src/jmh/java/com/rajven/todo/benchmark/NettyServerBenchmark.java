@@ -0,0 +1,131 @@
+package com.rajven.todo.benchmark;
+
+import static com.rajven.todo.config.Constants.API_PATH;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import com.rajven.todo.TodoApplication;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoResponse;
+import com.rajven.todo.config.Constants;
+
+/**
+ * Compares the throughput of the list and get endpoints under the {@code todo.server.*} settings, over real connections
+ * from several threads. The in-memory store keeps the database out of the numbers. {@code netty} serves HTTP/1.1 without
+ * compression from pooled direct buffers, like the server did before it could be configured. Every other setting changes
+ * one thing from there, and the client follows it where it has to, by accepting gzip or by speaking h2c.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class NettyServerBenchmark {
+    private static final int LIST_SIZE = 1000;
+
+    @Param({ "netty", "gzip", "h2c", "pooled-heap", "unpooled", "one-event-loop" })
+    private String server;
+
+    private ConfigurableApplicationContext context;
+    private WebClient webClient;
+    private Path logDirectory;
+    private long itemId;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        var baseUrl = "http://localhost:" + freePort();
+        logDirectory = Files.createTempDirectory("todo-benchmark");
+
+        var properties = new ArrayList<>(List.of(
+            "server.port=" + URI.create(baseUrl).getPort(),
+            "logging.level.root=WARN",
+            "todo.in-memory.log-path=" + logDirectory.resolve("todo.log"),
+            "todo.server.compression.enabled=" + server.equals("gzip"),
+            "todo.server.h2c=" + server.equals("h2c")));
+        switch (server) {
+            case "pooled-heap" -> properties.add("todo.server.buffer-allocator=pooled-heap");
+            case "unpooled" -> properties.add("todo.server.buffer-allocator=unpooled");
+            case "one-event-loop" -> properties.add("todo.server.event-loop-threads=1");
+            default -> { }
+        }
+
+        // The test helpers are picked up by component scanning and need a WebTestClient bean
+        context = new SpringApplicationBuilder(TodoApplication.class)
+            .profiles(Constants.IN_MEMORY_PROFILE)
+            .properties(properties.toArray(String[]::new))
+            .initializers((GenericApplicationContext ctx) -> ctx.registerBean(WebTestClient.class, () -> WebTestClient.bindToServer().baseUrl(baseUrl).build()))
+            .run();
+
+        var httpClient = HttpClient.create()
+            .compress(server.equals("gzip"))
+            .protocol(server.equals("h2c") ? HttpProtocol.H2C : HttpProtocol.HTTP11);
+        webClient = WebClient.builder()
+            .baseUrl(baseUrl + API_PATH)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(-1))
+            .build();
+
+        var createCommands = IntStream.range(0, LIST_SIZE)
+            .mapToObj(i -> new TodoCreateCommand("netty round trip " + i, i % 2 == 0, (long) i))
+            .toList();
+
+        itemId = webClient.post()
+            .uri("/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(createCommands)
+            .retrieve()
+            .bodyToFlux(TodoResponse.class)
+            .blockFirst()
+            .id();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        FileSystemUtils.deleteRecursively(logDirectory.toFile());
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Benchmark
+    public String getItem() {
+        return webClient.get()
+            .uri("/{id}", itemId)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+    }
+
+    @Benchmark
+    public String listItems() {
+        return webClient.get()
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+    }
+}
@@ -0,0 +1,35 @@
+package com.rajven.todo.benchmark;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import com.rajven.todo.api.TodoConverter;
+import com.rajven.todo.api.TodoResponse;
+import com.rajven.todo.db.TodoItem;
+
+/**
+ * Measures converting a DB model into the API model, which happens once per item in every response,
+ * and determining the item base URL, which happens once per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoConverterBenchmark {
+    private final TodoItem todoItem = new TodoItem(4711, "benchmark the converter", false, 12L);
+    private final URI listUrl = URI.create("http://localhost:8080/api/todo?limit=100");
+    private final String itemBaseUrl = TodoConverter.itemBaseUrl(listUrl);
+
+    @Benchmark
+    public TodoResponse convert() {
+        return TodoConverter.convert(todoItem, itemBaseUrl);
+    }
+
+    @Benchmark
+    public String itemBaseUrl() {
+        return TodoConverter.itemBaseUrl(listUrl);
+    }
+}
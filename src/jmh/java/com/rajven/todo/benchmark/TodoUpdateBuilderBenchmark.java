@@ -0,0 +1,42 @@
+package com.rajven.todo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openapitools.jackson.nullable.JsonNullable;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.relational.core.query.Update;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.db.TodoUpdateBuilder;
+
+/**
+ * Measures turning a partial update command into the {@link Update} that is written to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoUpdateBuilderBenchmark {
+    private final TodoUpdateCommand singlePropertyCmd = new TodoUpdateCommand();
+    private final TodoUpdateCommand allPropertiesCmd = new TodoUpdateCommand();
+
+    @Setup
+    public void setUp() {
+        singlePropertyCmd.setCompleted(JsonNullable.of(true));
+
+        allPropertiesCmd.setTitle(JsonNullable.of("update every property"));
+        allPropertiesCmd.setCompleted(JsonNullable.of(true));
+        allPropertiesCmd.setOrder(JsonNullable.of(null));
+    }
+
+    @Benchmark
+    public Update withSingleUpdate() {
+        return TodoUpdateBuilder.withUpdates(singlePropertyCmd);
+    }
+
+    @Benchmark
+    public Update withAllUpdates() {
+        return TodoUpdateBuilder.withUpdates(allPropertiesCmd);
+    }
+}
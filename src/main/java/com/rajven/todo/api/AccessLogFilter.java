@@ -0,0 +1,55 @@
+package com.rajven.todo.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.config.AccessLogProperties;
+
+/**
+ * Writes a sample of the handled requests to the {@code com.rajven.todo.access} logger, together with every request that
+ * ended with a 4xx or 5xx status. The sampling decision is made up front, so requests that are not sampled and succeed
+ * cost nothing more than a random number. The logger is backed by an asynchronous appender, see {@code logback-spring.xml}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class AccessLogFilter implements WebFilter {
+    private static final Logger accessLog = LogManager.getLogger("com.rajven.todo.access");
+
+    private final AccessLogProperties properties;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled() || !accessLog.isInfoEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> {
+            var sampled = ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+            var start = System.nanoTime();
+            return chain.filter(exchange)
+                .doOnSuccess(done -> log(exchange, null, sampled, start))
+                .doOnError(error -> log(exchange, error, sampled, start));
+        });
+    }
+
+    private static void log(ServerWebExchange exchange, Throwable error, boolean sampled, long start) {
+        var status = RequestStatus.of(exchange, error);
+        if (!sampled && status < 400) {
+            return;
+        }
+
+        var request = exchange.getRequest();
+        accessLog.info("{} {} {} {}ms", request.getMethod(), request.getURI().getRawPath(), status,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+}
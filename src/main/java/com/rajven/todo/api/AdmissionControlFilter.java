@@ -0,0 +1,196 @@
+package com.rajven.todo.api;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.config.AdmissionProperties;
+import com.rajven.todo.db.RepositoryMetrics;
+
+/**
+ * Turns requests away right away when the service can't take them, rather than letting them queue up for the database
+ * and get slower for everyone.
+ * <p>
+ * The API is split into endpoints with {@link AdmissionProperties limits} of their own, since listing costs much more than
+ * getting a single item. A client that goes over its {@link TokenBucket rate limit} for an endpoint gets 429, and a
+ * request that would go over the {@link ConcurrencyLimit concurrency limit} of an endpoint gets 503, both with a
+ * {@code Retry-After}. The concurrency limits are adjusted every interval to the latency of the repository since the
+ * last adjustment. Turned away requests are counted by the {@code todo.admission.rejected} counter, and the current
+ * limits are published as the {@code todo.admission.limit} gauge.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+@Log4j2
+public class AdmissionControlFilter implements WebFilter {
+    private final AdmissionProperties properties;
+    private final RepositoryMetrics repositoryMetrics;
+    private final Map<ApiEndpoint, EndpointAdmission> endpoints = new EnumMap<>(ApiEndpoint.class);
+    private final Cache<ClientEndpoint, TokenBucket> buckets;
+    private final Disposable adjusting;
+    private RepositoryMetrics.Totals lastTotals;
+
+    public AdmissionControlFilter(AdmissionProperties properties, RepositoryMetrics repositoryMetrics, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.repositoryMetrics = repositoryMetrics;
+        this.lastTotals = repositoryMetrics.totals();
+
+        var longestRefill = Duration.ZERO;
+        for (var endpoint : ApiEndpoint.values()) {
+            var limits = limits(endpoint);
+            endpoints.put(endpoint, new EndpointAdmission(endpoint, limits, meterRegistry));
+            if (limits.getRate() > 0) {
+                var refill = Duration.ofNanos((long) (TimeUnit.SECONDS.toNanos(1) * Math.max(limits.getBurst(), 1) / limits.getRate()));
+                longestRefill = refill.compareTo(longestRefill) > 0 ? refill : longestRefill;
+            }
+        }
+
+        // A bucket that was idle for this long is full again, forgetting it changes nothing
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxClients())
+            .expireAfterAccess(longestRefill)
+            .build();
+
+        this.adjusting = properties.isEnabled()
+            ? Flux.interval(properties.getAdjustInterval()).subscribe(tick -> adjustLimits())
+            : null;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        var endpoint = ApiEndpoint.of(exchange.getRequest());
+        if (endpoint == null) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> {
+            var admission = endpoints.get(endpoint);
+            var waitNanos = admission.limits().getRate() > 0
+                ? buckets.get(new ClientEndpoint(ApiClient.of(exchange.getRequest(), properties.getClientHeader(), properties.getTrustedProxies()), endpoint), key -> admission.newBucket()).tryTake(System.nanoTime())
+                : 0;
+            if (waitNanos > 0) {
+                admission.rateLimited().increment();
+                return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(waitNanos));
+            }
+
+            var concurrencyLimit = admission.concurrencyLimit();
+            if (concurrencyLimit == null) {
+                return chain.filter(exchange);
+            }
+
+            if (!concurrencyLimit.tryAcquire()) {
+                admission.concurrencyLimited().increment();
+                return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, properties.getRetryAfter());
+            }
+
+            return chain.filter(exchange)
+                .doFinally(signal -> concurrencyLimit.release());
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (adjusting != null) {
+            adjusting.dispose();
+        }
+    }
+
+    // The repository is overloaded when its calls took longer than the threshold on average, or when any of them failed
+    synchronized void adjustLimits() {
+        var totals = repositoryMetrics.totals();
+        var calls = totals.completedCalls() - lastTotals.completedCalls();
+        var nanos = totals.completedNanos() - lastTotals.completedNanos();
+        var failures = totals.failedCalls() - lastTotals.failedCalls();
+        lastTotals = totals;
+
+        var overloaded = failures > 0 || calls > 0 && nanos / calls > properties.getLatencyThreshold().toNanos();
+        if (overloaded) {
+            log.debug("Lowering the concurrency limits, {} repository calls took {}ms on average and {} failed",
+                calls, calls > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos / calls) : 0, failures);
+        }
+
+        for (var admission : endpoints.values()) {
+            if (admission.concurrencyLimit() != null) {
+                admission.concurrencyLimit().adjust(overloaded, properties.getBackoff());
+            }
+        }
+    }
+
+    ConcurrencyLimit concurrencyLimit(ApiEndpoint endpoint) {
+        return endpoints.get(endpoint).concurrencyLimit();
+    }
+
+    private AdmissionProperties.EndpointLimits limits(ApiEndpoint endpoint) {
+        return switch (endpoint) {
+            case LIST -> properties.getList();
+            case GET -> properties.getGet();
+            case WRITE -> properties.getWrite();
+            case BULK -> properties.getBulk();
+            case EVENTS -> properties.getEvents();
+        };
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, Duration retryAfter) {
+        var response = exchange.getResponse();
+        response.setStatusCode(status);
+        // Whole seconds, rounded up so that clients don't come back before they can be admitted
+        var seconds = Math.max(1, (retryAfter.toNanos() + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        return response.setComplete();
+    }
+
+    private record ClientEndpoint(String client, ApiEndpoint endpoint) {
+    }
+
+    private record EndpointAdmission(AdmissionProperties.EndpointLimits limits, ConcurrencyLimit concurrencyLimit,
+                                     Counter rateLimited, Counter concurrencyLimited) {
+
+        EndpointAdmission(ApiEndpoint endpoint, AdmissionProperties.EndpointLimits limits, MeterRegistry meterRegistry) {
+            this(limits,
+                limits.getMaxConcurrency() > 0 ? new ConcurrencyLimit(limits.getMinConcurrency(), limits.getMaxConcurrency()) : null,
+                rejected(endpoint, "rate", meterRegistry),
+                rejected(endpoint, "concurrency", meterRegistry));
+
+            if (concurrencyLimit != null) {
+                Gauge.builder("todo.admission.limit", concurrencyLimit, ConcurrencyLimit::limit)
+                    .description("Requests an endpoint handles at once")
+                    .tag("endpoint", endpoint.tag())
+                    .register(meterRegistry);
+            }
+        }
+
+        TokenBucket newBucket() {
+            return new TokenBucket(limits.getRate(), limits.getBurst(), System.nanoTime());
+        }
+
+        private static Counter rejected(ApiEndpoint endpoint, String reason, MeterRegistry meterRegistry) {
+            return Counter.builder("todo.admission.rejected")
+                .description("Requests turned away because a limit was reached")
+                .tag("endpoint", endpoint.tag())
+                .tag("reason", reason)
+                .register(meterRegistry);
+        }
+    }
+}
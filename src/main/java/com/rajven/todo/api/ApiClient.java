@@ -0,0 +1,52 @@
+package com.rajven.todo.api;
+
+import java.util.List;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * Tells the clients of the API apart, by a header that identifies them or otherwise by their address.
+ */
+final class ApiClient {
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private ApiClient() {
+    }
+
+    /**
+     * Every proxy appends the address it got the request from to a header like {@code X-Forwarded-For}, and a client can
+     * send any values it likes in front of them. So the client is the value the outermost trusted proxy appended, which is
+     * counted from the right.
+     *
+     * @param request        the request the client sent
+     * @param header         a header that identifies the client, like {@code X-Forwarded-For} behind a proxy, or {@code null}
+     *                       to use the address
+     * @param trustedProxies how many proxies in front of the application append to the header, at least 1
+     * @return               the client
+     */
+    static String of(ServerHttpRequest request, String header, int trustedProxies) {
+        if (header != null) {
+            var client = appendedValue(request.getHeaders().getOrEmpty(header), trustedProxies);
+            if (client != null) {
+                return client;
+            }
+        }
+
+        var address = request.getRemoteAddress();
+        return address != null && address.getAddress() != null
+            ? address.getAddress().getHostAddress()
+            : UNKNOWN_CLIENT;
+    }
+
+    // The header may be sent as several lines, which together are one list of values. With fewer values than trusted
+    // proxies, the request came through fewer of them, and the first value is the one the outermost appended.
+    private static String appendedValue(List<String> lines, int trustedProxies) {
+        if (lines.isEmpty()) {
+            return null;
+        }
+
+        var values = String.join(",", lines).split(",", -1);
+        var value = values[Math.max(values.length - Math.max(trustedProxies, 1), 0)].trim();
+        return value.isEmpty() ? null : value;
+    }
+}
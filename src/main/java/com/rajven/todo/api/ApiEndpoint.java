@@ -0,0 +1,69 @@
+package com.rajven.todo.api;
+
+import static com.rajven.todo.config.Constants.API_PATH;
+
+import java.util.Locale;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * The parts of the API that differ in what a request costs, each with limits and a deadline of its own.
+ */
+enum ApiEndpoint {
+    /**
+     * Listing and searching items.
+     */
+    LIST,
+    /**
+     * Getting single items and the statistics.
+     */
+    GET,
+    /**
+     * Creating, updating and deleting single items.
+     */
+    WRITE,
+    /**
+     * Writing many items at once, and deleting all of them.
+     */
+    BULK,
+    /**
+     * Streaming item changes.
+     */
+    EVENTS;
+
+    /**
+     * @return the endpoint a request is for, or {@code null} if it's not for the API or a preflight request
+     */
+    static ApiEndpoint of(ServerHttpRequest request) {
+        var path = request.getPath().pathWithinApplication().value();
+        var method = request.getMethod();
+        if (!path.startsWith(API_PATH) || method == null || method == HttpMethod.OPTIONS) {
+            return null;
+        }
+
+        var resource = path.substring(API_PATH.length());
+        if (!resource.isEmpty() && !resource.startsWith("/")) {
+            return null;
+        }
+
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+            return switch (resource) {
+                case "", "/", "/search" -> LIST;
+                case "/events" -> EVENTS;
+                default -> GET;
+            };
+        }
+
+        return resource.equals("/bulk") || resource.isEmpty() && method == HttpMethod.DELETE
+            ? BULK
+            : WRITE;
+    }
+
+    /**
+     * @return the name metrics are tagged with
+     */
+    String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,76 @@
+package com.rajven.todo.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on the requests handled at once that adapts to the load the service can take, by additive increase and
+ * multiplicative decrease (AIMD): it's multiplied by the backoff factor when the service was overloaded since the last
+ * adjustment, and grows by one otherwise if it was reached. Requests over the limit are refused rather than queued.
+ */
+final class ConcurrencyLimit {
+    private final int min;
+    private final int max;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // The most requests in flight since the last adjustment, to tell whether the limit was reached
+    private final AtomicInteger peak = new AtomicInteger();
+    private volatile int limit;
+
+    /**
+     * @param min the lowest the limit shrinks to, at least 1
+     * @param max the highest the limit grows to, which is also where it starts
+     */
+    ConcurrencyLimit(int min, int max) {
+        this.min = Math.max(1, Math.min(min, max));
+        this.max = max;
+        this.limit = max;
+    }
+
+    /**
+     * Counts a request as in flight if that stays within the limit. Every acquired request must be released.
+     *
+     * @return whether the request may be handled
+     */
+    boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= limit) {
+                peak.accumulateAndGet(current, Math::max);
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peak.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Adjusts the limit to how the service did since the last adjustment. Only called by one thread at a time.
+     *
+     * @param overloaded whether the service was overloaded
+     * @param backoff    the factor the limit is multiplied with when it was, below 1
+     */
+    void adjust(boolean overloaded, double backoff) {
+        var current = limit;
+        if (overloaded) {
+            limit = Math.max(min, (int) (current * backoff));
+        } else if (peak.get() >= current) {
+            limit = Math.min(max, current + 1);
+        }
+
+        peak.set(inFlight.get());
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
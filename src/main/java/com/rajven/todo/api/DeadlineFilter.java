@@ -0,0 +1,119 @@
+package com.rajven.todo.api;
+
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import com.rajven.todo.config.DeadlineProperties;
+import com.rajven.todo.config.RequestDeadline;
+
+/**
+ * Gives up requests to the API that take longer than the {@link DeadlineProperties budget} of their endpoint, or the
+ * shorter deadline the client asked for, with 504.
+ * <p>
+ * The deadline is for the first byte of the response. Once the response is committed it can't become a 504 any more, so
+ * a response that streams, like an unpaged list or a chunked bulk delete, is left to finish however long it takes, and
+ * is only given up when its client goes away.
+ * <p>
+ * Giving up a request cancels its reactive chain, which releases the connections it holds back to the pool. Requests
+ * whose client went away are cancelled by the server the same way. Either way the request is marked as
+ * {@link RequestDeadline abandoned} first, so the statements it has running on the database are cancelled there as
+ * well. Requests given up are counted by the {@code todo.requests.timed.out} and {@code todo.requests.cancelled}
+ * counters.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 4)
+public class DeadlineFilter implements WebFilter {
+    private static final String DEADLINE_EXCEEDED_ERROR_MSG = "The request took longer than its deadline of %d ms";
+
+    private final DeadlineProperties properties;
+    private final Map<ApiEndpoint, Counter> timedOut = new EnumMap<>(ApiEndpoint.class);
+    private final Map<ApiEndpoint, Counter> cancelled = new EnumMap<>(ApiEndpoint.class);
+
+    public DeadlineFilter(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (var endpoint : ApiEndpoint.values()) {
+            timedOut.put(endpoint, Counter.builder("todo.requests.timed.out")
+                .description("Requests given up because they took longer than their deadline")
+                .tag("endpoint", endpoint.tag())
+                .register(meterRegistry));
+            cancelled.put(endpoint, Counter.builder("todo.requests.cancelled")
+                .description("Requests cancelled because the client went away before the response was sent")
+                .tag("endpoint", endpoint.tag())
+                .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var endpoint = ApiEndpoint.of(exchange.getRequest());
+        if (endpoint == null) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> {
+            var deadline = new RequestDeadline();
+            var handled = chain.filter(exchange)
+                .doOnCancel(deadline::abandon)
+                .contextWrite(Context.of(RequestDeadline.contextKey(), deadline));
+
+            var budget = budget(endpoint, exchange.getRequest());
+            if (budget != null) {
+                var firstByte = Mono.delay(budget)
+                    .flatMap(tick -> exchange.getResponse().isCommitted() ? Mono.never() : Mono.just(tick));
+                handled = handled.timeout(firstByte, Mono.defer(() -> {
+                    timedOut.get(endpoint).increment();
+                    return Mono.error(new ResponseStatusException(GATEWAY_TIMEOUT, DEADLINE_EXCEEDED_ERROR_MSG.formatted(budget.toMillis())));
+                }));
+            }
+
+            return handled.doOnCancel(cancelled.get(endpoint)::increment);
+        });
+    }
+
+    // The budget of the endpoint, unless the client asked for less, or null when there's no deadline
+    private Duration budget(ApiEndpoint endpoint, ServerHttpRequest request) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+
+        var budget = switch (endpoint) {
+            case LIST -> properties.getList();
+            case GET -> properties.getGet();
+            case WRITE -> properties.getWrite();
+            case BULK -> properties.getBulk();
+            case EVENTS -> properties.getEvents();
+        };
+        if (budget == null || budget.isZero() || budget.isNegative()) {
+            return null;
+        }
+
+        var requested = properties.getHeader() != null ? request.getHeaders().getFirst(properties.getHeader()) : null;
+        if (requested != null) {
+            try {
+                var millis = Long.parseLong(requested.trim());
+                if (millis > 0 && millis < budget.toMillis()) {
+                    return Duration.ofMillis(millis);
+                }
+            } catch (NumberFormatException e) {
+                // Not a deadline the client can ask for, so it gets the budget of the endpoint
+            }
+        }
+
+        return budget;
+    }
+}
@@ -0,0 +1,63 @@
+package com.rajven.todo.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.config.AdmissionProperties;
+import com.rajven.todo.config.ReplicaProperties;
+import com.rajven.todo.db.ReadSource;
+
+/**
+ * Has a client read from the primary database for a while after each of its writes, so that it sees them even while
+ * the read replica lags behind. Requests that write read from the primary as well. Without a replica, or without a
+ * {@link ReplicaProperties#getStickyWindow() sticky window}, there is nothing to do.
+ * <p>
+ * The clients that wrote recently are only known to the instance they wrote through, a client whose next request goes
+ * to another instance may not see its write right away.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class ReadYourWritesFilter implements WebFilter {
+    private final AdmissionProperties admissionProperties;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(ReplicaProperties replicaProperties, AdmissionProperties admissionProperties) {
+        this.admissionProperties = admissionProperties;
+        var window = replicaProperties.getStickyWindow();
+        this.recentWriters = StringUtils.hasText(replicaProperties.getUrl()) && window != null && !window.isZero() && !window.isNegative()
+            ? Caffeine.newBuilder()
+                .maximumSize(admissionProperties.getMaxClients())
+                .expireAfterWrite(window)
+                .build()
+            : null;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var endpoint = recentWriters != null ? ApiEndpoint.of(exchange.getRequest()) : null;
+        if (endpoint == null || endpoint == ApiEndpoint.EVENTS) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> {
+            var client = ApiClient.of(exchange.getRequest(), admissionProperties.getClientHeader(), admissionProperties.getTrustedProxies());
+            if (endpoint == ApiEndpoint.WRITE || endpoint == ApiEndpoint.BULK) {
+                // Also after a failure or cancellation, the write may have happened anyway
+                return chain.filter(exchange)
+                    .doFinally(signal -> recentWriters.put(client, Boolean.TRUE))
+                    .contextWrite(ReadSource.PRIMARY.context());
+            }
+
+            return recentWriters.getIfPresent(client) != null
+                ? chain.filter(exchange).contextWrite(ReadSource.PRIMARY.context())
+                : chain.filter(exchange);
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.rajven.todo.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTags;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Complements the {@code http.server.requests} timers recorded by Spring Boot with the number of requests currently
+ * being handled, as the {@code http.server.requests.in.flight} gauge, and a {@code http.server.errors} counter for
+ * every request that ends with a 4xx or 5xx status, tagged with the status and the matched route.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestMetricsFilter implements WebFilter {
+    private static final String ERROR_COUNTER_NAME = "http.server.errors";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.inFlight = meterRegistry.gauge("http.server.requests.in.flight", new AtomicInteger());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return Mono.defer(() -> {
+            inFlight.incrementAndGet();
+            return chain.filter(exchange)
+                .doOnSuccess(done -> countError(exchange, null))
+                .doOnError(error -> countError(exchange, error))
+                .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    private void countError(ServerWebExchange exchange, Throwable error) {
+        var status = RequestStatus.of(exchange, error);
+        if (status < 400) {
+            return;
+        }
+
+        Counter.builder(ERROR_COUNTER_NAME)
+            .description("Requests that ended with a client or server error")
+            .tag("status", String.valueOf(status))
+            .tags(Tags.of(WebFluxTags.uri(exchange)))
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,28 @@
+package com.rajven.todo.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Resolves the status a request ends with. Errors are only turned into a response after the web filters have completed,
+ * so for a failed request the status is derived from the error the same way the default error handling does.
+ */
+final class RequestStatus {
+
+    private RequestStatus() {
+    }
+
+    static int of(ServerWebExchange exchange, Throwable error) {
+        if (error instanceof ResponseStatusException responseStatusException) {
+            return responseStatusException.getRawStatusCode();
+        }
+
+        if (error != null) {
+            return HttpStatus.INTERNAL_SERVER_ERROR.value();
+        }
+
+        var status = exchange.getResponse().getRawStatusCode();
+        return status != null ? status : HttpStatus.OK.value();
+    }
+}
@@ -0,0 +1,13 @@
+package com.rajven.todo.api;
+
+/**
+ * One entry of a bulk update, i.e. the {@link TodoUpdateCommand} to apply to the {@link com.rajven.todo.db.TodoItem}
+ * with the given id.
+ */
+public record TodoBulkUpdateCommand(long id, TodoUpdateCommand update) {
+
+    public TodoBulkUpdateCommand {
+        // A missing update is treated like an empty one, i.e. the item is returned unchanged
+        update = update == null ? new TodoUpdateCommand() : update;
+    }
+}
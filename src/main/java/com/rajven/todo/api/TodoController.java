@@ -1,56 +1,262 @@
 package com.rajven.todo.api;
 
+import static org.springframework.http.HttpHeaders.LINK;
 import static org.springframework.http.HttpStatus.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import com.rajven.todo.config.BulkProperties;
 import com.rajven.todo.config.Constants;
+import com.rajven.todo.config.PaginationProperties;
+import com.rajven.todo.config.SearchProperties;
+import com.rajven.todo.config.TodoEventsProperties;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoItemsVersion;
+import com.rajven.todo.db.TodoQuery;
+import com.rajven.todo.db.TodoSearch;
+import com.rajven.todo.service.DeleteProgress;
+import com.rajven.todo.service.MoveConflictException;
+import com.rajven.todo.service.TodoEvent;
 import com.rajven.todo.service.TodoService;
 
 @RestController
 @RequestMapping(Constants.API_PATH)
 @CrossOrigin("*")
-@Log4j2
 @RequiredArgsConstructor
 public class TodoController {
 
     private static final String NOT_FOUND_ERROR_MSG = "No todo with that id found";
+    private static final String HEARTBEAT_COMMENT = "heartbeat";
+
+    private static final String INVALID_LIMIT_ERROR_MSG = "The limit must be between 1 and %d";
+    private static final String INVALID_SORT_ERROR_MSG = "The sort must be either id or order";
+    private static final String INVALID_CURSOR_ERROR_MSG = "afterOrder can only be given together with after when sorting by order";
+    private static final String EMPTY_SEARCH_ERROR_MSG = "The search must contain at least one letter or digit";
+    private static final String INVALID_OFFSET_ERROR_MSG = "The offset must be between 0 and %d";
+    private static final String TOO_MANY_UPDATES_ERROR_MSG = "At most %d items can be updated in one request";
+    private static final String INVALID_MOVE_ERROR_MSG = "Exactly one of before and after must be given";
+    private static final String MOVE_NEXT_TO_ITSELF_ERROR_MSG = "An item can't be moved next to itself";
+    private static final String MISSING_FILTER_ERROR_MSG = "At least one of list, completed and titlePrefix must be given, all items are deleted without /bulk";
 
     private final TodoService todoService;
+    private final PaginationProperties paginationProperties;
+    private final BulkProperties bulkProperties;
+    private final TodoEventsProperties eventsProperties;
+    private final SearchProperties searchProperties;
 
+    /**
+     * Lists todo items, optionally only those on the given list or with the given completion state or title prefix,
+     * ordered by id or by {@code order}. Without {@code limit} all items after the cursor are returned, otherwise a single
+     * page is returned together with a {@code Link} header pointing to the next page, if there is one. The cursor is the
+     * id of the last item seen, plus its order when sorting by order, and the filters and the sort order are run in the
+     * database.
+     * Clients accepting {@code application/x-ndjson} get the items streamed one per line as they are read.
+     * The response has an ETag that changes whenever any item changes, and requests with a matching {@code If-None-Match}
+     * get a 304 without the items being read at all.
+     */
     @GetMapping
-    public Flux<TodoResponse> list(ServerHttpRequest request) {
-        return todoService.getAll()
-            .doOnSubscribe(subscription -> log.info("Received request for all todo items"))
-            .map(todoItem -> TodoConverter.convert(todoItem, request.getURI()));
+    public Mono<ResponseEntity<Flux<TodoResponse>>> list(@RequestParam(required = false) Long after,
+                                                          @RequestParam(required = false) Long afterOrder,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String list,
+                                                          @RequestParam(required = false) Boolean completed,
+                                                          @RequestParam(required = false) String titlePrefix,
+                                                          @RequestParam(defaultValue = "id") String sort,
+                                                          ServerWebExchange exchange) {
+        if (limit != null && (limit < 1 || limit > paginationProperties.getMaxLimit())) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_LIMIT_ERROR_MSG.formatted(paginationProperties.getMaxLimit())));
+        }
+
+        var sortBy = switch (sort) {
+            case "id" -> TodoQuery.SortBy.ID;
+            case "order" -> TodoQuery.SortBy.ORDER;
+            default -> null;
+        };
+        if (sortBy == null) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_SORT_ERROR_MSG));
+        }
+
+        if (afterOrder != null && (after == null || sortBy != TodoQuery.SortBy.ORDER)) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_CURSOR_ERROR_MSG));
+        }
+
+        var query = new TodoQuery(list, completed, titlePrefix, sortBy, after != null ? new TodoQuery.Cursor(after, afterOrder) : null);
+        var request = exchange.getRequest();
+        return todoService.getItemsVersion()
+            .flatMap(itemsVersion -> {
+                var eTag = listETag(itemsVersion, request);
+                if (exchange.checkNotModified(eTag)) {
+                    return Mono.just(ResponseEntity.status(NOT_MODIFIED).eTag(eTag).<Flux<TodoResponse>>build());
+                }
+
+                return limit == null
+                    ? Mono.just(listAll(query, request, eTag))
+                    : listPage(query, limit, request, eTag);
+            });
+    }
+
+    /**
+     * Searches the titles of all todo items for all words in {@code q}, where the last word also matches as a prefix.
+     * The best matches come first, and a page is returned together with a {@code Link} header pointing to the next page,
+     * if there is one.
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<Flux<TodoResponse>>> search(@RequestParam String q,
+                                                            @RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            ServerHttpRequest request) {
+        var pageSize = limit != null ? limit : searchProperties.getDefaultLimit();
+        if (pageSize < 1 || pageSize > paginationProperties.getMaxLimit()) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_LIMIT_ERROR_MSG.formatted(paginationProperties.getMaxLimit())));
+        }
+
+        if (offset < 0 || offset > searchProperties.getMaxOffset()) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_OFFSET_ERROR_MSG.formatted(searchProperties.getMaxOffset())));
+        }
+
+        var search = TodoSearch.parse(q);
+        if (search.isEmpty()) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, EMPTY_SEARCH_ERROR_MSG));
+        }
+
+        // Fetch one extra item to find out whether there is a next page, like for lists
+        return todoService.search(search, offset, pageSize + 1)
+            .collectList()
+            .map(todoItems -> {
+                var response = ResponseEntity.ok();
+                var page = todoItems;
+                if (todoItems.size() > pageSize) {
+                    page = todoItems.subList(0, pageSize);
+                    var nextPage = UriComponentsBuilder.fromUri(request.getURI())
+                        .replaceQueryParam("offset", offset + pageSize)
+                        .replaceQueryParam("limit", pageSize)
+                        .build(true)
+                        .toUri();
+                    response.header(LINK, String.format("<%s>; rel=\"next\"", nextPage));
+                }
+
+                var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+                return response.body(Flux.fromIterable(page)
+                    .map(todoItem -> TodoConverter.convert(todoItem, itemBaseUrl)));
+            });
     }
 
+    /**
+     * Gets the number of todo items, in total, completed and active. The counts are kept up to date by the writes rather
+     * than counted per request, so dashboards can poll this as often as they like.
+     */
+    @GetMapping("/stats")
+    public Mono<TodoStatsResponse> stats() {
+        return todoService.getStats()
+            .map(TodoConverter::convert);
+    }
+
+    /**
+     * Gets a single todo item, with the version of the item as ETag. Requests with a matching {@code If-None-Match} get a 304.
+     */
     @GetMapping("/{id}")
-    public Mono<TodoResponse> get(@PathVariable long id, ServerHttpRequest request) {
+    public Mono<ResponseEntity<TodoResponse>> get(@PathVariable long id, ServerHttpRequest request) {
         return todoService.find(id)
-            .doOnSubscribe(subscription -> log.info("Received request for todo item with id {}", id))
-            .map(todoItem -> TodoConverter.convert(todoItem, request.getURI()))
+            .map(todoItem -> ResponseEntity.ok()
+                .eTag(Long.toString(todoItem.getVersion()))
+                .body(TodoConverter.convert(todoItem, TodoConverter.itemBaseUrl(request.getURI()))))
             .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, NOT_FOUND_ERROR_MSG)));
     }
 
+    /**
+     * Streams the changes of all todo items as server-sent events, named after the {@link TodoEvent.Type} in lower case.
+     * Created and updated events carry the item, deleted events its id. A {@code resync} event means that changes were
+     * missed, so the list has to be read again. Idle streams get a comment every heartbeat interval, starting right away.
+     */
+    @GetMapping(path = "/events", produces = TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> events(ServerHttpRequest request) {
+        var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+        var heartbeats = Flux.interval(Duration.ZERO, eventsProperties.getHeartbeatInterval())
+            .map(tick -> ServerSentEvent.builder().comment(HEARTBEAT_COMMENT).build());
+
+        // The events are subscribed to first, so a client that got the first heartbeat gets every change made after it
+        return Flux.merge(todoService.events().map(event -> serverSentEvent(event, itemBaseUrl)), heartbeats);
+    }
+
     @PostMapping
     @ResponseStatus(CREATED)
     public Mono<TodoResponse> create(@RequestBody TodoCreateCommand todoCreateCmd, ServerHttpRequest request) {
         return todoService.create(todoCreateCmd)
-            .doOnSubscribe(subscription -> log.info("Received request to create todo item"))
-            .map(todoItem -> TodoConverter.convert(todoItem, request.getURI()));
+            .map(todoItem -> TodoConverter.convert(todoItem, TodoConverter.itemBaseUrl(request.getURI())));
+    }
+
+    /**
+     * Creates many todo items in one request. The body is either a JSON array or a stream of newline delimited JSON
+     * objects, and it is decoded and written in batches as it arrives.
+     */
+    @PostMapping(path = "/bulk", consumes = { APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE })
+    @ResponseStatus(CREATED)
+    public Flux<TodoResponse> createAll(@RequestBody Flux<TodoCreateCommand> todoCreateCmds, ServerHttpRequest request) {
+        var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+
+        return todoService.createAll(todoCreateCmds)
+            .map(todoItem -> TodoConverter.convert(todoItem, itemBaseUrl));
+    }
+
+    /**
+     * Applies many partial updates in one transaction and returns the updated items ordered by id.
+     */
+    @PatchMapping("/bulk")
+    public Flux<TodoResponse> updateAll(@RequestBody List<TodoBulkUpdateCommand> todoBulkUpdateCmds, ServerHttpRequest request) {
+        if (todoBulkUpdateCmds.size() > bulkProperties.getMaxUpdates()) {
+            return Flux.error(new ResponseStatusException(BAD_REQUEST, TOO_MANY_UPDATES_ERROR_MSG.formatted(bulkProperties.getMaxUpdates())));
+        }
+
+        var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+
+        return todoService.updateAll(todoBulkUpdateCmds)
+            .map(todoItem -> TodoConverter.convert(todoItem, itemBaseUrl));
     }
 
     @PatchMapping("/{id}")
     public Mono<TodoResponse> update(@PathVariable long id, @RequestBody TodoUpdateCommand todoUpdateCmd, ServerHttpRequest request) {
         return todoService.update(id, todoUpdateCmd)
-            .doOnSubscribe(subscription -> log.info("Received request to update todo item with id {}", id))
-            .map(todoItem -> TodoConverter.convert(todoItem, request.getURI()))
+            .map(todoItem -> TodoConverter.convert(todoItem, TodoConverter.itemBaseUrl(request.getURI())))
+            .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, NOT_FOUND_ERROR_MSG)));
+    }
+
+    /**
+     * Moves a todo item right before or after another item on the same list, e.g. for drag and drop, given as
+     * {@code {"before": <id>}} or {@code {"after": <id>}}. Only the moved item gets a new order, between the orders of its
+     * new neighbours, so a move is one write however long the list is. Items whose order is changed to make room for later
+     * moves are announced on the change feed like other updates. Moving next to an item on another list, or next to an
+     * item without an order, is a conflict.
+     */
+    @PostMapping("/{id}/move")
+    public Mono<TodoResponse> move(@PathVariable long id, @RequestBody TodoMoveCommand todoMoveCmd, ServerHttpRequest request) {
+        if ((todoMoveCmd.before() == null) == (todoMoveCmd.after() == null)) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, INVALID_MOVE_ERROR_MSG));
+        }
+
+        if (todoMoveCmd.target() == id) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, MOVE_NEXT_TO_ITSELF_ERROR_MSG));
+        }
+
+        return todoService.move(id, todoMoveCmd)
+            .map(todoItem -> TodoConverter.convert(todoItem, TodoConverter.itemBaseUrl(request.getURI())))
+            .onErrorMap(MoveConflictException.class, e -> new ResponseStatusException(CONFLICT, e.getMessage()))
             .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, NOT_FOUND_ERROR_MSG)));
     }
 
@@ -58,15 +264,90 @@ public class TodoController {
     @ResponseStatus(NO_CONTENT)
     public Mono<Boolean> delete(@PathVariable long id) {
         return todoService.delete(id)
-            .doOnSubscribe(subscription -> log.info("Received request to delete todo item with id {}", id))
             .filter(result -> result)
             .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, NOT_FOUND_ERROR_MSG)));
     }
 
+    /**
+     * Deletes the todo items that match all given filters, e.g. {@code completed=true} to clear the completed items or
+     * {@code list=groceries} to delete a list.
+     * Items are deleted in chunks of ascending ids with a pause in between, so that a large delete never holds locks for
+     * long. The progress is streamed as newline delimited JSON, one line per chunk and a last one with {@code done} set.
+     * Closing the response stops the delete after the current chunk.
+     */
+    @DeleteMapping(path = "/bulk", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<DeleteProgress> deleteMatching(@RequestParam(required = false) String list,
+                                               @RequestParam(required = false) Boolean completed,
+                                               @RequestParam(required = false) String titlePrefix) {
+        if (list == null && completed == null && titlePrefix == null) {
+            return Flux.error(new ResponseStatusException(BAD_REQUEST, MISSING_FILTER_ERROR_MSG));
+        }
+
+        return todoService.deleteMatching(new TodoQuery(list, completed, titlePrefix, TodoQuery.SortBy.ID, null));
+    }
+
     @DeleteMapping
     @ResponseStatus(NO_CONTENT)
     public Mono<Void> deleteAll() {
-        return todoService.deleteAll()
-            .doOnSubscribe(subscription -> log.info("Received request to delete all todo items"));
+        return todoService.deleteAll();
+    }
+
+    private ResponseEntity<Flux<TodoResponse>> listAll(TodoQuery query, ServerHttpRequest request, String eTag) {
+        var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+        var items = todoService.getAll(query)
+            .map(todoItem -> TodoConverter.convert(todoItem, itemBaseUrl));
+
+        return ResponseEntity.ok().eTag(eTag).body(items);
+    }
+
+    private Mono<ResponseEntity<Flux<TodoResponse>>> listPage(TodoQuery query, int limit, ServerHttpRequest request, String eTag) {
+        // Fetch one extra item to find out whether there is a next page, the page itself is bounded by the limit
+        return todoService.getPage(query, limit + 1)
+            .collectList()
+            .map(todoItems -> {
+                var response = ResponseEntity.ok().eTag(eTag);
+                var page = todoItems;
+                if (todoItems.size() > limit) {
+                    page = todoItems.subList(0, limit);
+                    response.header(LINK, nextPageLink(request, query.sortBy(), page.get(limit - 1), limit));
+                }
+
+                var itemBaseUrl = TodoConverter.itemBaseUrl(request.getURI());
+                return response.body(Flux.fromIterable(page)
+                    .map(todoItem -> TodoConverter.convert(todoItem, itemBaseUrl)));
+            });
+    }
+
+    private static ServerSentEvent<Object> serverSentEvent(TodoEvent event, String itemBaseUrl) {
+        Object data = switch (event.type()) {
+            case CREATED, UPDATED -> TodoConverter.convert(event.item(), itemBaseUrl);
+            case DELETED -> Map.of("id", event.id());
+            case CLEARED, RESYNC -> Map.of();
+        };
+
+        return ServerSentEvent.builder(data)
+            .event(event.type().name().toLowerCase(Locale.ROOT))
+            .build();
+    }
+
+    // The list is the same for every query as long as no item changed, but JSON and NDJSON are different representations of it
+    private static String listETag(TodoItemsVersion itemsVersion, ServerHttpRequest request) {
+        var representation = request.getHeaders().getAccept().contains(APPLICATION_NDJSON) ? "ndjson" : "json";
+        return "%s-%d-%x".formatted(representation, itemsVersion.count(), itemsVersion.versionSum());
+    }
+
+    // The filters and the sort order are kept from the request as they were encoded, only the cursor moves
+    private static String nextPageLink(ServerHttpRequest request, TodoQuery.SortBy sortBy, TodoItem lastItem, int limit) {
+        var afterOrder = sortBy == TodoQuery.SortBy.ORDER && lastItem.getOrder() != null
+            ? new Object[] { lastItem.getOrder() }
+            : new Object[0];
+        var nextPage = UriComponentsBuilder.fromUri(request.getURI())
+            .replaceQueryParam("after", lastItem.getId())
+            .replaceQueryParam("afterOrder", afterOrder)
+            .replaceQueryParam("limit", limit)
+            .build(true)
+            .toUri();
+
+        return String.format("<%s>; rel=\"next\"", nextPage);
     }
 }
@@ -2,11 +2,11 @@ package com.rajven.todo.api;
 
 import java.net.URI;
 
-import lombok.extern.log4j.Log4j2;
+import com.rajven.todo.config.Constants;
 import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoStats;
 import org.springframework.web.util.UriComponentsBuilder;
 
-@Log4j2
 public final class TodoConverter {
     private TodoConverter() {
     }
@@ -14,27 +14,37 @@ public final class TodoConverter {
     /**
      * Converts the DB Model {@link TodoItem} to the API model {@link TodoResponse}.
      *
-     * @param todoItem the element to convert
-     * @return         an API model representation of the DB model
+     * @param todoItem    the element to convert
+     * @param itemBaseUrl the base URL of all items, as returned by {@link #itemBaseUrl(URI)}
+     * @return            an API model representation of the DB model
      */
-    public static TodoResponse convert(TodoItem todoItem, URI requestUrl) {
-        var itemUri = determineItemUrl(requestUrl, todoItem.getId());
+    public static TodoResponse convert(TodoItem todoItem, String itemBaseUrl) {
+        return new TodoResponse(todoItem.getId(), todoItem.getTitle(), todoItem.isCompleted(), todoItem.getOrder(),
+            todoItem.getList(), itemBaseUrl + todoItem.getId());
+    }
 
-        return new TodoResponse(todoItem.getId(), todoItem.getTitle(), todoItem.isCompleted(), todoItem.getOrder(), itemUri);
+    /**
+     * Converts the counts {@link TodoStats} to the API model {@link TodoStatsResponse}.
+     *
+     * @param stats the counts to convert
+     * @return      an API model representation of the counts
+     */
+    public static TodoStatsResponse convert(TodoStats stats) {
+        return new TodoStatsResponse(stats.total(), stats.completed(), stats.active());
     }
 
     /**
-     * If the request was for a specific item the request URL already contains the item id, otherwise we have to append item id.
+     * Determines the URL that the id of an item is appended to in order to get the full URL of that item.
+     * This only depends on the scheme and authority of the request, so it's determined once per request rather than once per item.
      *
      * @param requestUrl the uri that the original request was sent to
-     * @param itemId     the id of the item to return
-     * @return           the full uri to the item
+     * @return           the base URL of all items, ending with a slash
      */
-    private static URI determineItemUrl(URI requestUrl, long itemId) {
-        if (requestUrl.toString().endsWith(String.valueOf(itemId))) {
-            return requestUrl;
-        }
-
-        return UriComponentsBuilder.fromUri(requestUrl).path(String.format("/%d", itemId)).build().toUri().normalize();
+    public static String itemBaseUrl(URI requestUrl) {
+        return UriComponentsBuilder.fromUri(requestUrl)
+            .replacePath(Constants.API_PATH + "/")
+            .replaceQuery(null)
+            .fragment(null)
+            .toUriString();
     }
 }
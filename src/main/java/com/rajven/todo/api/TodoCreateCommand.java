@@ -1,11 +1,23 @@
 package com.rajven.todo.api;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.rajven.todo.db.TodoItem;
 
 /**
  * Used to create a new {@link TodoItem}.
+ *
+ * @param list the list to put the item on, or null for none
  */
-public record TodoCreateCommand(String title, boolean completed, Long order) {
+public record TodoCreateCommand(String title, boolean completed, Long order, String list) {
+
+    // Jackson only picks the canonical constructor by itself when it's the only one
+    @JsonCreator
+    public TodoCreateCommand {
+    }
+
+    public TodoCreateCommand(String title, boolean completed, Long order) {
+        this(title, completed, order, null);
+    }
 
     /**
      * Converts this command into a {@link TodoItem}, with id not set.
@@ -13,6 +25,6 @@ public record TodoCreateCommand(String title, boolean completed, Long order) {
      * @return a {@link TodoItem} representation of this command
      */
     public TodoItem toTodoItem() {
-        return new TodoItem(0, title, completed, order);
+        return new TodoItem(0, title, completed, order, null, list);
     }
 }
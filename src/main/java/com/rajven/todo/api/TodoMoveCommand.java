@@ -0,0 +1,25 @@
+package com.rajven.todo.api;
+
+/**
+ * Used to move a {@link com.rajven.todo.db.TodoItem} right before or right after another item on the same list.
+ * Exactly one of the two is given.
+ *
+ * @param before the id of the item to move the item before
+ * @param after  the id of the item to move the item after
+ */
+public record TodoMoveCommand(Long before, Long after) {
+
+    /**
+     * @return the id of the item to move the item next to
+     */
+    public long target() {
+        return before != null ? before : after;
+    }
+
+    /**
+     * @return true if the item is moved before the target, false if it's moved after it
+     */
+    public boolean isBefore() {
+        return before != null;
+    }
+}
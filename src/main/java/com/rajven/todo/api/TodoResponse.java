@@ -1,9 +1,10 @@
 package com.rajven.todo.api;
 
-import java.net.URI;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * API response object, i.e. a DTO.
  */
-public record TodoResponse(long id, String title, boolean completed, Long order, URI url) {
+@JsonSerialize(using = TodoResponseSerializer.class)
+public record TodoResponse(long id, String title, boolean completed, Long order, String list, String url) {
 }
@@ -0,0 +1,55 @@
+package com.rajven.todo.api;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a {@link TodoResponse} field by field into the output, with pre-encoded field names and without the property
+ * introspection of the default bean serializer. Every response item goes through here, so this is on the hot path of
+ * large lists.
+ */
+public class TodoResponseSerializer extends StdSerializer<TodoResponse> {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString COMPLETED = new SerializedString("completed");
+    private static final SerializedString ORDER = new SerializedString("order");
+    private static final SerializedString LIST = new SerializedString("list");
+    private static final SerializedString URL = new SerializedString("url");
+
+    public TodoResponseSerializer() {
+        super(TodoResponse.class);
+    }
+
+    @Override
+    public void serialize(TodoResponse todoResponse, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(todoResponse);
+
+        generator.writeFieldName(ID);
+        generator.writeNumber(todoResponse.id());
+
+        generator.writeFieldName(TITLE);
+        generator.writeString(todoResponse.title());
+
+        generator.writeFieldName(COMPLETED);
+        generator.writeBoolean(todoResponse.completed());
+
+        generator.writeFieldName(ORDER);
+        if (todoResponse.order() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(todoResponse.order());
+        }
+
+        generator.writeFieldName(LIST);
+        generator.writeString(todoResponse.list());
+
+        generator.writeFieldName(URL);
+        generator.writeString(todoResponse.url());
+
+        generator.writeEndObject();
+    }
+}
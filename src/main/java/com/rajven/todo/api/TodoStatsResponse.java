@@ -0,0 +1,7 @@
+package com.rajven.todo.api;
+
+/**
+ * API response object of the item statistics, i.e. a DTO.
+ */
+public record TodoStatsResponse(long total, long completed, long active) {
+}
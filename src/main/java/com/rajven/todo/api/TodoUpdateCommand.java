@@ -12,6 +12,19 @@ public class TodoUpdateCommand {
     private JsonNullable<Boolean> completed = JsonNullable.undefined();
     private JsonNullable<Long> order = JsonNullable.undefined();
 
+    /**
+     * Creates a command that only changes the order.
+     *
+     * @param order the new order
+     * @return      the command
+     */
+    public static TodoUpdateCommand withOrder(long order) {
+        var updateCmd = new TodoUpdateCommand();
+        updateCmd.setOrder(JsonNullable.of(order));
+
+        return updateCmd;
+    }
+
     /**
      * Checks if this command contains any updates, i.e. if any of the wrapped property is non-null.
      *
@@ -20,4 +33,20 @@ public class TodoUpdateCommand {
     public boolean hasAnyUpdate() {
         return title.isPresent() || completed.isPresent() || order.isPresent();
     }
+
+    /**
+     * Merges a later command into this one. Every property that is set in {@code later} wins, including explicit nulls,
+     * while properties that {@code later} leaves undefined keep the value from this command.
+     *
+     * @param later the command that was issued after this one
+     * @return      a new command containing the updates of both commands
+     */
+    public TodoUpdateCommand mergedWith(TodoUpdateCommand later) {
+        var merged = new TodoUpdateCommand();
+        merged.setTitle(later.getTitle().isPresent() ? later.getTitle() : title);
+        merged.setCompleted(later.getCompleted().isPresent() ? later.getCompleted() : completed);
+        merged.setOrder(later.getOrder().isPresent() ? later.getOrder() : order);
+
+        return merged;
+    }
 }
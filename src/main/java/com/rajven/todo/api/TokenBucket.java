@@ -0,0 +1,51 @@
+package com.rajven.todo.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate limit that allows a number of requests per second on average, and a burst of requests at once after being idle.
+ * <p>
+ * Rather than a count of tokens that is refilled over time, the bucket keeps the one point in time at which it will be
+ * full again (the generic cell rate algorithm). Taking a token moves that point one interval ahead, and is refused when
+ * it would end up more than a burst of intervals ahead of now. That single value is updated with compare-and-set, so
+ * the bucket is shared between threads without locking.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param rate  the requests per second on average
+     * @param burst the requests at once after being idle, at least 1
+     * @param now   the current {@link System#nanoTime()}, the bucket starts full
+     */
+    TokenBucket(double rate, int burst, long now) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burstNanos = intervalNanos * Math.max(burst, 1);
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return    0 if a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    long tryTake(long now) {
+        while (true) {
+            var current = fullAt.get();
+            // nanoTime may be negative, so times are only ever compared by their difference
+            var next = (current - now > 0 ? current : now) + intervalNanos;
+            var ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
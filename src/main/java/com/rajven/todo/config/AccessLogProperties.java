@@ -0,0 +1,22 @@
+package com.rajven.todo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the access log, which is written asynchronously to the {@code com.rajven.todo.access} logger.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.access-log")
+public class AccessLogProperties {
+
+    /**
+     * Whether requests are written to the access log at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The fraction of successful requests that are logged, between 0 and 1. Requests that fail are always logged.
+     */
+    private double sampleRate = 0.01;
+}
@@ -0,0 +1,118 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for admission control, which turns requests away before they queue up behind a slow database. Every client
+ * has a rate limit per endpoint, answered with 429 when it's used up, and every endpoint has a limit on the requests it
+ * handles at once, answered with 503 when it's reached. The concurrency limits shrink while the repository is slow and
+ * grow back while it's fast.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether requests are admitted only within the limits. Without it every request is handled. Off by default, since
+     * behind a proxy or router every request comes from the proxy's address, and all clients would share one rate limit
+     * until {@link #clientHeader} is set.
+     */
+    private boolean enabled;
+
+    /**
+     * A request header that identifies the client, like {@code X-Forwarded-For} behind a proxy. Proxies append to it, and
+     * what comes before is whatever the client sent, so the value that the outermost of the {@link #trustedProxies}
+     * appended is used, which with one proxy is the last value. Unset, or for requests without it, clients are told apart
+     * by their address. Also tells clients apart for reading their own writes from the primary database.
+     */
+    private String clientHeader;
+
+    /**
+     * How many proxies in front of the application append to the {@link #clientHeader}, like a load balancer and a router
+     * behind it. The client is the value that many places from the end, so values a client sends itself are never used.
+     */
+    private int trustedProxies = 1;
+
+    /**
+     * How long clients are told to wait before trying again when a concurrency limit is reached.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * The average repository call latency above which the concurrency limits shrink.
+     */
+    private Duration latencyThreshold = Duration.ofMillis(100);
+
+    /**
+     * How often the concurrency limits are adjusted, to the repository latency since the last adjustment.
+     */
+    private Duration adjustInterval = Duration.ofSeconds(1);
+
+    /**
+     * The factor the concurrency limits are multiplied with when the repository is slow or fails. While it's not, they
+     * grow by one per adjustment, if they were reached.
+     */
+    private double backoff = 0.9;
+
+    /**
+     * The maximum number of clients whose rate limits are tracked, the clients that were idle the longest are forgotten
+     * first.
+     */
+    private int maxClients = 100_000;
+
+    /**
+     * Listing and searching items, the most expensive reads.
+     */
+    private EndpointLimits list = new EndpointLimits(20, 40, 2, 16);
+
+    /**
+     * Getting single items and the statistics, often served from a cache.
+     */
+    private EndpointLimits get = new EndpointLimits(200, 400, 4, 64);
+
+    /**
+     * Creating, updating and deleting single items.
+     */
+    private EndpointLimits write = new EndpointLimits(50, 100, 2, 32);
+
+    /**
+     * Writing many items at once, and deleting all of them.
+     */
+    private EndpointLimits bulk = new EndpointLimits(5, 20, 1, 2);
+
+    /**
+     * Streaming item changes. Streams stay open, so they only have a rate limit.
+     */
+    private EndpointLimits events = new EndpointLimits(1, 10, 0, 0);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EndpointLimits {
+
+        /**
+         * Requests per second a client may make on average, 0 for no limit.
+         */
+        private double rate;
+
+        /**
+         * Requests a client may make at once after being idle, on top of the average rate.
+         */
+        private int burst;
+
+        /**
+         * The lowest the concurrency limit shrinks to.
+         */
+        private int minConcurrency;
+
+        /**
+         * The limit on requests handled at once, which is also where it starts, 0 for no limit.
+         */
+        private int maxConcurrency;
+    }
+}
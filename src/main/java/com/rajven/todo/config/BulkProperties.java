@@ -0,0 +1,37 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the bulk endpoints that write many todo items per request.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.bulk")
+public class BulkProperties {
+
+    /**
+     * How many items are written to the database per batched statement.
+     * At most one batch is read ahead of the one being written, which bounds the memory used by a large upload.
+     */
+    private int batchSize = 100;
+
+    /**
+     * The maximum number of items a single bulk update request may change, since all of them are updated in one transaction.
+     */
+    private int maxUpdates = 1000;
+
+    /**
+     * How many items are deleted per statement when deleting the items that match a filter. Every chunk is a short
+     * transaction of its own, so locks are held briefly and the write-ahead log is written in small steps.
+     */
+    private int deleteChunkSize = 1000;
+
+    /**
+     * How long to wait between two chunks when deleting the items that match a filter, to leave room for other writes
+     * and for replication to catch up.
+     */
+    private Duration deletePause = Duration.ofMillis(100);
+}
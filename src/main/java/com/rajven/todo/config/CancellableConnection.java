@@ -0,0 +1,182 @@
+package com.rajven.todo.config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A pooled connection that remembers when a statement was cancelled while it was running because its request was
+ * {@link RequestDeadline abandoned}, and has the {@link StatementCanceller} cancel it on the database before the
+ * connection is rolled back or released. Statements cancelled for other reasons, like taking only the first row, are
+ * left to complete.
+ */
+final class CancellableConnection implements Connection, Wrapped<Connection> {
+    private final Connection delegate;
+    private final int backendPid;
+    private final StatementCanceller canceller;
+    private final AtomicBoolean abandoned = new AtomicBoolean();
+
+    CancellableConnection(Connection delegate, int backendPid, StatementCanceller canceller) {
+        this.delegate = delegate;
+        this.backendPid = backendPid;
+        this.canceller = canceller;
+    }
+
+    @Override
+    public Statement createStatement(String sql) {
+        return new CancellableStatement(delegate.createStatement(sql));
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransaction() {
+        return cancelAbandoned().then(Mono.from(delegate.rollbackTransaction()));
+    }
+
+    @Override
+    public Publisher<Void> close() {
+        return cancelAbandoned().then(Mono.from(delegate.close()));
+    }
+
+    @Override
+    public Publisher<Void> beginTransaction() {
+        return delegate.beginTransaction();
+    }
+
+    @Override
+    public Publisher<Void> commitTransaction() {
+        return delegate.commitTransaction();
+    }
+
+    @Override
+    public Batch createBatch() {
+        return delegate.createBatch();
+    }
+
+    @Override
+    public Publisher<Void> createSavepoint(String name) {
+        return delegate.createSavepoint(name);
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return delegate.isAutoCommit();
+    }
+
+    @Override
+    public ConnectionMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public IsolationLevel getTransactionIsolationLevel() {
+        return delegate.getTransactionIsolationLevel();
+    }
+
+    @Override
+    public Publisher<Void> releaseSavepoint(String name) {
+        return delegate.releaseSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+        return delegate.rollbackTransactionToSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> setAutoCommit(boolean autoCommit) {
+        return delegate.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+        return delegate.setTransactionIsolationLevel(isolationLevel);
+    }
+
+    @Override
+    public Publisher<Boolean> validate(ValidationDepth depth) {
+        return delegate.validate(depth);
+    }
+
+    @Override
+    public Connection unwrap() {
+        return delegate;
+    }
+
+    private Mono<Void> cancelAbandoned() {
+        return Mono.defer(() -> abandoned.getAndSet(false) ? canceller.cancel(backendPid) : Mono.empty());
+    }
+
+    private final class CancellableStatement implements Statement {
+        private final Statement statement;
+
+        CancellableStatement(Statement statement) {
+            this.statement = statement;
+        }
+
+        // The results of a statement complete once it's done on the database, so a cancellation before that leaves it running
+        @Override
+        public Publisher<Result> execute() {
+            return Flux.deferContextual(context -> {
+                var deadline = RequestDeadline.from(context);
+                Flux<Result> results = Flux.from(statement.execute());
+                return deadline == null ? results : results.doOnCancel(() -> {
+                    if (deadline.isAbandoned()) {
+                        abandoned.set(true);
+                    }
+                });
+            });
+        }
+
+        @Override
+        public Statement add() {
+            statement.add();
+            return this;
+        }
+
+        @Override
+        public Statement bind(int index, Object value) {
+            statement.bind(index, value);
+            return this;
+        }
+
+        @Override
+        public Statement bind(String name, Object value) {
+            statement.bind(name, value);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(int index, Class<?> type) {
+            statement.bindNull(index, type);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(String name, Class<?> type) {
+            statement.bindNull(name, type);
+            return this;
+        }
+
+        @Override
+        public Statement returnGeneratedValues(String... columns) {
+            statement.returnGeneratedValues(columns);
+            return this;
+        }
+
+        @Override
+        public Statement fetchSize(int rows) {
+            statement.fetchSize(rows);
+            return this;
+        }
+    }
+}
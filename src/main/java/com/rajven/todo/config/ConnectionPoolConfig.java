@@ -0,0 +1,121 @@
+package com.rajven.todo.config;
+
+import java.util.ArrayList;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+public class ConnectionPoolConfig {
+    private static final String POOL_NAME = "todo";
+    private static final String REPLICA_POOL_NAME = "todo-replica";
+    private static final String SHARD_POOL_NAME = "todo-shard-%d";
+    private static final String SHARD_POOL_METRICS_NAME = "shard%dConnectionFactory";
+    // Spring Boot tags the pool gauges with the bean name, the acquire timer uses the same tag so they can be correlated
+    private static final String POOL_METRICS_NAME = "connectionFactory";
+    private static final String POSTGRES_DATABASE_NAME = "PostgreSQL";
+
+    // Replaces the pool Spring Boot would create from spring.r2dbc.*, with the same settings, so that metrics, warm-up and
+    // statement cancellation are under our control
+    @Bean(destroyMethod = "dispose")
+    @Primary
+    public ConnectionPool connectionFactory(R2dbcProperties r2dbcProperties, DbPoolProperties poolProperties, MeterRegistry meterRegistry) {
+        return pool(POOL_NAME, POOL_METRICS_NAME, r2dbcProperties.getUrl(), r2dbcProperties.getUsername(), r2dbcProperties.getPassword(),
+            r2dbcProperties, poolProperties, meterRegistry);
+    }
+
+    // Only the reads of the repository that may lag behind use it, everything else gets the primary one
+    @Bean(name = Constants.REPLICA_CONNECTION_FACTORY, destroyMethod = "dispose")
+    @ConditionalOnProperty(prefix = "todo.db.replica", name = "url")
+    public ConnectionPool replicaConnectionFactory(R2dbcProperties r2dbcProperties, ReplicaProperties replicaProperties,
+                                                   DbPoolProperties poolProperties, MeterRegistry meterRegistry) {
+        return pool(REPLICA_POOL_NAME, Constants.REPLICA_CONNECTION_FACTORY, replicaProperties.getUrl(),
+            replicaProperties.getUsername() != null ? replicaProperties.getUsername() : r2dbcProperties.getUsername(),
+            replicaProperties.getPassword() != null ? replicaProperties.getPassword() : r2dbcProperties.getPassword(),
+            r2dbcProperties, poolProperties, meterRegistry);
+    }
+
+    // The pools are no beans, so nothing that takes a connection factory picks them up, which is also why their metrics are bound here
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(prefix = "todo.db.sharding", name = "shards[0].url")
+    public ShardConnectionFactories shardConnectionFactories(R2dbcProperties r2dbcProperties, ShardingProperties shardingProperties,
+                                                             DbPoolProperties poolProperties, MeterRegistry meterRegistry) {
+        var pools = new ArrayList<ConnectionPool>();
+        var shards = shardingProperties.getShards();
+        for (int i = 0; i < shards.size(); i++) {
+            // The first shard is the primary database
+            var shard = shards.get(i);
+            var metricsName = SHARD_POOL_METRICS_NAME.formatted(i + 1);
+            var pool = pool(SHARD_POOL_NAME.formatted(i + 1), metricsName, shard.getUrl(),
+                shard.getUsername() != null ? shard.getUsername() : r2dbcProperties.getUsername(),
+                shard.getPassword() != null ? shard.getPassword() : r2dbcProperties.getPassword(),
+                r2dbcProperties, poolProperties, meterRegistry);
+            new ConnectionPoolMetrics(pool, metricsName, Tags.empty()).bindTo(meterRegistry);
+            pools.add(pool);
+        }
+
+        return new ShardConnectionFactories(pools);
+    }
+
+    /**
+     * Opens and validates the initial connections of every pool once all beans are created, before the web server starts.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "todo.db.pool", name = "warm-up", matchIfMissing = true)
+    ConnectionPoolWarmUp connectionPoolWarmUp(ObjectProvider<ConnectionPool> pools, ObjectProvider<ShardConnectionFactories> shardConnectionFactories,
+                                              R2dbcProperties r2dbcProperties) {
+        var allPools = new ArrayList<ConnectionPool>(pools.stream().toList());
+        shardConnectionFactories.ifAvailable(shards -> allPools.addAll(shards.pools()));
+
+        return new ConnectionPoolWarmUp(allPools, r2dbcProperties.getPool().getInitialSize());
+    }
+
+    static ConnectionPool pool(String name, String metricsName, String url, String username, String password,
+                               R2dbcProperties r2dbcProperties, DbPoolProperties poolProperties, MeterRegistry meterRegistry) {
+        if (!r2dbcProperties.getPool().isEnabled()) {
+            throw new IllegalStateException("spring.r2dbc.pool.enabled = false is not supported, the connection pool " + name
+                + " is needed for its metrics and to cancel the statements of abandoned requests");
+        }
+
+        var connectionFactory = ConnectionFactoryBuilder.withUrl(url)
+            .username(username)
+            .password(password)
+            .configure(options -> r2dbcProperties.getProperties().forEach((key, value) -> options.option(Option.valueOf(key), value)))
+            .build();
+
+        // Applies spring.r2dbc.pool.* like Spring Boot does for the pool it creates
+        var pool = r2dbcProperties.getPool();
+        var configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+            .name(name);
+        var map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(pool.getInitialSize()).to(configuration::initialSize);
+        map.from(pool.getMaxSize()).to(configuration::maxSize);
+        map.from(pool.getMaxIdleTime()).to(configuration::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(configuration::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(configuration::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(configuration::maxCreateConnectionTime);
+        map.from(pool.getValidationQuery()).whenHasText().to(configuration::validationQuery);
+        map.from(pool.getValidationDepth()).to(configuration::validationDepth);
+
+        // Statements are only cancelled on PostgreSQL, the other databases are only used for development and tests
+        var canceller = poolProperties.isCancelAbandonedStatements() && POSTGRES_DATABASE_NAME.equals(connectionFactory.getMetadata().getName())
+            ? new StatementCanceller(connectionFactory, poolProperties.getStatementTimeout(), meterRegistry)
+            : null;
+
+        return new MeteredConnectionPool(configuration.build(), metricsName, meterRegistry, canceller);
+    }
+}
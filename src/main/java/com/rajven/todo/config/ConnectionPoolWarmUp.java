@@ -0,0 +1,79 @@
+package com.rajven.todo.config;
+
+import static io.r2dbc.spi.ValidationDepth.REMOTE;
+
+import java.time.Duration;
+import java.util.List;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opens the initial connections of the connection pools and checks them against the database, so the first requests
+ * after a deploy don't pay for connection setup. Runs once all beans are created and before the web server starts, for
+ * all pools at once, and fails the startup if a database can't be reached.
+ */
+@Log4j2
+class ConnectionPoolWarmUp implements SmartLifecycle {
+    private static final Duration WARM_UP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<ConnectionPool> pools;
+    private final int initialSize;
+    private volatile boolean running;
+
+    /**
+     * @param pools       the pools to warm up
+     * @param initialSize the number of connections to open in every pool
+     */
+    ConnectionPoolWarmUp(List<ConnectionPool> pools, int initialSize) {
+        this.pools = pools;
+        this.initialSize = initialSize;
+    }
+
+    @Override
+    public void start() {
+        var valid = Flux.fromIterable(pools)
+            .flatMap(this::warmUp)
+            .all(Boolean::booleanValue)
+            .block(WARM_UP_TIMEOUT);
+
+        if (!Boolean.TRUE.equals(valid)) {
+            throw new IllegalStateException("Connections opened during warm-up of the connection pools failed validation");
+        }
+
+        running = true;
+        log.info("Warmed up {} connection pools with {} validated connections each", pools.size(), initialSize);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server, which starts in one of the last phases
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private Mono<Boolean> warmUp(ConnectionPool pool) {
+        return pool.warmup()
+            .thenMany(Flux.range(0, initialSize).flatMap(i -> pool.create()))
+            .collectList()
+            .flatMap(connections -> Flux.fromIterable(connections)
+                .flatMap(connection -> connection.validate(REMOTE))
+                .all(Boolean::booleanValue)
+                .flatMap(allValid -> Flux.fromIterable(connections)
+                    .flatMap(Connection::close)
+                    .then(Mono.just(allValid))));
+    }
+}
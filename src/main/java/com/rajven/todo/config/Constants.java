@@ -2,4 +2,6 @@ package com.rajven.todo.config;
 
 public class Constants {
     public static final String API_PATH = "/api/todo";
+    public static final String IN_MEMORY_PROFILE = "in-memory";
+    public static final String REPLICA_CONNECTION_FACTORY = "replicaConnectionFactory";
 }
@@ -1,23 +1,43 @@
 package com.rajven.todo.config;
 
 import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
-import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
 
 @Configuration
-@Profile("!test")
+@Profile("!test & !" + Constants.IN_MEMORY_PROFILE)
 public class DbConfig {
 
-    // Spring-R2DBC does not automatically load schema.sql, so we have to bootstrap it ourselves
+    // Spring-R2DBC does not automatically load schema.sql, so we have to bootstrap it ourselves.
+    // Nothing depends on the initializer, so it has to be created eagerly even with lazy initialization.
     @Bean
-    ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory) {
+    @Lazy(false)
+    ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory, SchemaProperties schemaProperties) {
+        return schemaInitializer(connectionFactory, schemaProperties);
+    }
+
+    // Every shard has the same schema as the first one, the primary database
+    @Bean
+    @Lazy(false)
+    @ConditionalOnProperty(prefix = "todo.db.sharding", name = "shards[0].url")
+    InitializingBean shardInitializer(ShardConnectionFactories shardConnectionFactories, SchemaProperties schemaProperties) {
+        return () -> {
+            for (var pool : shardConnectionFactories.pools()) {
+                schemaInitializer(pool, schemaProperties).afterPropertiesSet();
+            }
+        };
+    }
+
+    private static ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory, SchemaProperties schemaProperties) {
         var initializer = new ConnectionFactoryInitializer();
         initializer.setConnectionFactory(connectionFactory);
-        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
+        initializer.setDatabasePopulator(new SchemaPopulator(new ClassPathResource("schema.sql"), schemaProperties.isAlwaysRun()));
 
         return initializer;
     }
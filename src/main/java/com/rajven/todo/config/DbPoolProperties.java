@@ -0,0 +1,34 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Warm-up of the R2DBC connection pools, and cancelling the statements that run on their connections. Their sizes and
+ * timeouts are Spring Boot's {@code spring.r2dbc.pool.*} settings, which apply to every pool.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.db.pool")
+public class DbPoolProperties {
+
+    /**
+     * Whether to open and validate {@code spring.r2dbc.pool.initial-size} connections of every pool at startup, before
+     * the application accepts requests.
+     */
+    private boolean warmUp = true;
+
+    /**
+     * Whether statements still running on PostgreSQL when their request is given up are cancelled there, instead of
+     * keeping their connection busy until they complete.
+     */
+    private boolean cancelAbandonedStatements = true;
+
+    /**
+     * The longest a statement may run on PostgreSQL before the database cancels it, or 0 for no limit. A backstop for
+     * statements that outlive their request without being cancelled, so it's well above the longest request deadline and
+     * what the schema script takes.
+     */
+    private Duration statementTimeout = Duration.ofMinutes(5);
+}
@@ -0,0 +1,54 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for request deadlines. Every endpoint has a time budget for the first byte of its response, after which the
+ * request is answered with 504 and the work still being done for it, including its statements on the database, is
+ * cancelled. Responses that already started streaming aren't cut off. Clients may ask for a shorter deadline with a
+ * header.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.deadline")
+public class DeadlineProperties {
+
+    /**
+     * Whether requests are given up after their deadline. Without it requests take as long as they take, but are still
+     * cancelled when the client goes away.
+     */
+    private boolean enabled = true;
+
+    /**
+     * A request header with the milliseconds the client is willing to wait, used when it's shorter than the budget of
+     * the endpoint.
+     */
+    private String header = "X-Request-Timeout";
+
+    /**
+     * The budget for listing and searching items.
+     */
+    private Duration list = Duration.ofSeconds(5);
+
+    /**
+     * The budget for getting single items and the statistics.
+     */
+    private Duration get = Duration.ofSeconds(2);
+
+    /**
+     * The budget for creating, updating and deleting single items.
+     */
+    private Duration write = Duration.ofSeconds(5);
+
+    /**
+     * The budget for writing many items at once, and deleting all of them.
+     */
+    private Duration bulk = Duration.ofMinutes(1);
+
+    /**
+     * The budget for streaming item changes. Streams stay open for as long as the client wants, so 0 for none.
+     */
+    private Duration events = Duration.ZERO;
+}
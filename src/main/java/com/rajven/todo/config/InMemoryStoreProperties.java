@@ -0,0 +1,31 @@
+package com.rajven.todo.config;
+
+import java.nio.file.Path;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for the in-memory storage engine used with the {@code in-memory} profile.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.in-memory")
+public class InMemoryStoreProperties {
+
+    /**
+     * The append-only log that makes writes durable. It is replayed and compacted on startup.
+     */
+    private Path logPath = Path.of("data", "todo.log");
+
+    /**
+     * How much of the log file is mapped up front, the mapping grows when it fills up.
+     */
+    private DataSize initialLogSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Whether every write is forced to disk before it completes. Without it writes survive a crash of the process,
+     * but not of the machine.
+     */
+    private boolean forceOnWrite = false;
+}
@@ -0,0 +1,29 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the read-through cache in front of single item lookups.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.cache")
+public class ItemCacheProperties {
+
+    /**
+     * Whether item lookups by id are cached at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The maximum number of items kept in the cache before the least valuable ones are evicted.
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * How long an item stays cached after it was loaded, which also bounds how stale a cached item can be.
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+}
@@ -0,0 +1,60 @@
+package com.rajven.todo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ConnectionPool} that records how long it takes to acquire a connection as the {@code r2dbc.pool.acquire} timer.
+ * The gauges for acquired, idle and pending connections are bound by Spring Boot for every {@link ConnectionPool} bean.
+ * <p>
+ * With a {@link StatementCanceller} the connections are handed out as {@link CancellableConnection}s, so that the
+ * statements of abandoned requests don't keep them busy after they are released.
+ */
+public class MeteredConnectionPool extends ConnectionPool {
+    private final Timer acquireSuccessTimer;
+    private final Timer acquireFailureTimer;
+    private final StatementCanceller canceller;
+
+    public MeteredConnectionPool(ConnectionPoolConfiguration configuration, String name, MeterRegistry meterRegistry) {
+        this(configuration, name, meterRegistry, null);
+    }
+
+    MeteredConnectionPool(ConnectionPoolConfiguration configuration, String name, MeterRegistry meterRegistry, StatementCanceller canceller) {
+        super(configuration);
+        this.canceller = canceller;
+        this.acquireSuccessTimer = acquireTimer(name, "success", meterRegistry);
+        this.acquireFailureTimer = acquireTimer(name, "failure", meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            var sample = Timer.start();
+            var acquired = canceller != null ? super.create().flatMap(canceller::wrap) : super.create();
+            return acquired
+                .doOnSuccess(connection -> sample.stop(acquireSuccessTimer))
+                .doOnError(error -> sample.stop(acquireFailureTimer));
+        });
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (canceller != null) {
+            canceller.close();
+        }
+    }
+
+    private static Timer acquireTimer(String name, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("r2dbc.pool.acquire")
+            .description("Time to acquire a connection from the pool")
+            .tag("name", name)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
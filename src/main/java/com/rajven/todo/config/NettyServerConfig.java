@@ -0,0 +1,109 @@
+package com.rajven.todo.config;
+
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+@Configuration
+@Log4j2
+public class NettyServerConfig {
+    private static final String EVENT_LOOP_PREFIX = "todo-http";
+
+    // Applied after Spring Boot's own server.* settings, so these win where both set the same thing
+    @Bean
+    public NettyServerCustomizer todoServerCustomizer(NettyServerProperties properties, ServerLoopResources loopResources) {
+        var allocator = allocator(properties.getBufferAllocator());
+        var minResponseSize = properties.getCompression().getMinResponseSize().toBytes();
+        log.info("Serving with {} event loop threads, {} buffers, compression {}, h2c {}",
+            properties.getEventLoopThreads() != null ? properties.getEventLoopThreads() : "default",
+            properties.getBufferAllocator(), properties.getCompression().isEnabled() ? "on" : "off", properties.isH2c() ? "on" : "off");
+
+        return httpServer -> {
+            var server = httpServer
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.ALLOCATOR, allocator);
+
+            if (loopResources.loops() != null) {
+                server = server.runOn(loopResources.loops());
+            }
+
+            if (properties.getCompression().isEnabled()) {
+                server = server.compress((request, response) -> isCompressible(response, minResponseSize));
+            }
+
+            // Reactor Netty 1.0 fails every connection when an idle timeout is combined with h2c, it looks for the HTTP/1.1
+            // codec that the h2c upgrade handler replaces
+            if (properties.isH2c()) {
+                server = server.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+            } else {
+                server = server.idleTimeout(properties.getIdleTimeout());
+            }
+
+            return server;
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public ServerLoopResources serverLoopResources(NettyServerProperties properties) {
+        return new ServerLoopResources(properties.getEventLoopThreads() != null
+            ? LoopResources.create(EVENT_LOOP_PREFIX, 1, properties.getEventLoopThreads(), true)
+            : null);
+    }
+
+    // Checked once the headers are about to be sent, so the content type and length of the response are known
+    static boolean isCompressible(HttpServerResponse response, long minResponseSize) {
+        var headers = response.responseHeaders();
+        var contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+        if (contentType != null && isStream(MediaType.parseMediaType(contentType))) {
+            return false;
+        }
+
+        var contentLength = headers.get(HttpHeaderNames.CONTENT_LENGTH);
+        return contentLength == null || Long.parseLong(contentLength) >= minResponseSize;
+    }
+
+    private static boolean isStream(MediaType contentType) {
+        return TEXT_EVENT_STREAM.isCompatibleWith(contentType) || APPLICATION_NDJSON.isCompatibleWith(contentType);
+    }
+
+    // Every pooled allocator holds arenas of its own, so pooled buffers come from as few allocators as possible. Reactor
+    // Netty and the R2DBC driver already use the default one, which prefers direct buffers.
+    static ByteBufAllocator allocator(NettyServerProperties.BufferAllocator bufferAllocator) {
+        return switch (bufferAllocator) {
+            case POOLED_DIRECT -> PooledByteBufAllocator.DEFAULT;
+            case POOLED_HEAP -> PooledHeapAllocator.INSTANCE;
+            case UNPOOLED -> new UnpooledByteBufAllocator(true);
+        };
+    }
+
+    // Created on first use, and shared by every server of the application
+    private static final class PooledHeapAllocator {
+        static final ByteBufAllocator INSTANCE = new PooledByteBufAllocator(false);
+    }
+
+    /**
+     * The event loops the server runs on when their number is configured, disposed of when the application stops.
+     *
+     * @param loops the event loops, or null to run on the loops Spring Boot provides
+     */
+    public record ServerLoopResources(LoopResources loops) {
+        public void close() {
+            if (loops != null) {
+                loops.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for the Reactor Netty server that serves the API. Anything not set here keeps the Reactor Netty default.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.server")
+public class NettyServerProperties {
+
+    /**
+     * The number of event loop threads that handle connections and requests. Unset uses the Reactor Netty default of one
+     * per core, but at least four. The threads never block, so more threads than cores rarely help.
+     */
+    private Integer eventLoopThreads;
+
+    /**
+     * How the buffers that requests are read into and responses are written from are allocated.
+     */
+    private BufferAllocator bufferAllocator = BufferAllocator.POOLED_DIRECT;
+
+    /**
+     * How long a kept-alive connection may wait for its next request before it's closed. Not applied with h2c, which
+     * Reactor Netty can't combine with an idle timeout.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Whether HTTP/2 over cleartext (h2c) is accepted next to HTTP/1.1, for clients that upgrade or start with the HTTP/2
+     * preface. Meant for running behind a proxy that terminates TLS, many requests then share one connection.
+     */
+    private boolean h2c = false;
+
+    private Compression compression = new Compression();
+
+    @Data
+    public static class Compression {
+
+        /**
+         * Whether responses are gzip or deflate compressed for clients that accept it. Event streams and NDJSON streams are
+         * never compressed, the compressor would hold back every line until it has enough to compress. Compressing costs
+         * more CPU time than it saves when the network is fast, so it's off by default.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Responses that are known to be smaller are not compressed, it would cost more than it saves. Responses of unknown
+         * size, like the item list, are always compressed.
+         */
+        private DataSize minResponseSize = DataSize.ofKilobytes(2);
+    }
+
+    public enum BufferAllocator {
+        /** Pooled buffers outside the heap, that are written to sockets without a copy. */
+        POOLED_DIRECT,
+        /** Pooled buffers on the heap. */
+        POOLED_HEAP,
+        /** A new buffer for every read and write. */
+        UNPOOLED
+    }
+}
@@ -0,0 +1,17 @@
+package com.rajven.todo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits applied to paginated list requests.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.pagination")
+public class PaginationProperties {
+
+    /**
+     * The largest page size a client may request with the {@code limit} parameter.
+     */
+    private int maxLimit = 1000;
+}
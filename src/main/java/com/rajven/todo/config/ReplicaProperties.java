@@ -0,0 +1,38 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for a read-only replica of the database. Reads that may lag behind the latest writes, like listing and
+ * getting items, go to the replica, everything else goes to the primary. Its connection pool is sized like the one of
+ * the primary.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.db.replica")
+public class ReplicaProperties {
+
+    /**
+     * The R2DBC URL of the replica. Unset, everything is read from the primary.
+     */
+    private String url;
+
+    /**
+     * The user to log in to the replica as, the one of the primary when unset.
+     */
+    private String username;
+
+    /**
+     * The password to log in to the replica with, the one of the primary when unset.
+     */
+    private String password;
+
+    /**
+     * How long a client reads from the primary after each of its writes, so it sees them even while the replica lags
+     * behind. Clients are told apart like for admission control, and only by the instance they wrote through. 0 for
+     * never.
+     */
+    private Duration stickyWindow = Duration.ofSeconds(2);
+}
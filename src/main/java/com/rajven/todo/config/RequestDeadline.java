@@ -0,0 +1,39 @@
+package com.rajven.todo.config;
+
+import reactor.util.context.ContextView;
+
+/**
+ * The deadline of the request a reactive chain is handling, put in its subscriber context. Once the request is given up,
+ * because the deadline passed or the client went away, statements it still has running on the database are cancelled
+ * there too, instead of being left to finish for nobody.
+ */
+public final class RequestDeadline {
+    private static final Class<RequestDeadline> CONTEXT_KEY = RequestDeadline.class;
+
+    private volatile boolean abandoned;
+
+    /**
+     * @return the deadline of the request a chain with the context is handling, or {@code null} if it has none
+     */
+    public static RequestDeadline from(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * @return the key to put the deadline in the subscriber context with
+     */
+    public static Class<RequestDeadline> contextKey() {
+        return CONTEXT_KEY;
+    }
+
+    /**
+     * Marks the request as given up. Called before its chain is cancelled, so the statements it cancels can tell.
+     */
+    public void abandon() {
+        abandoned = true;
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rajven.todo.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+import org.springframework.r2dbc.connection.init.DatabasePopulator;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the schema script only when it changed since it last ran, which is recorded as a hash of the script in the
+ * {@code todo_schema} table.
+ * <p>
+ * The script is idempotent, but running it is not free: every {@code ALTER TABLE} takes an exclusive lock on the table
+ * even when there is nothing to change, so it waits for running queries and blocks all queries behind it, and the
+ * statements add round trips to every start. A script that changed is run again as a whole, and so is a script without
+ * a recorded hash, e.g. on a new database. The table of the hash is created before it's read, so that a first start
+ * doesn't fail a select, which the database would log as an error.
+ */
+@Log4j2
+class SchemaPopulator implements DatabasePopulator {
+    private static final String SELECT_HASH_SQL = "SELECT hash FROM todo_schema";
+    private static final String CREATE_HASH_TABLE_SQL = "CREATE TABLE IF NOT EXISTS todo_schema (hash VARCHAR(64) NOT NULL)";
+    private static final String DELETE_HASH_SQL = "DELETE FROM todo_schema";
+    private static final String INSERT_HASH_SQL = "INSERT INTO todo_schema (hash) VALUES ($1)";
+
+    private final Resource script;
+    private final boolean alwaysRun;
+
+    /**
+     * @param script    the schema script
+     * @param alwaysRun whether to run the script even when it did not change
+     */
+    SchemaPopulator(Resource script, boolean alwaysRun) {
+        this.script = script;
+        this.alwaysRun = alwaysRun;
+    }
+
+    @Override
+    public Mono<Void> populate(Connection connection) {
+        var hash = hash(script);
+
+        return appliedHash(connection)
+            .map(appliedHash -> !alwaysRun && appliedHash.equals(hash))
+            .defaultIfEmpty(false)
+            .flatMap(unchanged -> {
+                if (unchanged) {
+                    log.info("Skipping {}, it did not change since it was last run", script.getFilename());
+                    return Mono.empty();
+                }
+
+                return new ResourceDatabasePopulator(script).populate(connection)
+                    .then(execute(connection.createStatement(DELETE_HASH_SQL)))
+                    .then(execute(connection.createStatement(INSERT_HASH_SQL).bind(0, hash)))
+                    .doOnSuccess(done -> log.info("Ran {}", script.getFilename()));
+            });
+    }
+
+    // Empty when there is no hash yet
+    private static Mono<String> appliedHash(Connection connection) {
+        return execute(connection.createStatement(CREATE_HASH_TABLE_SQL))
+            .thenMany(Flux.from(connection.createStatement(SELECT_HASH_SQL).execute()))
+            .concatMap(result -> result.map((row, metadata) -> row.get(0, String.class)))
+            .next();
+    }
+
+    private static Mono<Void> execute(Statement statement) {
+        return Flux.from(statement.execute())
+            .concatMap(Result::getRowsUpdated)
+            .then();
+    }
+
+    private static String hash(Resource script) {
+        try (var input = script.getInputStream()) {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(input.readAllBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + script.getFilename(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.rajven.todo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for applying {@code schema.sql} to the database on startup.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.schema")
+public class SchemaProperties {
+
+    /**
+     * Whether to run the schema script on every start. By default it's only run when it changed since it was last run,
+     * so set this to restore objects that were dropped by hand.
+     */
+    private boolean alwaysRun = false;
+}
@@ -0,0 +1,23 @@
+package com.rajven.todo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits applied to full-text searches of todo titles.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.search")
+public class SearchProperties {
+
+    /**
+     * The page size of a search that has no {@code limit} parameter. The largest page size is the one of lists.
+     */
+    private int defaultLimit = 20;
+
+    /**
+     * The largest {@code offset} a client may request. All matches up to the offset have to be ranked, so deep pages
+     * get slower, and nobody reads that far into search results anyway.
+     */
+    private int maxOffset = 10_000;
+}
@@ -0,0 +1,18 @@
+package com.rajven.todo.config;
+
+import java.util.List;
+
+import io.r2dbc.pool.ConnectionPool;
+
+/**
+ * The connection pools of the shards after the first one, in the order of {@link ShardingProperties#getShards()}. The
+ * first shard uses the primary connection pool.
+ *
+ * @param pools the connection pools, the one of the second shard first
+ */
+public record ShardConnectionFactories(List<ConnectionPool> pools) {
+
+    public void dispose() {
+        pools.forEach(ConnectionPool::dispose);
+    }
+}
@@ -0,0 +1,55 @@
+package com.rajven.todo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for spreading the items over several databases by their list. The database of {@code spring.r2dbc.*} is the
+ * first shard, and the ones configured here follow it. Without any, all items are in that one database.
+ * <p>
+ * Shards are numbered by their position, and the number of its shard is part of the id of every item. Shards can only
+ * be added at the end, never removed or reordered, or the items on them can't be found anymore.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.db.sharding")
+public class ShardingProperties {
+
+    /**
+     * The databases after the first one, at most 31. Their connection pools are sized like the one of the first.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Tells this instance apart from the others in the ids it generates, from 0 to 31. Every instance needs one of its
+     * own, or two of them may generate the same id.
+     */
+    private int nodeId = 0;
+
+    /**
+     * How many points each shard has on the hash ring that assigns lists to shards. More points spread the lists more
+     * evenly.
+     */
+    private int virtualNodes = 128;
+
+    @Data
+    public static class Shard {
+
+        /**
+         * The R2DBC URL of the shard.
+         */
+        private String url;
+
+        /**
+         * The user to log in to the shard as, the one of the first shard when unset.
+         */
+        private String username;
+
+        /**
+         * The password to log in to the shard with, the one of the first shard when unset.
+         */
+        private String password;
+    }
+}
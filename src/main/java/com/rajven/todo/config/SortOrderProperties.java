@@ -0,0 +1,32 @@
+package com.rajven.todo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for moving todo items within their list, which only writes the order of the moved item as long as there is
+ * room between the orders of its new neighbours.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.sort-order")
+public class SortOrderProperties {
+
+    /**
+     * The distance between the orders of neighbouring items that moves to the start or end of a list and rebalancing aim
+     * for. Every move to the same place halves the room that is left there, so this is about 2 to the power of the number
+     * of moves to one place that fit before it has to be rebalanced.
+     */
+    private long gap = 1 << 16;
+
+    /**
+     * A move that leaves less room than this next to the moved item rebalances the items around it in the background,
+     * so that the next moves to the same place still find room.
+     */
+    private long minGap = 16;
+
+    /**
+     * How many items on either side of a crowded place are rebalanced at first. The range doubles until its items can be
+     * spread out far enough, so only as much of the list is rewritten as needed.
+     */
+    private int rebalanceWindow = 16;
+}
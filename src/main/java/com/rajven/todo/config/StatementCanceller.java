@@ -0,0 +1,146 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cancels statements on PostgreSQL whose request was {@link RequestDeadline abandoned}.
+ * <p>
+ * Cancelling the subscription to a statement doesn't stop it on the database: the driver keeps reading its results to
+ * throw them away, and the connection can't run anything else until the statement completes. So before a connection
+ * with such a statement is released or rolled back, its backend is cancelled with {@code pg_cancel_backend}, from a
+ * connection of its own since the busy one can't be used for that. Cancelling a backend that is done with the
+ * statement by then does nothing, and the connection isn't used by anyone else until it's released.
+ * <p>
+ * Statements that can't be cancelled this way, like those not run for a request, are still cancelled by PostgreSQL
+ * itself after the statement timeout, which is set on every connection together with looking up its backend.
+ * Cancellations are counted by the {@code r2dbc.statements.cancelled} counter, tagged with whether the statement was
+ * still running.
+ */
+@Log4j2
+final class StatementCanceller {
+    private static final String BACKEND_PID_SQL = "SELECT pg_backend_pid()";
+    private static final String BACKEND_PID_WITH_TIMEOUT_SQL = "SELECT pg_backend_pid(), set_config('statement_timeout', $1, false)";
+    private static final String CANCEL_SQL = "SELECT pg_cancel_backend($1)";
+
+    private final ConnectionFactory connectionFactory;
+    private final Duration statementTimeout;
+    // Keyed by the connections of the driver, which the pool hands out again and again, so their backends are looked up once
+    private final Cache<Object, Integer> backendPids = Caffeine.newBuilder().weakKeys().build();
+    private final Counter cancelled;
+    private final Counter completed;
+    private final Counter failed;
+    private Mono<Connection> cancelConnection;
+
+    /**
+     * @param connectionFactory the unpooled connections to PostgreSQL
+     * @param statementTimeout  the longest a statement may run, or 0 for no limit
+     */
+    StatementCanceller(ConnectionFactory connectionFactory, Duration statementTimeout, MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.statementTimeout = statementTimeout;
+        this.cancelled = cancellations("cancelled", meterRegistry);
+        this.completed = cancellations("completed", meterRegistry);
+        this.failed = cancellations("failed", meterRegistry);
+    }
+
+    /**
+     * Wraps a connection acquired from the pool so that the statements it runs are cancelled when their request is
+     * abandoned. The connection is closed if its backend can't be looked up.
+     */
+    Mono<Connection> wrap(Connection connection) {
+        var target = connection instanceof Wrapped<?> wrapped ? wrapped.unwrap() : connection;
+        var backendPid = backendPids.getIfPresent(target);
+        if (backendPid != null) {
+            return Mono.just(new CancellableConnection(connection, backendPid, this));
+        }
+
+        var statement = statementTimeout == null || statementTimeout.isZero()
+            ? connection.createStatement(BACKEND_PID_SQL)
+            : connection.createStatement(BACKEND_PID_WITH_TIMEOUT_SQL).bind(0, String.valueOf(statementTimeout.toMillis()));
+
+        return Flux.from(statement.execute())
+            .concatMap(result -> result.map((row, metadata) -> row.get(0, Integer.class)))
+            .last()
+            .doOnNext(pid -> backendPids.put(target, pid))
+            .<Connection>map(pid -> new CancellableConnection(connection, pid, this))
+            .onErrorResume(error -> Mono.from(connection.close()).then(Mono.error(error)));
+    }
+
+    /**
+     * Cancels what the backend is running, if anything. Never fails, the statement then just runs until it completes or
+     * times out.
+     */
+    Mono<Void> cancel(int backendPid) {
+        return Mono.defer(() -> {
+            var connection = cancelConnection();
+            return connection
+                .flatMapMany(cancelling -> cancelling.createStatement(CANCEL_SQL).bind(0, backendPid).execute())
+                .concatMap(result -> result.map((row, metadata) -> row.get(0, Boolean.class)))
+                .last(false)
+                .doOnNext(running -> (running ? cancelled : completed).increment())
+                .onErrorResume(error -> {
+                    log.warn("Could not cancel the statement of backend {}", backendPid, error);
+                    failed.increment();
+                    forget(connection);
+                    return Mono.empty();
+                })
+                .then();
+        });
+    }
+
+    void close() {
+        Mono<Connection> connection;
+        synchronized (this) {
+            connection = cancelConnection;
+            cancelConnection = null;
+        }
+
+        if (connection != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    // Opened on the first cancellation, and kept open for the next ones
+    private synchronized Mono<Connection> cancelConnection() {
+        if (cancelConnection == null) {
+            cancelConnection = Mono.<Connection>from(connectionFactory.create()).cache();
+        }
+        return cancelConnection;
+    }
+
+    // A connection that failed is opened again for the next cancellation, unless it was already
+    private void forget(Mono<Connection> connection) {
+        synchronized (this) {
+            if (cancelConnection != connection) {
+                return;
+            }
+            cancelConnection = null;
+        }
+
+        closeQuietly(connection);
+    }
+
+    private static void closeQuietly(Mono<Connection> connection) {
+        connection.flatMap(opened -> Mono.from(opened.close()))
+            .onErrorResume(error -> Mono.empty())
+            .subscribe();
+    }
+
+    private static Counter cancellations(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("r2dbc.statements.cancelled")
+            .description("Statements cancelled on the database because their request was abandoned")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the item counters behind the statistics endpoint.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.stats")
+public class StatsProperties {
+
+    /**
+     * How often the counters are replaced by a count of the items in the repository. This bounds how long they stay off
+     * after writes made on other nodes, or after concurrent writes to the same item that were counted wrongly.
+     */
+    private Duration reconcileInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,31 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the change feed that pushes created, updated and deleted todo items to clients.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.events")
+public class TodoEventsProperties {
+
+    /**
+     * How many events are buffered per subscriber that reads slower than items change. When the buffer overflows
+     * the subscriber is told to resync, that is to read the whole list again.
+     */
+    private int subscriberBufferSize = 256;
+
+    /**
+     * How often a comment is sent to idle subscribers, so proxies don't close the connection.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * The Postgres channel events are relayed through with LISTEN/NOTIFY, so that subscribers on every node get the
+     * changes made on all nodes.
+     */
+    private String channel = "todo_events";
+}
@@ -0,0 +1,30 @@
+package com.rajven.todo.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for coalescing bursts of updates to the same todo item into one write.
+ */
+@Data
+@ConfigurationProperties(prefix = "todo.update-coalescing")
+public class UpdateCoalescingProperties {
+
+    /**
+     * Whether updates of the same item are coalesced at all. Coalescing delays every update by up to the window.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How long an update waits for more updates of the same item before it is written.
+     */
+    private Duration window = Duration.ofMillis(50);
+
+    /**
+     * The maximum number of items with updates waiting at the same time. Updates of other items are written right away
+     * while the limit is reached.
+     */
+    private int maxPendingItems = 10_000;
+}
@@ -0,0 +1,339 @@
+package com.rajven.todo.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.Constants;
+import com.rajven.todo.config.InMemoryStoreProperties;
+
+/**
+ * {@link TodoRepository} that keeps all items in memory, for deployments without a database.
+ * <p>
+ * Items are kept in a concurrent skip list ordered by id, so reads never block and pages are served straight from the
+ * map. Writes are serialized, appended to a {@link TodoLog} and only then applied to the map, so every write that
+ * completed is recovered when the log is replayed on the next start. Every written item gets the next version, and the
+ * {@link TodoItemsVersion} is kept up to date with each write, so it's read without looking at the items. The same goes
+ * for the {@link TitleIndex} that titles are searched with.
+ */
+@Repository
+@Profile(Constants.IN_MEMORY_PROFILE)
+public class InMemoryTodoRepository implements TodoRepository {
+    private final ConcurrentNavigableMap<Long, TodoItem> items = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final Object writeLock = new Object();
+    private final TitleIndex titleIndex = new TitleIndex();
+    private final TodoLog todoLog;
+    private final RepositoryMetrics metrics;
+    private final boolean forceOnWrite;
+    private long versionSum;
+    private volatile TodoItemsVersion itemsVersion;
+
+    public InMemoryTodoRepository(InMemoryStoreProperties properties, RepositoryMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.forceOnWrite = properties.isForceOnWrite();
+        this.todoLog = TodoLog.open(properties.getLogPath(), properties.getInitialLogSize().toBytes(), forceOnWrite, items);
+        this.lastId.set(todoLog.sequences().lastId());
+        this.lastVersion.set(todoLog.sequences().lastVersion());
+        this.versionSum = items.values().stream().mapToLong(TodoItem::getVersion).sum();
+        this.itemsVersion = new TodoItemsVersion(items.size(), versionSum);
+        items.values().forEach(todoItem -> titleIndex.put(todoItem.getId(), todoItem.getTitle()));
+    }
+
+    @Override
+    public Flux<TodoItem> getAll(TodoQuery query) {
+        return metrics.timed("getAll", Flux.defer(() -> Flux.fromStream(select(query)))
+            .map(InMemoryTodoRepository::copy));
+    }
+
+    @Override
+    public Flux<TodoItem> getPage(TodoQuery query, int limit) {
+        return metrics.timed("getPage", Flux.defer(() -> Flux.fromStream(select(query)))
+            .take(limit)
+            .map(InMemoryTodoRepository::copy));
+    }
+
+    @Override
+    public Flux<TodoItem> getPageBefore(TodoQuery query, int limit) {
+        return metrics.timed("getPageBefore", Flux.defer(() -> Flux.fromStream(selectBefore(query)))
+            .take(limit)
+            .map(InMemoryTodoRepository::copy));
+    }
+
+    @Override
+    public Flux<TodoItem> search(TodoSearch search, long offset, int limit) {
+        return metrics.timed("search", Flux.defer(() -> Flux.fromIterable(titleIndex.search(search, offset, limit)))
+            .mapNotNull(items::get)
+            .filter(todoItem -> search.matches(todoItem.getTitle()))
+            .map(InMemoryTodoRepository::copy));
+    }
+
+    @Override
+    public Mono<TodoItemsVersion> getItemsVersion() {
+        return metrics.timed("getItemsVersion", Mono.fromSupplier(() -> itemsVersion));
+    }
+
+    @Override
+    public Mono<TodoStats> countItems() {
+        return metrics.timed("countItems", Mono.fromSupplier(() -> {
+            var completed = items.values().stream().filter(TodoItem::isCompleted).count();
+            return new TodoStats(items.size(), completed);
+        }));
+    }
+
+    @Override
+    public Mono<TodoItem> findById(long id) {
+        return metrics.timed("findById", Mono.fromSupplier(() -> copy(items.get(id))));
+    }
+
+    @Override
+    public Mono<TodoItem> create(TodoCreateCommand todoCreateCmd) {
+        return metrics.timed("create", write(() -> {
+            var todoItem = todoCreateCmd.toTodoItem();
+            todoItem.setId(lastId.incrementAndGet());
+            apply(List.of(new TodoLog.Put(todoItem)));
+
+            return copy(todoItem);
+        }));
+    }
+
+    @Override
+    public Flux<TodoItem> createAll(List<TodoCreateCommand> createCmds) {
+        return metrics.timed("createAll", write(() -> {
+            var puts = new ArrayList<TodoLog.Put>(createCmds.size());
+            for (var createCmd : createCmds) {
+                var todoItem = createCmd.toTodoItem();
+                todoItem.setId(lastId.incrementAndGet());
+                puts.add(new TodoLog.Put(todoItem));
+            }
+            apply(puts);
+
+            return puts.stream().map(put -> copy(put.item())).toList();
+        }).flatMapIterable(createdItems -> createdItems));
+    }
+
+    @Override
+    public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
+        return updateWithPrevious(id, updateCmd)
+            .map(TodoItemUpdate::updatedItem);
+    }
+
+    @Override
+    public Mono<TodoItemUpdate> updateWithPrevious(long id, TodoUpdateCommand updateCmd) {
+        return metrics.timed("update", write(() -> {
+            var todoItem = items.get(id);
+            if (todoItem == null) {
+                return null;
+            }
+
+            var updatedItem = withUpdates(todoItem, updateCmd);
+            apply(List.of(new TodoLog.Put(updatedItem)));
+
+            return new TodoItemUpdate(todoItem.isCompleted(), copy(updatedItem));
+        }));
+    }
+
+    /**
+     * The updates are written to the log as one frame, so after a crash either all of them or none of them are recovered.
+     */
+    @Override
+    public Flux<TodoItem> updateAll(Map<Long, TodoUpdateCommand> updateCmds) {
+        return metrics.timed("updateAll", write(() -> {
+            var updatedItems = new TreeMap<Long, TodoItem>();
+            for (var updateCmd : updateCmds.entrySet()) {
+                var todoItem = items.get(updateCmd.getKey());
+                if (todoItem != null) {
+                    updatedItems.put(todoItem.getId(), withUpdates(todoItem, updateCmd.getValue()));
+                }
+            }
+            apply(updatedItems.values().stream().map(TodoLog.Put::new).toList());
+
+            return updatedItems.values().stream().map(InMemoryTodoRepository::copy).toList();
+        }).flatMapIterable(updatedItems -> updatedItems));
+    }
+
+    @Override
+    public Mono<TodoItem> delete(long id) {
+        return metrics.timed("delete", write(() -> {
+            var todoItem = items.get(id);
+            if (todoItem == null) {
+                return null;
+            }
+
+            apply(List.of(new TodoLog.Delete(id)));
+            return copy(todoItem);
+        }));
+    }
+
+    /**
+     * The deletes are written to the log as one frame.
+     */
+    @Override
+    public Mono<TodoDeletedChunk> deleteChunk(TodoQuery query, int limit) {
+        return metrics.timed("deleteChunk", write(() -> {
+            // Under the write lock every selected item still matches
+            var deletedItems = select(query).limit(limit).toList();
+            apply(deletedItems.stream().map(todoItem -> new TodoLog.Delete(todoItem.getId())).toList());
+
+            var copies = deletedItems.stream().map(InMemoryTodoRepository::copy).toList();
+            return TodoDeletedChunk.of(copies, copies);
+        }));
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return metrics.timed("deleteAll", write(() -> {
+            apply(List.of(new TodoLog.Clear()));
+            return null;
+        }).then());
+    }
+
+    /**
+     * Stores the item under its own id, replacing any item with the same id. Ids assigned later are always higher.
+     *
+     * @param todoItem the item to store
+     * @return         a {@link Mono} that emits the stored item
+     */
+    public Mono<TodoItem> save(TodoItem todoItem) {
+        return write(() -> {
+            var storedItem = copy(todoItem);
+            apply(List.of(new TodoLog.Put(storedItem)));
+            lastId.accumulateAndGet(storedItem.getId(), Math::max);
+
+            return copy(storedItem);
+        });
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            todoLog.close();
+        }
+    }
+
+    // Must hold the write lock, the log has to see the writes in the same order as the map
+    private void apply(List<? extends TodoLog.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        for (var entry : entries) {
+            if (entry instanceof TodoLog.Put put) {
+                put.item().setVersion(lastVersion.incrementAndGet());
+            }
+        }
+
+        todoLog.append(entries);
+        for (var entry : entries) {
+            versionSum += versionChange(entry);
+            TodoLog.apply(entry, items);
+            index(entry);
+        }
+        itemsVersion = new TodoItemsVersion(items.size(), versionSum);
+    }
+
+    private void index(TodoLog.Entry entry) {
+        if (entry instanceof TodoLog.Put put) {
+            titleIndex.put(put.item().getId(), put.item().getTitle());
+        } else if (entry instanceof TodoLog.Delete delete) {
+            titleIndex.remove(delete.id());
+        } else if (entry instanceof TodoLog.Clear) {
+            titleIndex.clear();
+        }
+    }
+
+    private long versionChange(TodoLog.Entry entry) {
+        if (entry instanceof TodoLog.Put put) {
+            var previousItem = items.get(put.item().getId());
+            return put.item().getVersion() - (previousItem != null ? previousItem.getVersion() : 0);
+        } else if (entry instanceof TodoLog.Delete delete) {
+            var previousItem = items.get(delete.id());
+            return previousItem != null ? -previousItem.getVersion() : 0;
+        } else if (entry instanceof TodoLog.Clear) {
+            return -versionSum;
+        }
+
+        return 0;
+    }
+
+    private <T> Mono<T> write(Callable<T> write) {
+        var result = Mono.fromCallable(() -> {
+            synchronized (writeLock) {
+                return write.call();
+            }
+        });
+
+        // Forcing the log to disk blocks on I/O, which must not happen on an event loop
+        return forceOnWrite
+            ? result.subscribeOn(Schedulers.boundedElastic())
+            : result;
+    }
+
+    // The map is ordered by id, so only sorting by order has to sort the matching items
+    private Stream<TodoItem> select(TodoQuery query) {
+        if (query.sortBy() == TodoQuery.SortBy.ID) {
+            var itemsAfter = query.after() == null
+                ? items
+                : items.tailMap(query.after().id(), false);
+            return itemsAfter.values().stream()
+                .filter(query::matches);
+        }
+
+        return items.values().stream()
+            .filter(todoItem -> query.matches(todoItem) && query.isAfterCursor(todoItem))
+            .sorted(query.comparator());
+    }
+
+    private Stream<TodoItem> selectBefore(TodoQuery query) {
+        if (query.sortBy() == TodoQuery.SortBy.ID) {
+            return items.headMap(query.after().id(), false).descendingMap().values().stream()
+                .filter(query::matches);
+        }
+
+        return items.values().stream()
+            .filter(todoItem -> query.matches(todoItem) && query.isBeforeCursor(todoItem))
+            .sorted(query.comparator().reversed());
+    }
+
+    private static TodoItem withUpdates(TodoItem todoItem, TodoUpdateCommand updateCmd) {
+        var updatedItem = copy(todoItem);
+        if (updateCmd.getTitle().isPresent()) {
+            updatedItem.setTitle(updateCmd.getTitle().get());
+        }
+
+        // Like TodoUpdateBuilder does for the database, a null means not completed
+        if (updateCmd.getCompleted().isPresent()) {
+            updatedItem.setCompleted(Boolean.TRUE.equals(updateCmd.getCompleted().get()));
+        }
+
+        if (updateCmd.getOrder().isPresent()) {
+            updatedItem.setOrder(updateCmd.getOrder().get());
+        }
+
+        return updatedItem;
+    }
+
+    // Stored items are never handed out, so callers can't change them behind the log's back
+    private static TodoItem copy(TodoItem todoItem) {
+        return todoItem == null
+            ? null
+            : new TodoItem(todoItem.getId(), todoItem.getTitle(), todoItem.isCompleted(), todoItem.getOrder(), todoItem.getVersion(),
+                todoItem.getList());
+    }
+}
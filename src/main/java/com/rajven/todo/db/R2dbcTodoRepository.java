@@ -0,0 +1,726 @@
+package com.rajven.todo.db;
+
+import static org.springframework.data.domain.Sort.Order.asc;
+import static org.springframework.data.domain.Sort.Order.desc;
+import static org.springframework.data.domain.Sort.by;
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.query.Update;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.r2dbc.core.PreparedOperation;
+import org.springframework.r2dbc.core.binding.BindTarget;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.Constants;
+
+/**
+ * {@link TodoRepository} that stores items in the {@code todo_item} table through R2DBC.
+ * <p>
+ * With a read replica, listing, searching and getting items, and the version of the items that goes with a list, are
+ * read from the replica unless the {@link ReadSource} of the subscriber context is the primary. Everything else,
+ * including the reads that are part of a write, goes to the primary.
+ */
+@Repository
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+public class R2dbcTodoRepository implements TodoRepository {
+    private static final String POSTGRES_DATABASE_NAME = "PostgreSQL";
+    private static final String H2_DATABASE_NAME = "H2";
+    private static final String TABLE_NAME = "todo_item";
+    private static final String INSERT_SQL = "INSERT INTO todo_item (title, completed, sort_order, list_key) VALUES ($1, $2, $3, $4)";
+    private static final String INSERT_WITH_ID_SQL = "INSERT INTO todo_item (id, title, completed, sort_order, list_key) VALUES ($1, $2, $3, $4, $5)";
+    // The counts are spread over a few rows, see schema.sql
+    private static final String ITEMS_VERSION_SQL = "SELECT coalesce(sum(item_count), 0), coalesce(sum(version_sum), 0) FROM todo_items_version";
+    // Ids keep counting up, so the URL of a deleted item never points to a new one
+    private static final String TRUNCATE_SQL = "TRUNCATE TABLE todo_item CONTINUE IDENTITY";
+    private static final String RESET_ITEMS_VERSION_SQL = "UPDATE todo_items_version SET item_count = 0, version_sum = 0";
+    private static final String LOCK_ITEMS_SQL = "SELECT id FROM todo_item WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+    private static final String LOCK_ITEM_SQL = "SELECT completed FROM todo_item WHERE id = $1 FOR UPDATE";
+    private static final String PREVIOUS_COMPLETED_COLUMN = "previous_completed";
+    private static final String DELETE_SQL = "DELETE FROM todo_item WHERE id = $1";
+    private static final String COUNT_ITEMS_SQL = "SELECT count(*), count(CASE WHEN completed THEN 1 END) FROM todo_item";
+    private static final String POSTGRES_NEXT_VERSION_SQL = "nextval('todo_item_version_seq')";
+    private static final String NEXT_VERSION_SQL = "NEXT VALUE FOR todo_item_version_seq";
+    // The title_tsv column is not selected, it's only needed by the database
+    private static final String[] ITEM_COLUMNS = { "id", "title", "completed", "sort_order", "version", "list_key" };
+    private static final String QUALIFIED_ITEM_COLUMNS = Arrays.stream(ITEM_COLUMNS)
+        .map(column -> "todo_item." + column)
+        .collect(Collectors.joining(", "));
+    static final String SEARCH_SQL = """
+        SELECT id, title, completed, sort_order, version, list_key FROM todo_item
+        WHERE title_tsv @@ to_tsquery('simple', $1)
+        ORDER BY ts_rank(title_tsv, to_tsquery('simple', $1)) DESC, id
+        LIMIT $2 OFFSET $3
+        """;
+
+    private final R2dbcEntityTemplate template;
+    private final R2dbcEntityTemplate replicaTemplate;
+    private final TransactionalOperator transactionalOperator;
+    private final RepositoryMetrics metrics;
+    private final boolean supportsReturning;
+    private final boolean supportsTruncate;
+    private final String nextVersionSql;
+    private final TitleIndex titleIndex;
+    private final Mono<Void> titleIndexLoaded;
+
+    @Autowired
+    public R2dbcTodoRepository(R2dbcEntityTemplate template, @Qualifier(Constants.REPLICA_CONNECTION_FACTORY) ObjectProvider<ConnectionFactory> replicaConnectionFactory,
+                               ReactiveTransactionManager transactionManager, RepositoryMetrics metrics) {
+        this(template, replicaConnectionFactory.stream()
+            .map(connectionFactory -> template(connectionFactory, template))
+            .findFirst()
+            .orElse(template), transactionManager, metrics);
+    }
+
+    /**
+     * @param template           the database that is written to
+     * @param replicaTemplate    the database that reads which may lag behind go to, the same as {@code template} without a
+     *                           replica
+     * @param transactionManager the transaction manager of the database that is written to
+     */
+    R2dbcTodoRepository(R2dbcEntityTemplate template, R2dbcEntityTemplate replicaTemplate,
+                        ReactiveTransactionManager transactionManager, RepositoryMetrics metrics) {
+        this.template = template;
+        this.replicaTemplate = replicaTemplate;
+        this.metrics = metrics;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        var databaseName = template.getDatabaseClient().getConnectionFactory().getMetadata().getName();
+        var isPostgres = POSTGRES_DATABASE_NAME.equals(databaseName);
+        this.supportsReturning = isPostgres;
+        this.supportsTruncate = isPostgres || H2_DATABASE_NAME.equals(databaseName);
+        this.nextVersionSql = isPostgres ? POSTGRES_NEXT_VERSION_SQL : NEXT_VERSION_SQL;
+        this.titleIndex = isPostgres ? null : new TitleIndex();
+        this.titleIndexLoaded = isPostgres ? Mono.empty() : loadTitleIndex();
+    }
+
+    /**
+     * Items are emitted as rows arrive from the database, so the result is never buffered as a whole.
+     */
+    @Override
+    public Flux<TodoItem> getAll(TodoQuery query) {
+        return metrics.timed("getAll", Flux.deferContextual(context -> selectList(readTemplate(context), listQuery(query))));
+    }
+
+    /**
+     * Uses keyset pagination, so the cost of a page does not depend on how far into the table it is.
+     */
+    @Override
+    public Flux<TodoItem> getPage(TodoQuery query, int limit) {
+        return metrics.timed("getPage", Flux.deferContextual(context -> selectList(readTemplate(context), listQuery(query).limit(limit))));
+    }
+
+    /**
+     * Reads the same index as {@link #getPage} backwards, so the items right before a position are as cheap to get as
+     * the ones after it.
+     */
+    @Override
+    public Flux<TodoItem> getPageBefore(TodoQuery query, int limit) {
+        return metrics.timed("getPageBefore", Flux.deferContextual(context -> selectList(readTemplate(context), listQueryBefore(query).limit(limit))));
+    }
+
+    /**
+     * On Postgres the search runs on the {@code title_tsv} column, through its GIN index. Other databases have no full-text
+     * search that works the same way, so their titles are searched in a {@link TitleIndex} that is loaded from the table
+     * on the first search and kept up to date by the writes of this repository.
+     */
+    @Override
+    public Flux<TodoItem> search(TodoSearch search, long offset, int limit) {
+        if (titleIndex == null) {
+            return metrics.timed("search", Flux.deferContextual(context -> readTemplate(context).getDatabaseClient().sql(SEARCH_SQL)
+                .bind(0, tsQuery(search))
+                .bind(1, limit)
+                .bind(2, offset)
+                .map((row, metadata) -> template.getConverter().read(TodoItem.class, row, metadata))
+                .all()));
+        }
+
+        return metrics.timed("search", titleIndexLoaded.thenMany(Flux.deferContextual(context -> {
+            var ids = titleIndex.search(search, offset, limit);
+            if (ids.isEmpty()) {
+                return Flux.empty();
+            }
+
+            return readTemplate(context).select(TodoItem.class)
+                .matching(Query.query(where("id").in(ids)).columns(ITEM_COLUMNS))
+                .all()
+                .filter(todoItem -> search.matches(todoItem.getTitle()))
+                .collectMap(TodoItem::getId)
+                .flatMapIterable(itemsById -> ids.stream().map(itemsById::get).filter(Objects::nonNull).toList());
+        })));
+    }
+
+    /**
+     * Reads the counts that a trigger on {@code todo_item} updates in the transaction of every write, so the cost doesn't
+     * depend on the number of items. Read from where the list it goes with is read from, so that a list is never older
+     * than its version.
+     */
+    @Override
+    public Mono<TodoItemsVersion> getItemsVersion() {
+        return metrics.timed("getItemsVersion", Mono.deferContextual(context -> readTemplate(context).getDatabaseClient().sql(ITEMS_VERSION_SQL)
+            .map((row, metadata) -> new TodoItemsVersion(((Number) row.get(0)).longValue(), ((Number) row.get(1)).longValue()))
+            .one()));
+    }
+
+    @Override
+    public Mono<TodoStats> countItems() {
+        return metrics.timed("countItems", template.getDatabaseClient().sql(COUNT_ITEMS_SQL)
+            .map((row, metadata) -> new TodoStats(((Number) row.get(0)).longValue(), ((Number) row.get(1)).longValue()))
+            .one());
+    }
+
+    @Override
+    public Mono<TodoItem> findById(long id) {
+        return metrics.timed("findById", Mono.deferContextual(context -> selectById(readTemplate(context), id)));
+    }
+
+    @Override
+    public Mono<TodoItem> create(TodoCreateCommand todoCreateCmd) {
+        return insert(todoCreateCmd.toTodoItem());
+    }
+
+    /**
+     * Inserts an item with the id it has, or with an id taken from the {@code id} column's sequence if that is 0.
+     *
+     * @param todoItem the item to insert
+     * @return         the inserted item, with the version it was given
+     */
+    Mono<TodoItem> insert(TodoItem todoItem) {
+        return metrics.timed("create", insertRows(List.of(todoItem)).single());
+    }
+
+    @Override
+    public Flux<TodoItem> createAll(List<TodoCreateCommand> createCmds) {
+        return insertAll(createCmds.stream().map(TodoCreateCommand::toTodoItem).toList());
+    }
+
+    /**
+     * Inserts all items with a single batched insert statement, with the ids they have, or with ids taken from the
+     * {@code id} column's sequence if those are 0. Either all items have an id or none has.
+     *
+     * @param todoItems the items to insert
+     * @return          the inserted items, with the versions they were given, in the same order
+     */
+    Flux<TodoItem> insertAll(List<TodoItem> todoItems) {
+        return metrics.timed("createAll", insertRows(todoItems));
+    }
+
+    // The version is assigned by the database, so it's read back together with the id
+    private Flux<TodoItem> insertRows(List<TodoItem> todoItems) {
+        var withIds = !todoItems.isEmpty() && todoItems.get(0).getId() != 0;
+        var generatedValues = template.getDatabaseClient().inConnectionMany(connection -> {
+            var statement = connection.createStatement(withIds ? INSERT_WITH_ID_SQL : INSERT_SQL)
+                .returnGeneratedValues("id", "version");
+            for (int i = 0; i < todoItems.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+
+                var todoItem = todoItems.get(i);
+                var index = 0;
+                if (withIds) {
+                    statement.bind(index++, todoItem.getId());
+                }
+                bindOrNull(statement, index++, todoItem.getTitle(), String.class);
+                statement.bind(index++, todoItem.isCompleted());
+                bindOrNull(statement, index++, todoItem.getOrder(), Long.class);
+                bindOrNull(statement, index, todoItem.getList(), String.class);
+            }
+
+            return Flux.from(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> new long[] { row.get("id", Long.class), row.get("version", Long.class) }));
+        });
+
+        return Flux.fromIterable(todoItems)
+            .zipWith(generatedValues, (todoItem, values) -> {
+                todoItem.setId(values[0]);
+                todoItem.setVersion(values[1]);
+                return todoItem;
+            })
+            .doOnNext(this::index);
+    }
+
+    /**
+     * On Postgres the updated row is returned by the update statement itself, other databases need a second read.
+     */
+    @Override
+    public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
+        var update = TodoUpdateBuilder.withUpdates(updateCmd);
+        var columns = update.getAssignments().keySet();
+
+        if (supportsReturning) {
+            return metrics.timed("update", bindUpdate(updateSql(columns) + " RETURNING " + String.join(", ", ITEM_COLUMNS), columns, update, id)
+                .map((row, metadata) -> template.getConverter().read(TodoItem.class, row, metadata))
+                .one());
+        }
+
+        return metrics.timed("update", updateAndSelect(columns, update, id)
+            .doOnNext(this::index));
+    }
+
+    /**
+     * On Postgres the update statement reads the previous state from a select of the row that locks it, and returns it
+     * together with the updated row. Other databases lock the row with a select of its previous state first, in the same
+     * transaction as the update.
+     */
+    @Override
+    public Mono<TodoItemUpdate> updateWithPrevious(long id, TodoUpdateCommand updateCmd) {
+        var update = TodoUpdateBuilder.withUpdates(updateCmd);
+        var columns = update.getAssignments().keySet();
+
+        if (supportsReturning) {
+            return metrics.timed("update", bindUpdate(updateWithPreviousSql(columns), columns, update, id)
+                .map((row, metadata) -> new TodoItemUpdate(Boolean.TRUE.equals(row.get(PREVIOUS_COMPLETED_COLUMN, Boolean.class)),
+                    template.getConverter().read(TodoItem.class, row, metadata)))
+                .one());
+        }
+
+        var previous = template.getDatabaseClient().sql(LOCK_ITEM_SQL)
+            .bind(0, id)
+            .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+            .one();
+
+        return metrics.timed("update", transactionalOperator.transactional(previous.flatMap(wasCompleted -> updateAndSelect(columns, update, id)
+                .map(todoItem -> new TodoItemUpdate(wasCompleted, todoItem))))
+            .doOnNext(itemUpdate -> index(itemUpdate.updatedItem())));
+    }
+
+    /**
+     * Runs in one transaction. Commands that set the same columns are grouped and run as one batched statement, so the
+     * number of statements depends on the combinations of columns rather than on the number of items. The items are
+     * locked in the order of their ids before any of them is written, so concurrent bulk updates never wait for each
+     * other in a circle, and neither do writes that share a slot of the counts behind {@link #getItemsVersion()}.
+     */
+    @Override
+    public Flux<TodoItem> updateAll(Map<Long, TodoUpdateCommand> updateCmds) {
+        if (updateCmds.isEmpty()) {
+            return Flux.empty();
+        }
+
+        var updatesByColumns = updateCmds.entrySet().stream()
+            .filter(updateCmd -> updateCmd.getValue().hasAnyUpdate())
+            .map(updateCmd -> Map.entry(updateCmd.getKey(), TodoUpdateBuilder.withUpdates(updateCmd.getValue())))
+            .collect(Collectors.groupingBy(update -> update.getValue().getAssignments().keySet(), LinkedHashMap::new, Collectors.toList()));
+
+        var locks = template.getDatabaseClient().sql(LOCK_ITEMS_SQL)
+            .bind("ids", updateCmds.keySet())
+            .then();
+
+        var writes = template.getDatabaseClient().inConnectionMany(connection -> Flux.fromIterable(updatesByColumns.entrySet())
+            .concatMap(updates -> executeBatchUpdate(connection, updates.getKey(), updates.getValue())));
+
+        var reads = template.select(TodoItem.class)
+            .matching(Query.query(where("id").in(updateCmds.keySet()))
+                .columns(ITEM_COLUMNS)
+                .sort(by(asc("id"))))
+            .all();
+
+        return metrics.timed("updateAll", transactionalOperator.transactional(locks.thenMany(writes).thenMany(reads))
+            .doOnNext(this::index));
+    }
+
+    /**
+     * Reads the deleted item back in the same statement where the database supports it, and otherwise selects it first in
+     * the same transaction.
+     */
+    @Override
+    public Mono<TodoItem> delete(long id) {
+        if (supportsReturning) {
+            return metrics.timed("delete", template.getDatabaseClient().sql(DELETE_SQL + " RETURNING " + String.join(", ", ITEM_COLUMNS))
+                .bind(0, id)
+                .map((row, metadata) -> template.getConverter().read(TodoItem.class, row, metadata))
+                .one());
+        }
+
+        var selectAndDelete = selectById(template, id)
+            .flatMap(todoItem -> template.getDatabaseClient().sql(DELETE_SQL)
+                .bind(0, id)
+                .fetch()
+                .rowsUpdated()
+                .filter(deletedRows -> deletedRows > 0)
+                .map(deletedRows -> todoItem));
+
+        return metrics.timed("delete", transactionalOperator.transactional(selectAndDelete)
+            .doOnNext(todoItem -> {
+                if (titleIndex != null) {
+                    titleIndex.remove(id);
+                }
+            }));
+    }
+
+    /**
+     * Runs in one transaction. The items are selected first and then deleted by id, so a chunk never deletes more than
+     * the limit, even when items start to match the query concurrently. When fewer rows were deleted than selected, the
+     * selected items that are still there are read again to leave them out.
+     */
+    @Override
+    public Mono<TodoDeletedChunk> deleteChunk(TodoQuery query, int limit) {
+        var chunk = selectList(template, listQuery(query).limit(limit))
+            .collectList()
+            .flatMap(selectedItems -> deleteMatching(query, selectedItems)
+                .collectList()
+                .map(deletedItems -> TodoDeletedChunk.of(selectedItems, deletedItems)));
+
+        return metrics.timed("deleteChunk", transactionalOperator.transactional(chunk)
+            .doOnNext(deletedChunk -> deletedChunk.deletedItems().forEach(this::unindex)));
+    }
+
+    /**
+     * Deletes a chunk of items that were selected before, like {@link #deleteChunk(TodoQuery, int)} does after selecting
+     * them. Runs in one transaction.
+     *
+     * @param query         the query the items were selected with
+     * @param selectedItems the selected items, of which those that still match the query are deleted
+     * @return              the deleted items
+     */
+    Flux<TodoItem> deleteSelected(TodoQuery query, List<TodoItem> selectedItems) {
+        return metrics.timed("deleteChunk", transactionalOperator.transactional(deleteMatching(query, selectedItems))
+            .doOnNext(this::unindex));
+    }
+
+    private Flux<TodoItem> deleteMatching(TodoQuery query, List<TodoItem> selectedItems) {
+        if (selectedItems.isEmpty()) {
+            return Flux.empty();
+        }
+
+        var ids = selectedItems.stream().map(TodoItem::getId).toList();
+        return template.delete(TodoItem.class)
+            .matching(Query.query(listCriteria(query).and(where("id").in(ids))))
+            .all()
+            .flatMapMany(deletedRows -> deletedRows == ids.size()
+                ? Flux.fromIterable(selectedItems)
+                : withoutRemaining(selectedItems, ids));
+    }
+
+    /**
+     * Truncates the table where the database supports it, which is much faster than deleting every row, writes next to
+     * nothing to the write-ahead log and leaves no dead rows behind. On Postgres it briefly locks out all other access to
+     * the table, including reads. Truncating fires no triggers, so the counts behind {@link #getItemsVersion()} are reset
+     * in the same transaction.
+     */
+    @Override
+    public Mono<Void> deleteAll() {
+        var deleteAll = supportsTruncate
+            ? transactionalOperator.transactional(template.getDatabaseClient().sql(TRUNCATE_SQL).then()
+                .then(template.getDatabaseClient().sql(RESET_ITEMS_VERSION_SQL).then()))
+            : template.delete(TodoItem.class).all().then();
+
+        return metrics.timed("deleteAll", deleteAll
+            .doOnSuccess(done -> {
+                if (titleIndex != null) {
+                    titleIndex.clear();
+                }
+            }));
+    }
+
+    private Flux<TodoItem> withoutRemaining(List<TodoItem> selectedItems, List<Long> ids) {
+        return template.select(TodoItem.class)
+            .matching(Query.query(where("id").in(ids)).columns("id"))
+            .all()
+            .map(TodoItem::getId)
+            .collect(Collectors.toSet())
+            .flatMapIterable(remainingIds -> selectedItems.stream()
+                .filter(todoItem -> !remainingIds.contains(todoItem.getId()))
+                .toList());
+    }
+
+    private R2dbcEntityTemplate readTemplate(ContextView context) {
+        return ReadSource.from(context) == ReadSource.PRIMARY ? template : replicaTemplate;
+    }
+
+    private static Flux<TodoItem> selectList(R2dbcEntityTemplate template, Query query) {
+        return template.getDatabaseClient().sql(listSelect(template, query))
+            .map((row, metadata) -> template.getConverter().read(TodoItem.class, row, metadata))
+            .all();
+    }
+
+    private static Mono<TodoItem> selectById(R2dbcEntityTemplate template, long id) {
+        return template.select(TodoItem.class)
+            .matching(Query.query(where("id").is(id))
+                .columns(ITEM_COLUMNS)
+                .sort(by(asc("id"))))
+            .one();
+    }
+
+    /**
+     * Creates a template for another database with the same tables, like a replica or a shard, that shares the mapping
+     * of the given template.
+     *
+     * @param connectionFactory the other database
+     * @param template          the template to share the mapping of
+     * @return                  the template for the other database
+     */
+    static R2dbcEntityTemplate template(ConnectionFactory connectionFactory, R2dbcEntityTemplate template) {
+        var dialect = DialectResolver.getDialect(connectionFactory);
+        var databaseClient = DatabaseClient.builder()
+            .connectionFactory(connectionFactory)
+            .bindMarkers(dialect.getBindMarkersFactory())
+            .build();
+
+        return new R2dbcEntityTemplate(databaseClient, dialect, template.getConverter());
+    }
+
+    /**
+     * Turns a search into a Postgres text search query that matches the same titles as {@link TodoSearch#matches}.
+     * The words only have letters and digits, so they never contain tsquery operators.
+     *
+     * @param search the search, with at least one word
+     * @return       the text search query, for {@code to_tsquery('simple', ...)}
+     */
+    static String tsQuery(TodoSearch search) {
+        var words = search.words();
+        return String.join(" & ", words.subList(0, words.size() - 1))
+            + (words.size() > 1 ? " & " : "")
+            + words.get(words.size() - 1) + ":*";
+    }
+
+    // Loads at most once, but is retried on the next search if loading failed
+    private Mono<Void> loadTitleIndex() {
+        return template.select(TodoItem.class)
+            .matching(Query.empty().columns(ITEM_COLUMNS))
+            .all()
+            .doOnNext(todoItem -> titleIndex.put(todoItem.getId(), todoItem.getTitle()))
+            .then()
+            .cache(value -> Duration.ofMillis(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    private void index(TodoItem todoItem) {
+        if (titleIndex != null) {
+            titleIndex.put(todoItem.getId(), todoItem.getTitle());
+        }
+    }
+
+    private void unindex(TodoItem todoItem) {
+        if (titleIndex != null) {
+            titleIndex.remove(todoItem.getId());
+        }
+    }
+
+    private static void bindOrNull(Statement statement, int index, Object value, Class<?> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindUpdate(String sql, Collection<SqlIdentifier> columns, Update update, long id) {
+        var spec = template.getDatabaseClient().sql(sql);
+        var index = 0;
+        for (var column : columns) {
+            spec = spec.bind(index++, Parameter.fromOrEmpty(update.getAssignments().get(column), TodoUpdateBuilder.columnType(column)));
+        }
+
+        return spec.bind(index, id);
+    }
+
+    private Mono<TodoItem> updateAndSelect(Collection<SqlIdentifier> columns, Update update, long id) {
+        return bindUpdate(updateSql(columns), columns, update, id)
+            .fetch()
+            .rowsUpdated()
+            .filter(rowsAffected -> rowsAffected > 0)
+            .flatMap(rowsAffected -> selectById(template, id));
+    }
+
+    private Flux<Integer> executeBatchUpdate(Connection connection, Collection<SqlIdentifier> columns, List<Map.Entry<Long, Update>> updates) {
+        var statement = connection.createStatement(updateSql(columns));
+        for (int i = 0; i < updates.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+
+            var index = 0;
+            var assignments = updates.get(i).getValue().getAssignments();
+            for (var column : columns) {
+                bindOrNull(statement, index++, assignments.get(column), TodoUpdateBuilder.columnType(column));
+            }
+            statement.bind(index, updates.get(i).getKey());
+        }
+
+        return Flux.from(statement.execute())
+            .concatMap(Result::getRowsUpdated);
+    }
+
+    // Every update takes a new version, so it can be told apart from the previous state of the item
+    private String updateSql(Collection<SqlIdentifier> columns) {
+        return String.format("UPDATE todo_item SET %s, version = %s WHERE id = $%d", assignments(columns), nextVersionSql, columns.size() + 1);
+    }
+
+    // The id is bound once and used by both the select of the previous state and the update
+    private String updateWithPreviousSql(Collection<SqlIdentifier> columns) {
+        return String.format("""
+            UPDATE todo_item SET %s, version = %s
+            FROM (SELECT completed FROM todo_item WHERE id = $%d FOR UPDATE) previous
+            WHERE todo_item.id = $%3$d
+            RETURNING %s, previous.completed AS %s
+            """, assignments(columns), nextVersionSql, columns.size() + 1, QUALIFIED_ITEM_COLUMNS, PREVIOUS_COMPLETED_COLUMN);
+    }
+
+    private static String assignments(Collection<SqlIdentifier> columns) {
+        var index = new AtomicInteger();
+        return columns.stream()
+            .map(column -> String.format("%s = $%d", column.getReference(), index.incrementAndGet()))
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Builds the select of a list query. The filters and the sort order are backed by the indexes in {@code schema.sql}.
+     *
+     * @param query the list query
+     * @return      the query to select the items with, without a limit
+     */
+    static Query listQuery(TodoQuery query) {
+        var sort = query.sortBy() == TodoQuery.SortBy.ID
+            ? by(asc("id"))
+            : by(asc("order").nullsLast(), asc("id"));
+
+        return Query.query(listCriteria(query)).columns(ITEM_COLUMNS).sort(sort);
+    }
+
+    /**
+     * Builds the select of the items before the cursor of a list query, in the reverse order of the query. Backed by the
+     * same indexes as {@link #listQuery}.
+     *
+     * @param query the list query, with the cursor set
+     * @return      the query to select the items with, without a limit
+     */
+    static Query listQueryBefore(TodoQuery query) {
+        var sort = query.sortBy() == TodoQuery.SortBy.ID
+            ? by(desc("id"))
+            : by(desc("order").nullsFirst(), desc("id"));
+        var before = query.sortBy() == TodoQuery.SortBy.ID
+            ? where("id").lessThan(query.after().id())
+            : orderBefore(query.after());
+
+        return Query.query(filterCriteria(query).and(before)).columns(ITEM_COLUMNS).sort(sort);
+    }
+
+    /**
+     * Renders the select of a list query. The keyset criteria rely on items without an order coming last, but Spring Data
+     * drops the null handling of a sort when it renders one, and H2 sorts nulls first. So only the criteria are rendered by
+     * Spring Data, and the sort and the limit are appended here.
+     *
+     * @param template the database to select from
+     * @param query    the query built by {@link #listQuery} or {@link #listQueryBefore}
+     * @return         the select, with its criteria bound
+     */
+    static PreparedOperation<?> listSelect(R2dbcEntityTemplate template, Query query) {
+        var statementMapper = template.getDataAccessStrategy().getStatementMapper().forType(TodoItem.class);
+        var select = statementMapper.getMappedObject(statementMapper.createSelect(TABLE_NAME)
+            .withProjection(query.getColumns().toArray(SqlIdentifier[]::new))
+            .withCriteria(query.getCriteria().orElse(Criteria.empty())));
+        var entity = template.getConverter().getMappingContext().getRequiredPersistentEntity(TodoItem.class);
+        var orderBy = query.getSort().stream()
+            .map(order -> entity.getRequiredPersistentProperty(order.getProperty()).getColumnName().getReference()
+                + " " + order.getDirection()
+                + switch (order.getNullHandling()) {
+                    case NULLS_FIRST -> " NULLS FIRST";
+                    case NULLS_LAST -> " NULLS LAST";
+                    case NATIVE -> "";
+                })
+            .collect(Collectors.joining(", ", " ORDER BY ", ""));
+        var sql = select.toQuery() + (query.getSort().isSorted() ? orderBy : "") + (query.getLimit() >= 0 ? " LIMIT " + query.getLimit() : "");
+
+        return new PreparedOperation<Object>() {
+            @Override
+            public Object getSource() {
+                return select.getSource();
+            }
+
+            @Override
+            public void bindTo(BindTarget target) {
+                select.bindTo(target);
+            }
+
+            @Override
+            public String toQuery() {
+                return sql;
+            }
+        };
+    }
+
+    private static Criteria listCriteria(TodoQuery query) {
+        var criteria = filterCriteria(query);
+        if (query.after() != null) {
+            criteria = criteria.and(query.sortBy() == TodoQuery.SortBy.ID
+                ? where("id").greaterThan(query.after().id())
+                : orderAfter(query.after()));
+        }
+
+        return criteria;
+    }
+
+    private static Criteria filterCriteria(TodoQuery query) {
+        var criteria = Criteria.empty();
+        if (query.list() != null) {
+            criteria = criteria.and(where("list").is(query.list()));
+        }
+
+        if (query.completed() != null) {
+            criteria = criteria.and(where("completed").is(query.completed()));
+        }
+
+        if (query.titlePrefix() != null) {
+            criteria = criteria.and(where("title").like(escapeLike(query.titlePrefix()) + "%"));
+        }
+
+        return criteria;
+    }
+
+    // Items without an order come last, so after an item without an order only items without an order with higher ids follow
+    private static Criteria orderAfter(TodoQuery.Cursor cursor) {
+        if (cursor.order() == null) {
+            return where("order").isNull()
+                .and("id").greaterThan(cursor.id());
+        }
+
+        return where("order").greaterThan(cursor.order())
+            .or(where("order").is(cursor.order()).and("id").greaterThan(cursor.id()))
+            .or("order").isNull();
+    }
+
+    // Items without an order come last, so all items with an order come before an item without one
+    private static Criteria orderBefore(TodoQuery.Cursor cursor) {
+        if (cursor.order() == null) {
+            return where("order").isNotNull()
+                .or(where("order").isNull().and("id").lessThan(cursor.id()));
+        }
+
+        return where("order").lessThan(cursor.order())
+            .or(where("order").is(cursor.order()).and("id").lessThan(cursor.id()));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+    }
+}
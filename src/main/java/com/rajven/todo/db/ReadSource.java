@@ -0,0 +1,33 @@
+package com.rajven.todo.db;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Where the reads of the {@link TodoRepository} that may lag behind the latest writes go, put in the subscriber context
+ * by those that have to see the latest writes.
+ */
+public enum ReadSource {
+    /**
+     * The primary database, which has every write that completed.
+     */
+    PRIMARY,
+    /**
+     * The read replica if there is one, which may lag behind the primary. Used unless the context says otherwise.
+     */
+    REPLICA;
+
+    /**
+     * @return where reads with the context go
+     */
+    public static ReadSource from(ContextView context) {
+        return context.getOrDefault(ReadSource.class, REPLICA);
+    }
+
+    /**
+     * @return a context to have reads go here with
+     */
+    public Context context() {
+        return Context.of(ReadSource.class, this);
+    }
+}
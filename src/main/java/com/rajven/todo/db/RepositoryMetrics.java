@@ -0,0 +1,122 @@
+package com.rajven.todo.db;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Records the latency of repository calls as the {@code todo.repository} timer, tagged with the repository method and
+ * whether the call completed, failed or was cancelled. The time is measured from subscription until the last signal.
+ * Running {@link Totals} over all methods are kept as well, for reacting to the latency of the repository as a whole.
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetrics {
+    private static final String TIMER_NAME = "todo.repository";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, MethodTimers> timersByMethod = new ConcurrentHashMap<>();
+    private final LongAdder completedCalls = new LongAdder();
+    private final LongAdder completedNanos = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+
+    public <T> Mono<T> timed(String method, Mono<T> call) {
+        return Mono.defer(() -> {
+            var measurement = new Measurement(Timer.start(meterRegistry), timers(method), this);
+            // A Mono is done as soon as it has a value, downstream operators may cancel it right after that
+            return call
+                .doOnSuccess(value -> measurement.stop(SignalType.ON_COMPLETE))
+                .doOnError(error -> measurement.stop(SignalType.ON_ERROR))
+                .doOnCancel(() -> measurement.stop(SignalType.CANCEL));
+        });
+    }
+
+    public <T> Flux<T> timed(String method, Flux<T> call) {
+        return Flux.defer(() -> {
+            var measurement = new Measurement(Timer.start(meterRegistry), timers(method), this);
+            return call.doFinally(measurement::stop);
+        });
+    }
+
+    /**
+     * Gets the totals over all calls so far. Latency over a period is the difference of the totals at its start and end.
+     *
+     * @return the running {@link Totals}
+     */
+    public Totals totals() {
+        return new Totals(completedCalls.sum(), completedNanos.sum(), failedCalls.sum());
+    }
+
+    /**
+     * Running totals of the repository calls that completed or failed, cancelled calls are left out.
+     *
+     * @param completedCalls the number of calls that completed
+     * @param completedNanos the time the completed calls took altogether
+     * @param failedCalls    the number of calls that failed
+     */
+    public record Totals(long completedCalls, long completedNanos, long failedCalls) {
+    }
+
+    private void count(SignalType signal, long nanos) {
+        if (signal == SignalType.ON_ERROR) {
+            failedCalls.increment();
+        } else if (signal != SignalType.CANCEL) {
+            completedCalls.increment();
+            completedNanos.add(nanos);
+        }
+    }
+
+    private MethodTimers timers(String method) {
+        return timersByMethod.computeIfAbsent(method, key -> new MethodTimers(
+            timer(key, "success"),
+            timer(key, "error"),
+            timer(key, "cancelled")));
+    }
+
+    private Timer timer(String method, String outcome) {
+        return Timer.builder(TIMER_NAME)
+            .description("Latency of todo repository calls")
+            .tag("method", method)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static class Measurement {
+        private final Timer.Sample sample;
+        private final MethodTimers timers;
+        private final RepositoryMetrics metrics;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        Measurement(Timer.Sample sample, MethodTimers timers, RepositoryMetrics metrics) {
+            this.sample = sample;
+            this.timers = timers;
+            this.metrics = metrics;
+        }
+
+        void stop(SignalType signal) {
+            if (stopped.compareAndSet(false, true)) {
+                metrics.count(signal, sample.stop(timers.forSignal(signal)));
+            }
+        }
+    }
+
+    private record MethodTimers(Timer success, Timer error, Timer cancelled) {
+        Timer forSignal(SignalType signal) {
+            return switch (signal) {
+                case ON_ERROR -> error;
+                case CANCEL -> cancelled;
+                default -> success;
+            };
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.rajven.todo.db;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.TreeMap;
+
+/**
+ * Assigns lists to shards by consistent hashing. Every shard has a number of points on a ring of 64 bit hashes, and a
+ * list belongs to the shard of the first point at or after the hash of the list. A new shard takes over the lists
+ * between its points and the ones before them, about its share of all lists, rather than almost every list moving like
+ * with the hash modulo the number of shards.
+ * <p>
+ * Items stay on the shard they were created on, since it's part of their id. So after a shard was added, a list may have
+ * items on its previous shard as well.
+ */
+final class ShardRing {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TreeMap<Long, Integer> points = new TreeMap<>();
+
+    /**
+     * @param shards       the number of shards
+     * @param virtualNodes the number of points of every shard
+     */
+    ShardRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("There must be at least one shard with at least one point on the ring");
+        }
+
+        // On a collision the shard that came first keeps the point, which doesn't depend on the shards after it
+        for (int shard = 0; shard < shards; shard++) {
+            for (int point = 0; point < virtualNodes; point++) {
+                points.putIfAbsent(hash("shard-" + shard + "#" + point), shard);
+            }
+        }
+    }
+
+    /**
+     * @param list the list, or null for items on no list
+     * @return     the shard new items on the list are created on
+     */
+    int shardOf(String list) {
+        var point = points.ceilingEntry(hash(list != null ? list : ""));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    // FNV-1a, finished with the mixer of MurmurHash3 so that keys that only differ at the end still land far apart
+    static long hash(String key) {
+        var hash = FNV_OFFSET_BASIS;
+        for (var b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,257 @@
+package com.rajven.todo.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.Constants;
+import com.rajven.todo.config.ShardConnectionFactories;
+import com.rajven.todo.config.ShardingProperties;
+
+/**
+ * {@link TodoRepository} that spreads the items over several databases, the shards, by their list. Every shard has a
+ * {@link R2dbcTodoRepository} of its own, and the first one is the primary database, together with its read replica if
+ * there is one.
+ * <p>
+ * New items go to the shard of their list on a {@link ShardRing}, with an id from a {@link SnowflakeIdGenerator} that has
+ * the shard in it, so getting, updating and deleting an item goes straight to its shard. Lists ask every shard, even for
+ * a single list, since a list has items on more than one shard once shards were added. Every shard returns its items in
+ * the sort order of the query, and they are merged as they arrive, so lists are still streamed.
+ * <p>
+ * Writes that span several shards run in a transaction per shard, so a bulk write that fails on one shard may still be
+ * done on the others.
+ */
+@Repository
+@Primary
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+@ConditionalOnProperty(prefix = "todo.db.sharding", name = "shards[0].url")
+public class ShardedTodoRepository implements TodoRepository {
+    private static final Comparator<TodoItem> BY_ID = Comparator.comparingLong(TodoItem::getId);
+
+    private final List<R2dbcTodoRepository> shards;
+    private final ShardRing ring;
+    private final SnowflakeIdGenerator ids;
+
+    public ShardedTodoRepository(R2dbcTodoRepository firstShard, R2dbcEntityTemplate template,
+                                 ShardConnectionFactories shardConnectionFactories, ShardingProperties properties,
+                                 RepositoryMetrics metrics) {
+        var shards = new ArrayList<R2dbcTodoRepository>();
+        shards.add(firstShard);
+        for (var pool : shardConnectionFactories.pools()) {
+            var shardTemplate = R2dbcTodoRepository.template(pool, template);
+            shards.add(new R2dbcTodoRepository(shardTemplate, shardTemplate, new R2dbcTransactionManager(pool), metrics));
+        }
+
+        if (shards.size() > SnowflakeIdGenerator.MAX_SHARDS) {
+            throw new IllegalArgumentException("There can be at most " + SnowflakeIdGenerator.MAX_SHARDS + " shards");
+        }
+
+        this.shards = List.copyOf(shards);
+        this.ring = new ShardRing(shards.size(), properties.getVirtualNodes());
+        this.ids = new SnowflakeIdGenerator(properties.getNodeId());
+    }
+
+    @Override
+    public Flux<TodoItem> getAll(TodoQuery query) {
+        return merged(query.comparator(), shard -> shard.getAll(query));
+    }
+
+    /**
+     * Every shard reads a whole page, of which the merge takes the first items.
+     */
+    @Override
+    public Flux<TodoItem> getPage(TodoQuery query, int limit) {
+        return merged(query.comparator(), shard -> shard.getPage(query, limit))
+            .take(limit);
+    }
+
+    /**
+     * Like {@link #getPage}, with the shards read backwards and merged in reverse order.
+     */
+    @Override
+    public Flux<TodoItem> getPageBefore(TodoQuery query, int limit) {
+        return merged(query.comparator().reversed(), shard -> shard.getPageBefore(query, limit))
+            .take(limit);
+    }
+
+    /**
+     * Every shard ranks its own matches, and the ranks don't come with them, so the matches of the shards are interleaved:
+     * the best match of every shard first, then the second best and so on. Each shard reads all its matches up to the end
+     * of the page, so the cost of a page grows with the offset, which is bounded by the search settings.
+     */
+    @Override
+    public Flux<TodoItem> search(TodoSearch search, long offset, int limit) {
+        var end = (int) Math.min(offset + limit, Integer.MAX_VALUE);
+        return Flux.fromIterable(shards)
+            .flatMapSequential(shard -> shard.search(search, 0, end).collectList())
+            .collectList()
+            .flatMapIterable(ShardedTodoRepository::interleave)
+            .skip(offset)
+            .take(limit);
+    }
+
+    /**
+     * Sums up the versions of all shards. Every shard takes its versions from a sequence of its own, so unlike on a
+     * single database, a delete on one shard together with a create on another could leave the sum the same, but only if
+     * both items had the very same version.
+     */
+    @Override
+    public Mono<TodoItemsVersion> getItemsVersion() {
+        return Flux.fromIterable(shards)
+            .flatMap(TodoRepository::getItemsVersion)
+            .reduce((versions, shardVersions) -> new TodoItemsVersion(versions.count() + shardVersions.count(),
+                versions.versionSum() + shardVersions.versionSum()));
+    }
+
+    @Override
+    public Mono<TodoStats> countItems() {
+        return Flux.fromIterable(shards)
+            .flatMap(TodoRepository::countItems)
+            .reduce((stats, shardStats) -> new TodoStats(stats.total() + shardStats.total(), stats.completed() + shardStats.completed()));
+    }
+
+    @Override
+    public Mono<TodoItem> findById(long id) {
+        var shard = shardOf(id);
+        return shard != null ? shard.findById(id) : Mono.empty();
+    }
+
+    @Override
+    public Mono<TodoItem> create(TodoCreateCommand todoCreateCmd) {
+        return Mono.defer(() -> {
+            var shard = ring.shardOf(todoCreateCmd.list());
+            var todoItem = todoCreateCmd.toTodoItem();
+            todoItem.setId(ids.next(shard));
+            return shards.get(shard).insert(todoItem);
+        });
+    }
+
+    /**
+     * Inserts the items of every shard with one batched insert statement.
+     */
+    @Override
+    public Flux<TodoItem> createAll(List<TodoCreateCommand> createCmds) {
+        return Flux.defer(() -> {
+            var itemsByShard = new TreeMap<Integer, List<TodoItem>>();
+            for (var createCmd : createCmds) {
+                var shard = ring.shardOf(createCmd.list());
+                var todoItem = createCmd.toTodoItem();
+                todoItem.setId(ids.next(shard));
+                itemsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(todoItem);
+            }
+
+            // The ids grow in the order of the commands, so by id the items are in that order again
+            return merged(BY_ID, itemsByShard.entrySet(), items -> shards.get(items.getKey()).insertAll(items.getValue()));
+        });
+    }
+
+    @Override
+    public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
+        var shard = shardOf(id);
+        return shard != null ? shard.update(id, updateCmd) : Mono.empty();
+    }
+
+    @Override
+    public Mono<TodoItemUpdate> updateWithPrevious(long id, TodoUpdateCommand updateCmd) {
+        var shard = shardOf(id);
+        return shard != null ? shard.updateWithPrevious(id, updateCmd) : Mono.empty();
+    }
+
+    /**
+     * Updates the items of every shard in a transaction of that shard.
+     */
+    @Override
+    public Flux<TodoItem> updateAll(Map<Long, TodoUpdateCommand> updateCmds) {
+        var updatesByShard = new LinkedHashMap<R2dbcTodoRepository, Map<Long, TodoUpdateCommand>>();
+        updateCmds.forEach((id, updateCmd) -> {
+            var shard = shardOf(id);
+            if (shard != null) {
+                updatesByShard.computeIfAbsent(shard, key -> new LinkedHashMap<>()).put(id, updateCmd);
+            }
+        });
+
+        return merged(BY_ID, updatesByShard.entrySet(), updates -> updates.getKey().updateAll(updates.getValue()));
+    }
+
+    @Override
+    public Mono<TodoItem> delete(long id) {
+        var shard = shardOf(id);
+        return shard != null ? shard.delete(id) : Mono.empty();
+    }
+
+    /**
+     * The chunk is the first items of the query over all shards, so that no item before the last one of the chunk is
+     * left behind. The items are selected from every shard first, and then every shard deletes the ones it has in a
+     * transaction of its own.
+     */
+    @Override
+    public Mono<TodoDeletedChunk> deleteChunk(TodoQuery query, int limit) {
+        return getPage(query, limit)
+            .contextWrite(ReadSource.PRIMARY.context())
+            .collectList()
+            .flatMap(selectedItems -> {
+                var selectedByShard = new LinkedHashMap<R2dbcTodoRepository, List<TodoItem>>();
+                for (var todoItem : selectedItems) {
+                    selectedByShard.computeIfAbsent(shardOf(todoItem.getId()), key -> new ArrayList<>()).add(todoItem);
+                }
+
+                return merged(query.comparator(), selectedByShard.entrySet(),
+                        selected -> selected.getKey().deleteSelected(query, selected.getValue()))
+                    .collectList()
+                    .map(deletedItems -> TodoDeletedChunk.of(selectedItems, deletedItems));
+            });
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.fromIterable(shards)
+            .flatMap(R2dbcTodoRepository::deleteAll)
+            .then();
+    }
+
+    // Null for ids of shards that don't exist, which no item has
+    private R2dbcTodoRepository shardOf(long id) {
+        var shard = SnowflakeIdGenerator.shardOf(id);
+        return shard < shards.size() ? shards.get(shard) : null;
+    }
+
+    private Flux<TodoItem> merged(Comparator<TodoItem> comparator, Function<R2dbcTodoRepository, Flux<TodoItem>> read) {
+        return merged(comparator, shards, read);
+    }
+
+    // Every source emits its items in the order of the comparator, so that the merged items are in that order as well
+    @SuppressWarnings("unchecked")
+    private static <T> Flux<TodoItem> merged(Comparator<TodoItem> comparator, Iterable<T> sources, Function<T, Flux<TodoItem>> read) {
+        var publishers = new ArrayList<Flux<TodoItem>>();
+        sources.forEach(source -> publishers.add(read.apply(source)));
+        return Flux.mergeComparing(comparator, publishers.toArray(Flux[]::new));
+    }
+
+    private static List<TodoItem> interleave(List<List<TodoItem>> matchesByShard) {
+        var interleaved = new ArrayList<TodoItem>();
+        var longest = matchesByShard.stream().mapToInt(List::size).max().orElse(0);
+        for (int rank = 0; rank < longest; rank++) {
+            for (var matches : matchesByShard) {
+                if (rank < matches.size()) {
+                    interleaved.add(matches.get(rank));
+                }
+            }
+        }
+
+        return interleaved;
+    }
+}
@@ -0,0 +1,83 @@
+package com.rajven.todo.db;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates item ids that are unique over all shards and instances without asking any database, and that tell which
+ * shard their item is on. Like Snowflake ids they are made of, from the highest bits down:
+ * <ul>
+ *     <li>37 bits with the hundredths of a second since 2026, which lasts until 2069</li>
+ *     <li>6 bits counting the ids of the node within the hundredth</li>
+ *     <li>5 bits with the node, which tells the instances apart</li>
+ *     <li>5 bits with the shard</li>
+ * </ul>
+ * That is 53 bits, so ids stay exact in a JavaScript number, or any other double, and still match the URL of their item
+ * when a client reads them. The shard comes last so that the ids of a node only grow, whatever shard they are for, and
+ * ids of different nodes grow as far as their clocks agree. So the id order is still about the order the items were created in. A node
+ * generates at most 64 ids per hundredth of a second. When it needs more, or when its clock goes back, it takes the ids
+ * of the following hundredths rather than waiting for them.
+ * <p>
+ * Ids of items created before sharding came from the sequence of the first database. Those are all far below the first
+ * generated id, which is how they are told apart.
+ */
+final class SnowflakeIdGenerator {
+    static final int MAX_SHARDS = 1 << 5;
+    static final int MAX_NODES = 1 << 5;
+    private static final long EPOCH = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+    private static final long TICK_MILLIS = 10;
+    private static final long SEQUENCE_MASK = (1L << 6) - 1;
+    private static final int NODE_SHIFT = 5;
+    private static final int SEQUENCE_SHIFT = NODE_SHIFT + 5;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_SHIFT + 6;
+    // About 30 days after the epoch, generated ids are way beyond and sequence ids never get there
+    private static final long FIRST_GENERATED_ID = 1L << 44;
+
+    private final long node;
+    private final LongSupplier clock;
+    private long lastTick;
+    private long sequence;
+
+    /**
+     * @param nodeId the id of this instance, unique among all instances
+     */
+    SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId >= MAX_NODES) {
+            throw new IllegalArgumentException("The node id must be between 0 and " + (MAX_NODES - 1));
+        }
+
+        this.node = (long) nodeId << NODE_SHIFT;
+        this.clock = clock;
+    }
+
+    /**
+     * @param shard the shard of the item, between 0 and {@link #MAX_SHARDS} - 1
+     * @return      a new id for an item on the shard
+     */
+    synchronized long next(int shard) {
+        var tick = Math.max((clock.getAsLong() - EPOCH) / TICK_MILLIS, lastTick);
+        if (tick == lastTick) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                tick++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTick = tick;
+
+        return tick << TIMESTAMP_SHIFT | sequence << SEQUENCE_SHIFT | node | shard;
+    }
+
+    /**
+     * @param id an item id
+     * @return   the shard the item is on
+     */
+    static int shardOf(long id) {
+        return id < FIRST_GENERATED_ID ? 0 : (int) id & (MAX_SHARDS - 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.rajven.todo.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process inverted index of the words in the titles of todo items, for {@link TodoSearch}es without Postgres.
+ * <p>
+ * Every word maps to the ids of the items that have it in their title. Words are kept sorted, so the prefix of the
+ * last word of a search is looked up as a range. A search starts from the word with the fewest items and only ranks the
+ * items that have all words, keeping the best ones in a bounded heap, so its cost depends on the number of matches
+ * rather than the number of items.
+ * <p>
+ * Writes are serialized, searches don't lock. A search that runs during a write may see it half applied, so callers
+ * check the items they read for the ids against the search.
+ */
+final class TitleIndex {
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt(Match::rank).reversed()
+        .thenComparingLong(Match::id);
+
+    private record Match(long id, int rank) {
+    }
+
+    private final ConcurrentSkipListMap<String, Set<Long>> idsByWord = new ConcurrentSkipListMap<>();
+    private final Map<Long, List<String>> wordsById = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the title of an item, replacing the title it had before.
+     *
+     * @param id    the id of the item
+     * @param title the title of the item, may be null
+     */
+    synchronized void put(long id, String title) {
+        remove(id);
+
+        var words = TodoSearch.words(title);
+        if (words.isEmpty()) {
+            return;
+        }
+
+        wordsById.put(id, words);
+        for (var word : new HashSet<>(words)) {
+            idsByWord.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    synchronized void remove(long id) {
+        var words = wordsById.remove(id);
+        if (words == null) {
+            return;
+        }
+
+        for (var word : words) {
+            idsByWord.computeIfPresent(word, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    synchronized void clear() {
+        idsByWord.clear();
+        wordsById.clear();
+    }
+
+    /**
+     * Finds the items whose titles match a search, best matches first.
+     *
+     * @param search the search, with at least one word
+     * @param offset the number of best matches to skip
+     * @param limit  the maximum number of matches to return
+     * @return       the ids of the matching items, ordered by rank and then by id
+     */
+    List<Long> search(TodoSearch search, long offset, int limit) {
+        var idsPerWord = new ArrayList<Collection<Long>>(search.words().size());
+        for (int i = 0; i < search.words().size(); i++) {
+            var ids = ids(search, i);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            idsPerWord.add(ids);
+        }
+        idsPerWord.sort(Comparator.comparingInt(Collection::size));
+
+        // The heap holds the best matches seen so far, with the worst of them on top so it's the one replaced
+        var size = (int) Math.min(offset + limit, Integer.MAX_VALUE);
+        var best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (var id : idsPerWord.get(0)) {
+            if (!containedInAll(id, idsPerWord)) {
+                continue;
+            }
+
+            var words = wordsById.get(id);
+            if (words == null) {
+                continue;
+            }
+
+            best.add(new Match(id, search.rank(words)));
+            if (best.size() > size) {
+                best.poll();
+            }
+        }
+
+        return best.stream()
+            .sorted(BEST_FIRST)
+            .skip(offset)
+            .map(Match::id)
+            .toList();
+    }
+
+    private Collection<Long> ids(TodoSearch search, int wordIndex) {
+        var word = search.words().get(wordIndex);
+        if (!search.isPrefix(wordIndex)) {
+            return idsByWord.getOrDefault(word, Set.of());
+        }
+
+        var prefixed = idsByWord.subMap(word, true, word + Character.MAX_VALUE, true);
+        if (prefixed.size() == 1) {
+            return prefixed.values().iterator().next();
+        }
+
+        var ids = new HashSet<Long>();
+        prefixed.values().forEach(ids::addAll);
+        return ids;
+    }
+
+    private static boolean containedInAll(long id, List<Collection<Long>> idsPerWord) {
+        for (int i = 1; i < idsPerWord.size(); i++) {
+            if (!idsPerWord.get(i).contains(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
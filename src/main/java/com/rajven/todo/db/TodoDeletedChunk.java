@@ -0,0 +1,22 @@
+package com.rajven.todo.db;
+
+import java.util.List;
+
+/**
+ * The items a delete of a chunk deleted, and how far its select got. Items that stopped matching between the select and
+ * the delete are selected but not deleted, so a chunk may delete none of the items it selected while more come after them.
+ *
+ * @param deletedItems   the deleted items, in the sort order of the query
+ * @param lastSelectedId the id of the last item selected for the chunk, or null if no item matched the query
+ */
+public record TodoDeletedChunk(List<TodoItem> deletedItems, Long lastSelectedId) {
+
+    /**
+     * @param selectedItems the items selected for the chunk, in the sort order of the query
+     * @param deletedItems  the selected items that were deleted
+     * @return              the chunk
+     */
+    public static TodoDeletedChunk of(List<TodoItem> selectedItems, List<TodoItem> deletedItems) {
+        return new TodoDeletedChunk(deletedItems, selectedItems.isEmpty() ? null : selectedItems.get(selectedItems.size() - 1).getId());
+    }
+}
@@ -2,6 +2,7 @@ package com.rajven.todo.db;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -12,7 +13,7 @@ import org.springframework.data.relational.core.mapping.Table;
 @Data
 @ToString
 @Builder
-@AllArgsConstructor
+@AllArgsConstructor(onConstructor_ = @PersistenceConstructor)
 public class TodoItem {
 
     @Id
@@ -27,4 +28,26 @@ public class TodoItem {
 
     @Column("sort_order")
     private Long order;
+
+    /**
+     * Changes on every write of the item. Versions are taken from a sequence shared by all items, so a version is never
+     * used twice. It's assigned by the database, and is null for items that have not been written yet.
+     */
+    @Column("version")
+    private Long version;
+
+    /**
+     * The list the item is on, or null for items that are on no list. It's set when the item is created and never
+     * changes, since it decides which shard the item is stored on.
+     */
+    @Column("list_key")
+    private String list;
+
+    public TodoItem(long id, String title, boolean completed, Long order) {
+        this(id, title, completed, order, null);
+    }
+
+    public TodoItem(long id, String title, boolean completed, Long order, Long version) {
+        this(id, title, completed, order, version, null);
+    }
 }
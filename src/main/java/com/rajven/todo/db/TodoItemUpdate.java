@@ -0,0 +1,10 @@
+package com.rajven.todo.db;
+
+/**
+ * A {@link TodoItem} after an update, with the completion state it had right before that update.
+ *
+ * @param wasCompleted whether the item was completed before the update
+ * @param updatedItem  the item after the update
+ */
+public record TodoItemUpdate(boolean wasCompleted, TodoItem updatedItem) {
+}
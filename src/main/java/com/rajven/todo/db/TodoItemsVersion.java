@@ -0,0 +1,14 @@
+package com.rajven.todo.db;
+
+/**
+ * A cheap summary of all {@link TodoItem}s that changes whenever any item is created, updated or deleted.
+ * <p>
+ * Every write takes a new version from a sequence that only grows, so while the number of items stays the same, an update
+ * or a delete followed by a create raises the sum of the versions. Unlike the highest version, the sum also changes when
+ * concurrent transactions commit in a different order than they took their versions in.
+ *
+ * @param count      the number of items
+ * @param versionSum the sum of the versions of all items, wrapping around on overflow
+ */
+public record TodoItemsVersion(long count, long versionSum) {
+}
@@ -0,0 +1,352 @@
+package com.rajven.todo.db;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.zip.CRC32C;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Append-only log of the writes to the in-memory storage engine, kept in a memory mapped file.
+ * <p>
+ * Every append is one frame: the length of the payload, a CRC32C checksum of the payload and the payload itself, which
+ * holds one or more entries. On replay a frame is only applied when its checksum matches, so an append that was torn by
+ * a crash is dropped as a whole and a multi-item write is never half applied. The part of the file that has not been
+ * written yet is zero filled, which reads as a frame of length zero and ends the replay.
+ * <p>
+ * When the log is opened it is replayed and then compacted, by writing the live items to a new file that atomically
+ * replaces the old one. Appending continues in the new file, so the log only grows with the writes since the last start.
+ */
+@Log4j2
+public class TodoLog implements Closeable {
+    private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int COMPACTION_FRAME_SIZE = 1024;
+    private static final String COMPACTION_SUFFIX = ".compacting";
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte SEQUENCES = 4;
+
+    private static final byte COMPLETED = 1;
+    private static final byte HAS_TITLE = 1 << 1;
+    private static final byte HAS_ORDER = 1 << 2;
+    private static final byte HAS_VERSION = 1 << 3;
+    private static final byte HAS_LIST = 1 << 4;
+
+    sealed interface Entry permits Put, Delete, Clear, Sequences {
+    }
+
+    /**
+     * Stores an item under its id, replacing any previous version of it.
+     */
+    record Put(TodoItem item) implements Entry {
+    }
+
+    record Delete(long id) implements Entry {
+    }
+
+    record Clear() implements Entry {
+    }
+
+    /**
+     * Records the highest id and version ever assigned, so that compaction does not lose them when the items that had
+     * them have been deleted.
+     */
+    record Sequences(long lastId, long lastVersion) implements Entry {
+    }
+
+    private final FileChannel channel;
+    private final boolean forceOnWrite;
+    private final Sequences sequences;
+    private MappedByteBuffer buffer;
+    private int position;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+
+    private TodoLog(FileChannel channel, long initialSize, boolean forceOnWrite, Sequences sequences) throws IOException {
+        this.channel = channel;
+        this.forceOnWrite = forceOnWrite;
+        this.sequences = sequences;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialSize, FRAME_HEADER_SIZE));
+    }
+
+    /**
+     * Replays the log at {@code path} into {@code items}, compacts it and opens it for appending.
+     * A missing log is treated as an empty one.
+     *
+     * @param path         the path of the log file
+     * @param initialSize  how many bytes of the file to map up front
+     * @param forceOnWrite whether every append is forced to disk before it returns
+     * @param items        the map to replay the live items into, by id
+     * @return             the log, ready for appending
+     * @throws IOException if the log could not be read or written
+     */
+    public static TodoLog open(Path path, long initialSize, boolean forceOnWrite, NavigableMap<Long, TodoItem> items) throws IOException {
+        var start = System.nanoTime();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        var sequences = Files.exists(path) ? replay(path, items) : new Sequences(0, 0);
+
+        var compactingPath = path.resolveSibling(path.getFileName() + COMPACTION_SUFFIX);
+        Files.deleteIfExists(compactingPath);
+
+        var todoLog = new TodoLog(FileChannel.open(compactingPath, CREATE_NEW, READ, WRITE), initialSize, forceOnWrite, sequences);
+        todoLog.append(List.of(sequences));
+
+        var frame = new ArrayList<Entry>(COMPACTION_FRAME_SIZE);
+        for (var item : items.values()) {
+            frame.add(new Put(item));
+            if (frame.size() == COMPACTION_FRAME_SIZE) {
+                todoLog.append(frame);
+                frame.clear();
+            }
+        }
+        if (!frame.isEmpty()) {
+            todoLog.append(frame);
+        }
+
+        todoLog.buffer.force();
+        Files.move(compactingPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        log.info("Opened {} with {} items, compacted to {} bytes in {} ms",
+            path, items.size(), todoLog.position, (System.nanoTime() - start) / 1_000_000);
+        return todoLog;
+    }
+
+    /**
+     * Gets the highest id and version that had been assigned when the log was opened, whether or not the items that had
+     * them still exist.
+     *
+     * @return the highest id and version found in the log, or zeros if no item was ever stored
+     */
+    public Sequences sequences() {
+        return sequences;
+    }
+
+    /**
+     * Appends the given entries as one frame, so they are either all replayed or none of them are.
+     *
+     * @param entries the entries to append
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public synchronized void append(List<? extends Entry> entries) {
+        scratch.clear();
+        ensureScratch(Integer.BYTES);
+        scratch.putInt(entries.size());
+        for (var entry : entries) {
+            encode(entry);
+        }
+        scratch.flip();
+
+        var length = scratch.remaining();
+        var crc = new CRC32C();
+        crc.update(scratch.array(), 0, length);
+
+        try {
+            ensureCapacity(FRAME_HEADER_SIZE + length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // The length is written last, so a frame never looks complete before its payload is in place
+        buffer.put(position + FRAME_HEADER_SIZE, scratch.array(), 0, length);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length);
+        if (forceOnWrite) {
+            buffer.force(position, FRAME_HEADER_SIZE + length);
+        }
+        position += FRAME_HEADER_SIZE + length;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static Sequences replay(Path path, NavigableMap<Long, TodoItem> items) throws IOException {
+        var lastId = 0L;
+        var lastVersion = 0L;
+        var frames = 0;
+
+        try (var channel = FileChannel.open(path, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            var position = 0;
+
+            while (buffer.limit() - position >= FRAME_HEADER_SIZE) {
+                var length = buffer.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+
+                var payload = length > 0 && length <= buffer.limit() - position - FRAME_HEADER_SIZE
+                    ? buffer.slice(position + FRAME_HEADER_SIZE, length)
+                    : null;
+                var entries = payload != null && checksumMatches(payload, buffer.getInt(position + Integer.BYTES))
+                    ? decode(payload)
+                    : null;
+                if (entries == null) {
+                    log.warn("Ignoring {} from offset {} on, the frame there is incomplete or corrupt", path, position);
+                    break;
+                }
+
+                for (var entry : entries) {
+                    apply(entry, items);
+                    if (entry instanceof Put put) {
+                        lastId = Math.max(lastId, put.item().getId());
+                        lastVersion = Math.max(lastVersion, put.item().getVersion() != null ? put.item().getVersion() : 0);
+                    } else if (entry instanceof Sequences replayed) {
+                        lastId = Math.max(lastId, replayed.lastId());
+                        lastVersion = Math.max(lastVersion, replayed.lastVersion());
+                    }
+                }
+                frames++;
+                position += FRAME_HEADER_SIZE + length;
+            }
+        }
+
+        log.info("Replayed {} frames from {}", frames, path);
+        return new Sequences(lastId, lastVersion);
+    }
+
+    /**
+     * Applies an entry to a map of items.
+     *
+     * @param entry the entry to apply
+     * @param items the items to apply it to, by id
+     */
+    static void apply(Entry entry, NavigableMap<Long, TodoItem> items) {
+        if (entry instanceof Put put) {
+            items.put(put.item().getId(), put.item());
+        } else if (entry instanceof Delete delete) {
+            items.remove(delete.id());
+        } else if (entry instanceof Clear) {
+            items.clear();
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer payload, int checksum) {
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == checksum;
+    }
+
+    private static List<Entry> decode(ByteBuffer payload) {
+        try {
+            var count = payload.getInt();
+            var entries = new ArrayList<Entry>(count);
+            for (int i = 0; i < count; i++) {
+                var type = payload.get();
+                entries.add(switch (type) {
+                    case PUT -> new Put(decodeItem(payload));
+                    case DELETE -> new Delete(payload.getLong());
+                    case CLEAR -> new Clear();
+                    case SEQUENCES -> new Sequences(payload.getLong(), payload.getLong());
+                    default -> throw new IllegalArgumentException("Unknown entry type " + type);
+                });
+            }
+
+            return entries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static TodoItem decodeItem(ByteBuffer payload) {
+        var id = payload.getLong();
+        var flags = payload.get();
+        var order = (flags & HAS_ORDER) != 0 ? payload.getLong() : null;
+        var version = (flags & HAS_VERSION) != 0 ? payload.getLong() : null;
+
+        String title = null;
+        if ((flags & HAS_TITLE) != 0) {
+            var titleBytes = new byte[payload.getInt()];
+            payload.get(titleBytes);
+            title = new String(titleBytes, UTF_8);
+        }
+
+        String list = null;
+        if ((flags & HAS_LIST) != 0) {
+            var listBytes = new byte[payload.getInt()];
+            payload.get(listBytes);
+            list = new String(listBytes, UTF_8);
+        }
+
+        return new TodoItem(id, title, (flags & COMPLETED) != 0, order, version, list);
+    }
+
+    private void encode(Entry entry) {
+        if (entry instanceof Put put) {
+            var item = put.item();
+            var title = item.getTitle() != null ? item.getTitle().getBytes(UTF_8) : null;
+            var list = item.getList() != null ? item.getList().getBytes(UTF_8) : null;
+            ensureScratch(1 + Long.BYTES + 1 + 2 * Long.BYTES + 2 * Integer.BYTES
+                + (title != null ? title.length : 0) + (list != null ? list.length : 0));
+
+            var flags = (item.isCompleted() ? COMPLETED : 0)
+                | (title != null ? HAS_TITLE : 0)
+                | (item.getOrder() != null ? HAS_ORDER : 0)
+                | (item.getVersion() != null ? HAS_VERSION : 0)
+                | (list != null ? HAS_LIST : 0);
+            scratch.put(PUT).putLong(item.getId()).put((byte) flags);
+            if (item.getOrder() != null) {
+                scratch.putLong(item.getOrder());
+            }
+            if (item.getVersion() != null) {
+                scratch.putLong(item.getVersion());
+            }
+            if (title != null) {
+                scratch.putInt(title.length).put(title);
+            }
+            if (list != null) {
+                scratch.putInt(list.length).put(list);
+            }
+        } else if (entry instanceof Delete delete) {
+            ensureScratch(1 + Long.BYTES);
+            scratch.put(DELETE).putLong(delete.id());
+        } else if (entry instanceof Clear) {
+            ensureScratch(1);
+            scratch.put(CLEAR);
+        } else if (entry instanceof Sequences written) {
+            ensureScratch(1 + 2 * Long.BYTES);
+            scratch.put(SEQUENCES).putLong(written.lastId()).putLong(written.lastVersion());
+        }
+    }
+
+    private void ensureScratch(int needed) {
+        if (scratch.remaining() < needed) {
+            var grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + needed));
+            grown.put(scratch.flip());
+            scratch = grown;
+        }
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (buffer.capacity() - position >= needed) {
+            return;
+        }
+
+        var size = Math.max(2L * buffer.capacity(), (long) position + needed);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The log is full, restart to compact it");
+        }
+
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
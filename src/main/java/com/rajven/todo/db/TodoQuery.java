@@ -0,0 +1,102 @@
+package com.rajven.todo.db;
+
+import java.util.Comparator;
+
+/**
+ * Selects which {@link TodoItem}s to list, in which order, and where in that order to continue.
+ *
+ * @param list        only list items on this list, or null to list items regardless of their list
+ * @param completed   only list items with this completion state, or null to list items regardless of it
+ * @param titlePrefix only list items whose title starts with this, compared case sensitively, or null to list all titles
+ * @param sortBy      the order to list the items in
+ * @param after       the position to continue after, or null to start from the first item
+ */
+public record TodoQuery(String list, Boolean completed, String titlePrefix, SortBy sortBy, Cursor after) {
+
+    public enum SortBy {
+        /**
+         * By id, which is the order the items were created in.
+         */
+        ID,
+        /**
+         * By the order set by clients, with items without an order last, and by id among items with the same order.
+         */
+        ORDER
+    }
+
+    /**
+     * The position of an item in the sort order of a query.
+     *
+     * @param id    the id of the item
+     * @param order the order of the item, or null if it has none. Only used when sorting by order.
+     */
+    public record Cursor(long id, Long order) {
+
+        public static Cursor of(TodoItem todoItem) {
+            return new Cursor(todoItem.getId(), todoItem.getOrder());
+        }
+    }
+
+    private static final Comparator<TodoItem> BY_ORDER = Comparator
+        .comparing(TodoItem::getOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparingLong(TodoItem::getId);
+
+    /**
+     * Lists all items ordered by id, starting after the given id.
+     *
+     * @param afterId the id to continue after, or null to start from the first item
+     * @return        the query
+     */
+    public static TodoQuery afterId(Long afterId) {
+        return new TodoQuery(null, null, null, SortBy.ID, afterId != null ? new Cursor(afterId, null) : null);
+    }
+
+    /**
+     * Checks whether an item is selected by the filters of this query, ignoring where it continues.
+     *
+     * @param todoItem the item to check
+     * @return         true if the item is selected
+     */
+    public boolean matches(TodoItem todoItem) {
+        return (list == null || list.equals(todoItem.getList()))
+            && (completed == null || completed == todoItem.isCompleted())
+            && (titlePrefix == null || (todoItem.getTitle() != null && todoItem.getTitle().startsWith(titlePrefix)));
+    }
+
+    /**
+     * Checks whether an item comes after the cursor of this query, in the sort order of this query.
+     *
+     * @param todoItem the item to check
+     * @return         true if the item comes after the cursor, or if there is no cursor
+     */
+    public boolean isAfterCursor(TodoItem todoItem) {
+        if (after == null) {
+            return true;
+        }
+
+        return sortBy == SortBy.ID
+            ? todoItem.getId() > after.id()
+            : BY_ORDER.compare(todoItem, new TodoItem(after.id(), null, false, after.order())) > 0;
+    }
+
+    /**
+     * Checks whether an item comes before the cursor of this query, in the sort order of this query.
+     *
+     * @param todoItem the item to check
+     * @return         true if the item comes before the cursor, false if it doesn't or if there is no cursor
+     */
+    public boolean isBeforeCursor(TodoItem todoItem) {
+        return after != null && comparator().compare(todoItem, new TodoItem(after.id(), null, false, after.order())) < 0;
+    }
+
+    /**
+     * Gets a comparator that sorts items in the sort order of this query.
+     *
+     * @return the comparator
+     */
+    public Comparator<TodoItem> comparator() {
+        return sortBy == SortBy.ID
+            ? Comparator.comparingLong(TodoItem::getId)
+            : BY_ORDER;
+    }
+}
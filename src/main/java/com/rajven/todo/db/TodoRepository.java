@@ -1,34 +1,69 @@
 package com.rajven.todo.db;
 
-import static org.springframework.data.domain.Sort.Order.asc;
-import static org.springframework.data.domain.Sort.by;
-import static org.springframework.data.relational.core.query.Criteria.where;
-
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
-import org.springframework.data.relational.core.query.Query;
-import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Map;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.rajven.todo.api.TodoCreateCommand;
 import com.rajven.todo.api.TodoUpdateCommand;
 
-@Repository
-@RequiredArgsConstructor
-public class TodoRepository {
-    private final R2dbcEntityTemplate template;
+/**
+ * Storage of {@link TodoItem}s. Backed by a database through R2DBC by default, or kept in memory when the
+ * {@code in-memory} profile is active.
+ */
+public interface TodoRepository {
+
+    /**
+     * Gets all {@link TodoItem}s selected by the query that come after its cursor, in the order of the query.
+     *
+     * @param query the filters, order and cursor of the items to get
+     * @return      a {@link Flux} that emits all matching items
+     */
+    Flux<TodoItem> getAll(TodoQuery query);
+
+    /**
+     * Gets at most {@code limit} {@link TodoItem}s selected by the query that come after its cursor, in the order of the query.
+     *
+     * @param query the filters, order and cursor of the items to get
+     * @param limit the maximum number of items to return
+     * @return      a {@link Flux} that emits the items of the page
+     */
+    Flux<TodoItem> getPage(TodoQuery query, int limit);
+
+    /**
+     * Gets at most {@code limit} {@link TodoItem}s selected by the query that come before its cursor, in the reverse order
+     * of the query, i.e. the item right before the cursor first.
+     *
+     * @param query the filters, order and cursor of the items to get, with the cursor set
+     * @param limit the maximum number of items to return
+     * @return      a {@link Flux} that emits the items before the cursor, closest first
+     */
+    Flux<TodoItem> getPageBefore(TodoQuery query, int limit);
+
+    /**
+     * Searches the titles of all {@link TodoItem}s, best matches first. Ties are ordered by id.
+     *
+     * @param search the words to search for, at least one
+     * @param offset the number of best matches to skip
+     * @param limit  the maximum number of items to return
+     * @return       a {@link Flux} that emits the matching items of the page
+     */
+    Flux<TodoItem> search(TodoSearch search, long offset, int limit);
 
     /**
-     * Gets all {@link TodoItem}s.
+     * Gets a summary of all {@link TodoItem}s that changes whenever any of them is written, without reading the items.
      *
-     * @return a {@link Flux} that emits all existing items
+     * @return a {@link Mono} that emits the current {@link TodoItemsVersion}
      */
-    public Flux<TodoItem> getAll() {
-        return template.select(TodoItem.class)
-            .matching(Query.empty()
-                .sort(by(asc("id"))))
-            .all();
-    }
+    Mono<TodoItemsVersion> getItemsVersion();
+
+    /**
+     * Counts all {@link TodoItem}s, in total and by completion state. This has to look at every item.
+     *
+     * @return a {@link Mono} that emits the current {@link TodoStats}
+     */
+    Mono<TodoStats> countItems();
 
     /**
      * Finds the {@link TodoItem} with the given id.
@@ -36,12 +71,7 @@ public class TodoRepository {
      * @param id the id of the item to find
      * @return   a {@link Mono} that emits the item with the given id, or {@link Mono}.empty()
      */
-    public Mono<TodoItem> findById(long id) {
-        return template.select(TodoItem.class)
-            .matching(Query.query(where("id").is(id))
-                .sort(by(asc("id"))))
-            .one();
-    }
+    Mono<TodoItem> findById(long id);
 
     /**
      * Creates a new {@link TodoItem} based on the given create command.
@@ -49,10 +79,15 @@ public class TodoRepository {
      * @param todoCreateCmd the {@link TodoCreateCommand} containing the properties of the item to create
      * @return              a {@link Mono} that emits the created item
      */
-    public Mono<TodoItem> create(TodoCreateCommand todoCreateCmd) {
-        return template.insert(TodoItem.class)
-            .using(todoCreateCmd.toTodoItem());
-    }
+    Mono<TodoItem> create(TodoCreateCommand todoCreateCmd);
+
+    /**
+     * Creates one {@link TodoItem} per create command.
+     *
+     * @param createCmds the {@link TodoCreateCommand}s containing the properties of the items to create
+     * @return           a {@link Flux} that emits the created items, with their generated ids, in the order of the commands
+     */
+    Flux<TodoItem> createAll(List<TodoCreateCommand> createCmds);
 
     /**
      * Updates the {@link TodoItem} with the specified id, based on the given update command.
@@ -62,34 +97,51 @@ public class TodoRepository {
      * @param updateCmd the command containing the updates to apply
      * @return          a {@link Mono } that emits the updated item, or {@link Mono}.empty() if no element was found
      */
-    public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
-        return template.update(TodoItem.class)
-            .matching(Query.query(where("id").is(id)))
-            .apply(TodoUpdateBuilder.withUpdates(updateCmd))
-            .flatMap(rowsAffected -> findById(id));
-    }
+    Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd);
+
+    /**
+     * Updates the {@link TodoItem} with the specified id like {@link #update}, and tells whether it was completed before.
+     * The previous state is read as part of the write, so of two concurrent updates of the item, the later one sees the
+     * state the earlier one left.
+     *
+     * @param id        the id of the item to update
+     * @param updateCmd the command containing the updates to apply
+     * @return          a {@link Mono} that emits the updated item with its previous completion state, or {@link Mono}.empty()
+     *                  if no element was found
+     */
+    Mono<TodoItemUpdate> updateWithPrevious(long id, TodoUpdateCommand updateCmd);
+
+    /**
+     * Updates many {@link TodoItem}s atomically, either all updates are applied or none of them.
+     * Only properties that have been explicitly set in a {@link TodoUpdateCommand} will be updated.
+     *
+     * @param updateCmds the commands containing the updates to apply, by the id of the item to update
+     * @return           a {@link Flux} that emits the items after the updates, ordered by id, skipping ids that were not found
+     */
+    Flux<TodoItem> updateAll(Map<Long, TodoUpdateCommand> updateCmds);
 
     /**
      * Deletes the {@link TodoItem} with the specified id.
      *
      * @param id the id of the item to delete
-     * @return   a {@link Mono} that emits true if the item was deleted, otherwise false
+     * @return   a {@link Mono} that emits the item as it was when it was deleted, or {@link Mono}.empty() if it was not found
+     */
+    Mono<TodoItem> delete(long id);
+
+    /**
+     * Deletes the first {@link TodoItem}s selected by the query that come after its cursor, in its sort order.
+     * Items that are changed concurrently so that they no longer match the query are not deleted.
+     *
+     * @param query the filters, order and cursor of the items to delete
+     * @param limit the maximum number of items to select, and so to delete
+     * @return      a {@link Mono} that emits the deleted items and the id of the last selected item
      */
-    public Mono<Boolean> delete(long id) {
-        return template.delete(TodoItem.class)
-            .matching(Query.query(where("id").is(id)))
-            .all()
-            .map(deletedRows -> deletedRows > 0);
-    }
+    Mono<TodoDeletedChunk> deleteChunk(TodoQuery query, int limit);
 
     /**
      * Deletes all {@link TodoItem}s.
      *
      * @return a {@link Mono} that emits Void
      */
-    public Mono<Void> deleteAll() {
-        return template.delete(TodoItem.class)
-            .all()
-            .then();
-    }
+    Mono<Void> deleteAll();
 }
@@ -0,0 +1,97 @@
+package com.rajven.todo.db;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A full-text search over the titles of todo items.
+ * <p>
+ * Text is split into words the way the {@code simple} text search configuration of Postgres does it: lower cased and
+ * separated by anything that is not a letter or a digit. An item matches when its title contains all words of the
+ * search, where the last word also matches as a prefix, so results show up while the last word is still being typed.
+ *
+ * @param words the words to search for, in the order they were given
+ */
+public record TodoSearch(List<String> words) {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Parses a search from text entered by a user.
+     *
+     * @param text the text to search for
+     * @return     the search, without words if the text has none
+     */
+    public static TodoSearch parse(String text) {
+        return new TodoSearch(words(text));
+    }
+
+    /**
+     * Splits text into lower cased words.
+     *
+     * @param text the text to split, may be null
+     * @return     the words in the order they occur, including repeated words
+     */
+    public static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+            .filter(word -> !word.isEmpty())
+            .toList();
+    }
+
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    /**
+     * Checks whether a title matches this search.
+     *
+     * @param title the title to check, may be null
+     * @return      true if the title contains all words of this search
+     */
+    public boolean matches(String title) {
+        var titleWords = words(title);
+        for (int i = 0; i < words.size(); i++) {
+            if (rank(titleWords, i) == 0) {
+                return false;
+            }
+        }
+
+        return !words.isEmpty();
+    }
+
+    /**
+     * Ranks the words of a title by how often the words of this search occur in it.
+     *
+     * @param titleWords the words of the title
+     * @return           the number of words in the title that match a word of this search
+     */
+    public int rank(List<String> titleWords) {
+        var rank = 0;
+        for (int i = 0; i < words.size(); i++) {
+            rank += rank(titleWords, i);
+        }
+
+        return rank;
+    }
+
+    boolean isPrefix(int wordIndex) {
+        return wordIndex == words.size() - 1;
+    }
+
+    private int rank(List<String> titleWords, int wordIndex) {
+        var word = words.get(wordIndex);
+        var rank = 0;
+        for (var titleWord : titleWords) {
+            if (isPrefix(wordIndex) ? titleWord.startsWith(word) : titleWord.equals(word)) {
+                rank++;
+            }
+        }
+
+        return rank;
+    }
+}
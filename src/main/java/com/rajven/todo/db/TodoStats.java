@@ -0,0 +1,14 @@
+package com.rajven.todo.db;
+
+/**
+ * The number of {@link TodoItem}s, in total and by completion state.
+ *
+ * @param total     the number of items
+ * @param completed the number of completed items
+ */
+public record TodoStats(long total, long completed) {
+
+    public long active() {
+        return total - completed;
+    }
+}
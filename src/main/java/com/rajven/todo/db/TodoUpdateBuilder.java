@@ -1,7 +1,10 @@
 package com.rajven.todo.db;
 
+import java.util.Map;
+
 import org.openapitools.jackson.nullable.JsonNullable;
 import org.springframework.data.relational.core.query.Update;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
 import com.rajven.todo.api.TodoUpdateCommand;
 
 /**
@@ -15,6 +18,11 @@ public class TodoUpdateBuilder {
     private static final String COMPLETED_COLUMN_NAME = "completed";
     private static final String ORDER_COLUMN_NAME = "sort_order";
 
+    private static final Map<String, Class<?>> COLUMN_TYPES = Map.of(
+        TITLE_COLUMN_NAME, String.class,
+        COMPLETED_COLUMN_NAME, Boolean.class,
+        ORDER_COLUMN_NAME, Long.class);
+
     /**
      * Determines which properties of the {@link TodoUpdateCommand} contains updates that should be persisted.
      * The update command is expected to contain at least one update, otherwise null is returned.
@@ -29,8 +37,9 @@ public class TodoUpdateBuilder {
             update = createOrAppend(update, TITLE_COLUMN_NAME, cmd.getTitle());
         }
 
+        // An item is either completed or not, so like on create a null means not completed
         if (cmd.getCompleted().isPresent()) {
-            update = createOrAppend(update, COMPLETED_COLUMN_NAME, cmd.getCompleted());
+            update = createOrAppend(update, COMPLETED_COLUMN_NAME, JsonNullable.of(Boolean.TRUE.equals(cmd.getCompleted().get())));
         }
 
         if (cmd.getOrder().isPresent()) {
@@ -40,6 +49,16 @@ public class TodoUpdateBuilder {
         return update;
     }
 
+    /**
+     * Gets the Java type of an updatable column, needed to bind null values when writing SQL by hand.
+     *
+     * @param column the column that is updated
+     * @return       the Java type of the values of that column
+     */
+    public static Class<?> columnType(SqlIdentifier column) {
+        return COLUMN_TYPES.get(column.getReference());
+    }
+
     private static <T> Update createOrAppend(Update update, String columnName, JsonNullable<T> updateProperty) {
         return update == null
             ? Update.update(columnName, updateProperty.get())
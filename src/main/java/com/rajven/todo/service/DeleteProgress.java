@@ -0,0 +1,11 @@
+package com.rajven.todo.service;
+
+/**
+ * How far a delete of the items that match a filter has come.
+ *
+ * @param deleted the number of items deleted so far
+ * @param lastId  the highest id deleted so far, or null if none was deleted
+ * @param done    whether all matching items have been deleted
+ */
+public record DeleteProgress(long deleted, Long lastId, boolean done) {
+}
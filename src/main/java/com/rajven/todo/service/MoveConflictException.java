@@ -0,0 +1,11 @@
+package com.rajven.todo.service;
+
+/**
+ * Signals that an item can't be moved where it was asked to, because of the current state of the items involved.
+ */
+public class MoveConflictException extends RuntimeException {
+
+    public MoveConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,230 @@
+package com.rajven.todo.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static reactor.core.publisher.BufferOverflowStrategy.DROP_LATEST;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+import com.rajven.todo.config.Constants;
+import com.rajven.todo.config.TodoEventsProperties;
+import com.rajven.todo.db.ReadSource;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoRepository;
+
+/**
+ * Relays {@link TodoEvent}s between all nodes that share a Postgres database, with {@code NOTIFY} and {@code LISTEN}
+ * on the configured channel. Only enabled on Postgres.
+ * <p>
+ * Events are sent in the order they were published, through the connection pool. Events published within a
+ * millisecond of each other are sent with one statement, so a burst of writes takes few round trips. Notifications are received on a
+ * connection of their own, outside the pool, which is reopened with backoff when it's lost. Notifications sent while no
+ * connection was listening are lost, so a {@link TodoEvent.Type#RESYNC} is emitted after every reconnect.
+ * <p>
+ * Postgres limits the payload of a notification to 8000 bytes, so an item that doesn't fit is left out and read from
+ * the repository by the receiving nodes instead.
+ */
+@Component
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+@Log4j2
+public class PostgresTodoEventRelay {
+    private static final String POSTGRES_DATABASE_NAME = "PostgreSQL";
+    private static final String NOTIFY_SQL = "SELECT pg_notify($1, payload) FROM unnest($2::text[]) AS payload";
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+    private static final int OUTBOX_SIZE = 4096;
+    private static final int BATCH_SIZE = 256;
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(1);
+    private static final Duration MIN_RECONNECT_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_RECONNECT_BACKOFF = Duration.ofSeconds(10);
+    // The channel is part of the LISTEN statement, which can't take it as a parameter
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    /**
+     * The payload of a notification.
+     *
+     * @param item the item after the change, or null if there is none or it didn't fit into the notification
+     */
+    record Payload(TodoEvent.Type type, long id, Item item) {
+    }
+
+    record Item(String title, boolean completed, Long order, Long version, String list) {
+    }
+
+    private final boolean enabled;
+    private final String channel;
+    private final ConnectionFactory listenConnectionFactory;
+    private final DatabaseClient databaseClient;
+    private final TodoRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Sinks.Many<TodoEvent> outbox = Sinks.many().unicast().onBackpressureBuffer(Queues.<TodoEvent>get(OUTBOX_SIZE).get());
+    private final Disposable sending;
+
+    public PostgresTodoEventRelay(ConnectionFactory connectionFactory, DatabaseClient databaseClient, TodoRepository repository,
+                                  ObjectMapper objectMapper, TodoEventsProperties properties) {
+        if (!CHANNEL_PATTERN.matcher(properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("todo.events.channel must be a lowercase identifier, but was " + properties.getChannel());
+        }
+
+        this.enabled = POSTGRES_DATABASE_NAME.equals(connectionFactory.getMetadata().getName());
+        this.channel = properties.getChannel();
+        this.listenConnectionFactory = unpooled(connectionFactory);
+        this.databaseClient = databaseClient;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.sending = enabled
+            ? outbox.asFlux()
+                .bufferTimeout(BATCH_SIZE, BATCH_WINDOW)
+                .onBackpressureBuffer(OUTBOX_SIZE / BATCH_SIZE, this::dropped, DROP_LATEST)
+                .concatMap(this::notify, 1)
+                .subscribe()
+            : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sends an event to all nodes, including this one. Sending happens in the background, and an event that can't be
+     * sent is logged and dropped.
+     *
+     * @param event the event to send
+     */
+    public synchronized void send(TodoEvent event) {
+        if (outbox.tryEmitNext(event).isFailure()) {
+            log.warn("Dropped {} event of item {}, too many events are waiting to be sent", event.type(), event.id());
+        }
+    }
+
+    /**
+     * Listens for the events sent by all nodes. Every subscription listens on a connection of its own.
+     *
+     * @return a {@link Flux} that emits the events until it's cancelled
+     */
+    public Flux<TodoEvent> events() {
+        return Flux.defer(() -> {
+            var reconnected = new boolean[1];
+
+            return Flux.usingWhen(Mono.<Connection>from(listenConnectionFactory.create()),
+                    connection -> {
+                        var resync = reconnected[0];
+                        reconnected[0] = true;
+                        return listen((PostgresqlConnection) connection, resync);
+                    },
+                    Connection::close)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_RECONNECT_BACKOFF)
+                    .maxBackoff(MAX_RECONNECT_BACKOFF)
+                    .transientErrors(true)
+                    .doBeforeRetry(signal -> log.warn("Listening on {} failed, reconnecting: {}", channel, signal.failure().toString())))
+                .concatMap(this::toEvent);
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sending != null) {
+            sending.dispose();
+        }
+    }
+
+    private Flux<Payload> listen(PostgresqlConnection connection, boolean resync) {
+        var listened = connection.createStatement("LISTEN " + channel)
+            .execute()
+            .flatMap(PostgresqlResult::getRowsUpdated)
+            .thenMany(resync ? Flux.just(new Payload(TodoEvent.Type.RESYNC, 0, null)) : Flux.empty())
+            .doOnComplete(() -> log.info("Listening for todo events on {}", channel));
+
+        // The notifications are subscribed to first, so none that arrive right after the LISTEN are missed
+        return Flux.merge(connection.getNotifications().flatMap(this::parse), listened)
+            .concatWith(Mono.error(() -> new IllegalStateException("The connection was closed")));
+    }
+
+    private Mono<Void> notify(List<TodoEvent> events) {
+        return databaseClient.sql(NOTIFY_SQL)
+            .bind(0, channel)
+            .bind(1, events.stream().map(this::serialize).toArray(String[]::new))
+            .then()
+            .onErrorResume(e -> {
+                log.warn("Failed to send {} events: {}", events.size(), e.toString());
+                return Mono.empty();
+            });
+    }
+
+    private void dropped(List<TodoEvent> events) {
+        log.warn("Dropped {} events, too many events are waiting to be sent", events.size());
+    }
+
+    private Mono<TodoEvent> toEvent(Payload payload) {
+        if (payload.item() != null) {
+            var item = payload.item();
+            return Mono.just(new TodoEvent(payload.type(), payload.id(),
+                new TodoItem(payload.id(), item.title(), item.completed(), item.order(), item.version(), item.list())));
+        }
+
+        if (payload.type() == TodoEvent.Type.CREATED || payload.type() == TodoEvent.Type.UPDATED) {
+            // The item didn't fit into the notification. If it was deleted since, the event of that follows. The read
+            // replica may not have the change yet.
+            return repository.findById(payload.id())
+                .map(todoItem -> new TodoEvent(payload.type(), payload.id(), todoItem))
+                .contextWrite(ReadSource.PRIMARY.context());
+        }
+
+        return Mono.just(new TodoEvent(payload.type(), payload.id(), null));
+    }
+
+    private String serialize(TodoEvent event) {
+        try {
+            var todoItem = event.item();
+            var item = todoItem != null
+                ? new Item(todoItem.getTitle(), todoItem.isCompleted(), todoItem.getOrder(), todoItem.getVersion(), todoItem.getList())
+                : null;
+            var payload = objectMapper.writeValueAsString(new Payload(event.type(), event.id(), item));
+            if (item != null && payload.getBytes(UTF_8).length > MAX_PAYLOAD_BYTES) {
+                payload = objectMapper.writeValueAsString(new Payload(event.type(), event.id(), null));
+            }
+
+            return payload;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + event.type() + " event", e);
+        }
+    }
+
+    private Mono<Payload> parse(Notification notification) {
+        try {
+            return Mono.just(objectMapper.readValue(notification.getParameter(), Payload.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring a notification on {} that is not a todo event: {}", channel, e.getOriginalMessage());
+            return Mono.empty();
+        }
+    }
+
+    // Listening takes a connection for as long as the application runs, which must not be one the pool hands out
+    private static ConnectionFactory unpooled(ConnectionFactory connectionFactory) {
+        var unwrapped = connectionFactory;
+        while (unwrapped instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof ConnectionFactory inner) {
+            unwrapped = inner;
+        }
+
+        return unwrapped;
+    }
+}
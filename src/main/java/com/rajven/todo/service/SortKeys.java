@@ -0,0 +1,96 @@
+package com.rajven.todo.service;
+
+/**
+ * Picks the orders of moved and rebalanced items, so that there is room between the orders of neighbouring items.
+ * A moved item gets the order halfway between its neighbours, so every move to the same place halves the room there,
+ * and items at the start or end of a list get an order a gap away from the first or last item.
+ * <p>
+ * Orders are compared as signed numbers, but differences between them are taken as unsigned, so that they never
+ * overflow, whatever orders clients gave their items.
+ */
+final class SortKeys {
+    private final long gap;
+    private final long minGap;
+
+    /**
+     * @param gap    the distance between neighbouring orders to aim for
+     * @param minGap the distance below which a place counts as crowded
+     */
+    SortKeys(long gap, long minGap) {
+        if (gap < 2 || minGap < 1 || minGap > gap) {
+            throw new IllegalArgumentException("The gap must be at least 2 and the minimum gap between 1 and the gap");
+        }
+
+        this.gap = gap;
+        this.minGap = minGap;
+    }
+
+    long gap() {
+        return gap;
+    }
+
+    long minGap() {
+        return minGap;
+    }
+
+    /**
+     * @param lower the order of the item before the place, or null for the start of the list
+     * @param upper the order of the item after the place, greater than {@code lower}, or null for the end of the list
+     * @return      an order between the two, as far from both as possible, or null if there is no order between them
+     */
+    Long between(Long lower, Long upper) {
+        var low = lower != null ? lower : upper != null ? minus(upper, 2 * gap) : -gap;
+        var high = upper != null ? upper : plus(low, 2 * gap);
+        var room = high - low;
+        if (Long.compareUnsigned(room, 2) < 0) {
+            return null;
+        }
+
+        return low + Long.divideUnsigned(room, 2);
+    }
+
+    /**
+     * @param lower the order of the item before the place, or null for the start of the list
+     * @param order the order given to the item at the place
+     * @param upper the order of the item after the place, or null for the end of the list
+     * @return      true if there is less than the minimum gap on either side of the order
+     */
+    boolean isCrowded(Long lower, long order, Long upper) {
+        return (lower != null && Long.compareUnsigned(order - lower, minGap) < 0)
+            || (upper != null && Long.compareUnsigned(upper - order, minGap) < 0);
+    }
+
+    /**
+     * Spreads orders for a range of items evenly between the items around the range.
+     *
+     * @param lower      the order of the item before the range, or null for the start of the list
+     * @param upper      the order of the item after the range, or null for the end of the list
+     * @param count      the number of items in the range
+     * @param minSpacing the smallest distance between the orders that is good enough
+     * @return           the orders, ascending, or null if they would be closer than {@code minSpacing}
+     */
+    long[] spread(Long lower, Long upper, int count, long minSpacing) {
+        var span = gap * (count + 1);
+        var low = lower != null ? lower : upper != null ? minus(upper, span) : 0;
+        var high = upper != null ? upper : plus(low, span);
+        var spacing = Long.divideUnsigned(high - low, count + 1);
+        if (spacing < minSpacing) {
+            return null;
+        }
+
+        var orders = new long[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = low + spacing * (i + 1);
+        }
+
+        return orders;
+    }
+
+    private static long minus(long order, long distance) {
+        return order < Long.MIN_VALUE + distance ? Long.MIN_VALUE : order - distance;
+    }
+
+    private static long plus(long order, long distance) {
+        return order > Long.MAX_VALUE - distance ? Long.MAX_VALUE : order + distance;
+    }
+}
@@ -0,0 +1,199 @@
+package com.rajven.todo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.SortOrderProperties;
+import com.rajven.todo.db.ReadSource;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoQuery;
+import com.rajven.todo.db.TodoRepository;
+
+/**
+ * Spreads out the orders of the items around a crowded place in a list, so that moves to that place find room between
+ * the orders again.
+ * <p>
+ * The range starts with a few items on either side of the place, and doubles until the items in it can be given orders
+ * far enough apart between the items around it. Larger ranges have to be spread further apart, so a place that keeps
+ * getting crowded is rebalanced over a larger range each time, which leaves room for more moves until the next time.
+ * Only items whose order changes are written, in one transaction, and they are announced like other updates. Rebalancing
+ * is counted as {@code todo.sort-order.rebalances}, the items it wrote as {@code todo.sort-order.rebalanced-items}.
+ * <p>
+ * Moves and rebalances of the same list run one after the other on a node, see {@link #serialized}, so none of them reads
+ * orders that another one is about to change. Moves on different nodes aren't isolated from each other, a move may then
+ * end up next to where an item was before a rebalance, or share its order with another item. Rebalancing in the
+ * background runs one range at a time, and at most one range per list waits for it.
+ */
+@Component
+@Log4j2
+public class SortOrderRebalancer {
+    private final TodoRepository repository;
+    private final TodoItemCache itemCache;
+    private final TodoEventBus eventBus;
+    private final SortKeys sortKeys;
+    private final int window;
+    private final Sinks.Many<TodoItem> requests = Sinks.many().unicast().onBackpressureBuffer();
+    private final Set<Optional<String>> waitingLists = ConcurrentHashMap.newKeySet();
+    private final Map<Optional<String>, Mono<Void>> lastOperations = new ConcurrentHashMap<>();
+    private final Disposable rebalancing;
+    private final Counter foregroundCounter;
+    private final Counter backgroundCounter;
+    private final Counter itemsCounter;
+
+    public SortOrderRebalancer(TodoRepository repository, TodoItemCache itemCache, TodoEventBus eventBus,
+                               SortOrderProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.itemCache = itemCache;
+        this.eventBus = eventBus;
+        this.sortKeys = new SortKeys(properties.getGap(), properties.getMinGap());
+        this.window = properties.getRebalanceWindow();
+        this.foregroundCounter = rebalanceCounter("foreground", meterRegistry);
+        this.backgroundCounter = rebalanceCounter("background", meterRegistry);
+        this.itemsCounter = Counter.builder("todo.sort-order.rebalanced-items")
+            .description("Items whose order was changed to make room for moves")
+            .register(meterRegistry);
+
+        this.rebalancing = requests.asFlux()
+            .concatMap(around -> serialized(around.getList(), rebalance(around, backgroundCounter)
+                    .doFirst(() -> waitingLists.remove(Optional.ofNullable(around.getList()))))
+                .onErrorResume(e -> {
+                    log.warn("Failed to rebalance the orders of list {}: {}", around.getList(), e.toString());
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    SortKeys sortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Rebalances the range around a place right away.
+     *
+     * @param around the item at the place, which is taken as a position in its list, even if the item moved away
+     * @return       a {@link Mono} that emits the items that got a new order
+     */
+    public Mono<List<TodoItem>> rebalance(TodoItem around) {
+        return rebalance(around, foregroundCounter);
+    }
+
+    /**
+     * Rebalances the range around a place soon, in the background. Dropped if the list already waits to be rebalanced.
+     *
+     * @param around the item at the place, which is taken as a position in its list, even if the item moved away
+     */
+    public void requestRebalance(TodoItem around) {
+        if (waitingLists.add(Optional.ofNullable(around.getList()))) {
+            // Only fails while another thread emits, so it's retried until that's done
+            requests.emitNext(around, (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        }
+    }
+
+    /**
+     * Runs an operation on a list once the operations on the same list that were started before it on this node are done.
+     *
+     * @param list      the list the operation reads and writes the orders of
+     * @param operation the operation, which must not wait for other operations on the same list
+     * @return          a {@link Mono} that emits what the operation emits
+     */
+    <T> Mono<T> serialized(String list, Mono<T> operation) {
+        return Mono.defer(() -> {
+            var key = Optional.ofNullable(list);
+            var done = Sinks.<Void>empty();
+            var finished = done.asMono();
+            var previous = lastOperations.put(key, finished);
+
+            return (previous != null ? previous : Mono.<Void>empty())
+                .then(operation)
+                .doFinally(signal -> {
+                    lastOperations.remove(key, finished);
+                    done.tryEmitEmpty();
+                });
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        rebalancing.dispose();
+    }
+
+    private Mono<List<TodoItem>> rebalance(TodoItem around, Counter counter) {
+        return rebalance(around, window, Math.min(sortKeys.minGap() * 4, sortKeys.gap()))
+            .doOnNext(rebalancedItems -> {
+                counter.increment();
+                itemsCounter.increment(rebalancedItems.size());
+            })
+            .contextWrite(ReadSource.PRIMARY.context());
+    }
+
+    // The range is the items before the place and the items from the place on, the items next to the range bound it
+    private Mono<List<TodoItem>> rebalance(TodoItem around, int window, long minSpacing) {
+        var before = repository.getPageBefore(query(around, around.getId()), window + 1)
+            .collectList();
+        var from = repository.getPage(query(around, around.getId() - 1), window + 1)
+            .takeWhile(todoItem -> todoItem.getOrder() != null)
+            .collectList();
+
+        return Mono.zip(before, from).flatMap(items -> {
+            var itemsBefore = items.getT1();
+            var itemsFrom = items.getT2();
+            var range = new ArrayList<>(itemsBefore.subList(0, Math.min(window, itemsBefore.size())));
+            Collections.reverse(range);
+            range.addAll(itemsFrom.subList(0, Math.min(window, itemsFrom.size())));
+            if (range.isEmpty()) {
+                return Mono.just(List.<TodoItem>of());
+            }
+
+            var lower = itemsBefore.size() > window ? itemsBefore.get(window).getOrder() : null;
+            var upper = itemsFrom.size() > window ? itemsFrom.get(window).getOrder() : null;
+            var orders = sortKeys.spread(lower, upper, range.size(), minSpacing);
+            if (orders == null) {
+                return rebalance(around, window * 2, Math.min(minSpacing * 2, sortKeys.gap()));
+            }
+
+            return write(range, orders);
+        });
+    }
+
+    private Mono<List<TodoItem>> write(List<TodoItem> range, long[] orders) {
+        var updateCmds = new LinkedHashMap<Long, TodoUpdateCommand>();
+        for (int i = 0; i < range.size(); i++) {
+            if (!Objects.equals(range.get(i).getOrder(), orders[i])) {
+                updateCmds.put(range.get(i).getId(), TodoUpdateCommand.withOrder(orders[i]));
+            }
+        }
+
+        return repository.updateAll(updateCmds)
+            .doOnNext(todoItem -> eventBus.publish(TodoEvent.updated(todoItem)))
+            .doFinally(signal -> updateCmds.keySet().forEach(itemCache::invalidate))
+            .collectList();
+    }
+
+    // Sorted by order within the list of the item, with the cursor at the order of the item and the given id
+    private static TodoQuery query(TodoItem around, long cursorId) {
+        return new TodoQuery(around.getList(), null, null, TodoQuery.SortBy.ORDER, new TodoQuery.Cursor(cursorId, around.getOrder()));
+    }
+
+    private static Counter rebalanceCounter(String trigger, MeterRegistry meterRegistry) {
+        return Counter.builder("todo.sort-order.rebalances")
+            .description("Ranges of items whose orders were spread out to make room for moves")
+            .tag("trigger", trigger)
+            .register(meterRegistry);
+    }
+}
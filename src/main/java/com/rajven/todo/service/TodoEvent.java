@@ -0,0 +1,47 @@
+package com.rajven.todo.service;
+
+import com.rajven.todo.db.TodoItem;
+
+/**
+ * A change of the todo items, as pushed to subscribers of the change feed.
+ *
+ * @param type the kind of change
+ * @param id   the id of the changed item, or 0 if the change is not about a single item
+ * @param item the item after the change, or null if it was deleted or the change is not about a single item
+ */
+public record TodoEvent(Type type, long id, TodoItem item) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * All items were deleted.
+         */
+        CLEARED,
+        /**
+         * Events were lost, so the subscriber has to read all items again to be up to date.
+         */
+        RESYNC
+    }
+
+    public static TodoEvent created(TodoItem item) {
+        return new TodoEvent(Type.CREATED, item.getId(), item);
+    }
+
+    public static TodoEvent updated(TodoItem item) {
+        return new TodoEvent(Type.UPDATED, item.getId(), item);
+    }
+
+    public static TodoEvent deleted(long id) {
+        return new TodoEvent(Type.DELETED, id, null);
+    }
+
+    public static TodoEvent cleared() {
+        return new TodoEvent(Type.CLEARED, 0, null);
+    }
+
+    public static TodoEvent resync() {
+        return new TodoEvent(Type.RESYNC, 0, null);
+    }
+}
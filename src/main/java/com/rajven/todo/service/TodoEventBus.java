@@ -0,0 +1,120 @@
+package com.rajven.todo.service;
+
+import static reactor.core.publisher.BufferOverflowStrategy.DROP_OLDEST;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import com.rajven.todo.config.TodoEventsProperties;
+
+/**
+ * Multicasts {@link TodoEvent}s to the subscribers of the change feed.
+ * <p>
+ * Every subscriber has its own bounded buffer, so one slow subscriber never holds back the others or the writers. When
+ * a buffer overflows, the oldest events in it are dropped and the subscriber gets a {@link TodoEvent.Type#RESYNC} before
+ * the next event it does get. Resyncs are counted as {@code todo.events.resyncs}.
+ * <p>
+ * When a {@link PostgresTodoEventRelay} is enabled, published events go through the database, so that the subscribers
+ * on every node see the changes made on all nodes, and the item cache is invalidated for changes made on other nodes.
+ * Otherwise events are multicast in-process only.
+ */
+@Component
+public class TodoEventBus {
+    private final Sinks.Many<TodoEvent> hub = Sinks.many().multicast().directBestEffort();
+    private final int subscriberBufferSize;
+    private final TodoItemCache itemCache;
+    private final PostgresTodoEventRelay relay;
+    private final Disposable relayed;
+    private final Counter resyncCounter;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public TodoEventBus(TodoEventsProperties properties, TodoItemCache itemCache, ObjectProvider<PostgresTodoEventRelay> relayProvider,
+                        MeterRegistry meterRegistry) {
+        this.subscriberBufferSize = properties.getSubscriberBufferSize();
+        this.itemCache = itemCache;
+        this.resyncCounter = Counter.builder("todo.events.resyncs")
+            .description("Subscribers of the change feed that fell behind and were told to resync")
+            .register(meterRegistry);
+        Gauge.builder("todo.events.subscribers", subscribers, AtomicInteger::get)
+            .description("Open subscriptions to the change feed")
+            .register(meterRegistry);
+
+        var availableRelay = relayProvider.getIfAvailable();
+        this.relay = availableRelay != null && availableRelay.isEnabled() ? availableRelay : null;
+        this.relayed = relay != null
+            ? relay.events().subscribe(this::relayed)
+            : null;
+    }
+
+    /**
+     * Publishes an event to the subscribers on all nodes.
+     *
+     * @param event the event to publish
+     */
+    public void publish(TodoEvent event) {
+        if (relay != null) {
+            relay.send(event);
+        } else {
+            emit(event);
+        }
+    }
+
+    /**
+     * Subscribes to the events published from now on.
+     *
+     * @return a {@link Flux} that emits the events until it's cancelled
+     */
+    public Flux<TodoEvent> subscribe() {
+        return Flux.defer(() -> {
+            var dropped = new AtomicBoolean();
+
+            return hub.asFlux()
+                .onBackpressureBuffer(subscriberBufferSize, event -> dropped.set(true), DROP_OLDEST)
+                .flatMapIterable(event -> {
+                    if (!dropped.getAndSet(false)) {
+                        return List.of(event);
+                    }
+
+                    resyncCounter.increment();
+                    return List.of(TodoEvent.resync(), event);
+                }, 1)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (relayed != null) {
+            relayed.dispose();
+        }
+        hub.tryEmitComplete();
+    }
+
+    // Changes made on this node were already invalidated by the writer, invalidating them again is harmless
+    private void relayed(TodoEvent event) {
+        switch (event.type()) {
+            case UPDATED, DELETED -> itemCache.invalidate(event.id());
+            case CLEARED, RESYNC -> itemCache.invalidateAll();
+            default -> {
+            }
+        }
+        emit(event);
+    }
+
+    // Emitting from several threads at once fails instead of waiting, so emissions are serialized here. Without
+    // subscribers the event is simply not delivered.
+    private synchronized void emit(TodoEvent event) {
+        hub.tryEmitNext(event);
+    }
+}
@@ -0,0 +1,104 @@
+package com.rajven.todo.service;
+
+import java.util.function.LongFunction;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import com.rajven.todo.config.ItemCacheProperties;
+import com.rajven.todo.config.ReplicaProperties;
+import com.rajven.todo.db.ReadSource;
+import com.rajven.todo.db.TodoItem;
+
+/**
+ * Bounded read-through cache of {@link TodoItem}s by id. Entries are evicted by size and age, and concurrent misses on
+ * the same id share a single load. Hit, miss and eviction statistics are published as {@code cache.*} metrics.
+ * <p>
+ * Lookups that have to see the latest writes, with {@link ReadSource#PRIMARY} in their context, skip the cache and
+ * always load, and what they load replaces the cached item. With a read replica, which lags behind the primary database,
+ * only those loads are cached. Other misses are loaded from the replica without caching them, so an item read before the
+ * replica caught up with a write is not served for longer than the replica lags.
+ */
+@Component
+public class TodoItemCache {
+    private static final String CACHE_NAME = "todo-items";
+
+    private final boolean enabled;
+    private final boolean replicated;
+    private final AsyncCache<Long, TodoItem> cache;
+
+    public TodoItemCache(ItemCacheProperties properties, ReplicaProperties replicaProperties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.replicated = StringUtils.hasText(replicaProperties.getUrl());
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats()
+            .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Gets the item with the given id from the cache, loading it with {@code loader} on a miss.
+     * Items that are not found are not cached, and lookups that read from the primary database don't use the cache, but
+     * fill it.
+     *
+     * @param id     the id of the item to get
+     * @param loader loads the item on a cache miss
+     * @return       a {@link Mono} that emits the item, or {@link Mono}.empty() if the loader found nothing
+     */
+    public Mono<TodoItem> get(long id, LongFunction<Mono<TodoItem>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+
+        // The shared future is copied so that one cancelled caller does not cancel the load for everyone else. The load
+        // runs with the context of the caller that started it.
+        return Mono.deferContextual(context -> {
+            if (ReadSource.from(context) == ReadSource.PRIMARY) {
+                // Cached before it completes, so that a write that invalidates the item meanwhile removes it again
+                var load = loader.apply(id).contextWrite(context).toFuture();
+                cache.put(id, load);
+                return Mono.fromFuture(load.copy());
+            }
+
+            if (replicated) {
+                var cached = cache.getIfPresent(id);
+                return cached != null ? Mono.fromFuture(cached.copy()) : loader.apply(id);
+            }
+
+            return Mono.fromFuture(cache.get(id, (key, executor) -> loader.apply(key).contextWrite(context).toFuture()).copy());
+        });
+    }
+
+    /**
+     * Removes the item with the given id, so the next lookup reads it from the database.
+     *
+     * @param id the id of the item to remove
+     */
+    public void invalidate(long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    /**
+     * Removes all items from the cache.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Gets a snapshot of the hit, miss and eviction counters of the cache.
+     *
+     * @return the current {@link CacheStats}
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
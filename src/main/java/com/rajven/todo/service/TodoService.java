@@ -1,26 +1,94 @@
 package com.rajven.todo.service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import com.rajven.todo.api.TodoBulkUpdateCommand;
 import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoMoveCommand;
 import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.BulkProperties;
+import com.rajven.todo.db.ReadSource;
+import com.rajven.todo.db.TodoDeletedChunk;
 import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoItemUpdate;
+import com.rajven.todo.db.TodoItemsVersion;
+import com.rajven.todo.db.TodoQuery;
+import com.rajven.todo.db.TodoSearch;
 import com.rajven.todo.db.TodoRepository;
+import com.rajven.todo.db.TodoStats;
 
 @Service
 @RequiredArgsConstructor
 public class TodoService {
+    private static final String OTHER_LIST_ERROR_MSG = "Items can only be moved next to items on the same list";
+    private static final String NO_ORDER_ERROR_MSG = "Items can only be moved next to items that have an order";
+    private static final String NO_ROOM_ERROR_MSG = "There was no room to move the item to, because of other moves to the same place";
+
     private final TodoRepository repository;
+    private final TodoItemCache itemCache;
+    private final UpdateCoalescer updateCoalescer;
+    private final TodoEventBus eventBus;
+    private final TodoStatsCounter statsCounter;
+    private final BulkProperties bulkProperties;
+    private final SortOrderRebalancer rebalancer;
+
+    /**
+     * Gets all elements selected by the query that come after its cursor.
+     *
+     * @param query the filters, order and cursor of the elements to get
+     * @return      a {@link Flux} that emits all matching {@link TodoItem}s
+     */
+    public Flux<TodoItem> getAll(TodoQuery query) {
+        return repository.getAll(query);
+    }
+
+    /**
+     * Gets one page of elements selected by the query that come after its cursor.
+     *
+     * @param query the filters, order and cursor of the elements to get
+     * @param limit the maximum number of elements in the page
+     * @return      a {@link Flux} that emits the {@link TodoItem}s of the page
+     */
+    public Flux<TodoItem> getPage(TodoQuery query, int limit) {
+        return repository.getPage(query, limit);
+    }
 
     /**
-     * Gets all elements.
+     * Searches the titles of all elements, best matches first.
      *
-     * @return a {@link Flux} that emits all {@link TodoItem}s
+     * @param search the words to search for, at least one
+     * @param offset the number of best matches to skip
+     * @param limit  the maximum number of elements to return
+     * @return       a {@link Flux} that emits the matching {@link TodoItem}s of the page
      */
-    public Flux<TodoItem> getAll() {
-        return repository.getAll();
+    public Flux<TodoItem> search(TodoSearch search, long offset, int limit) {
+        return repository.search(search, offset, limit);
+    }
+
+    /**
+     * Gets a summary of all elements that changes whenever any of them is created, updated or deleted.
+     *
+     * @return a {@link Mono} that emits the current {@link TodoItemsVersion}
+     */
+    public Mono<TodoItemsVersion> getItemsVersion() {
+        return repository.getItemsVersion();
+    }
+
+    /**
+     * Gets the number of elements, in total and by completion state, from counters rather than from the elements.
+     * Writes made on other nodes are counted within the reconcile interval.
+     *
+     * @return a {@link Mono} that emits the current {@link TodoStats}
+     */
+    public Mono<TodoStats> getStats() {
+        return statsCounter.get();
     }
 
     /**
@@ -31,7 +99,7 @@ public class TodoService {
      *           or {@link Mono}.empty() if no element is found
      */
     public Mono<TodoItem> find(long id) {
-        return repository.findById(id);
+        return itemCache.get(id, repository::findById);
     }
 
     /**
@@ -41,11 +109,33 @@ public class TodoService {
      * @return          a {@link Mono} that emits the created element
      */
     public Mono<TodoItem> create(TodoCreateCommand createCmd) {
-        return repository.create(createCmd);
+        return repository.create(createCmd)
+            .doOnNext(todoItem -> {
+                statsCounter.created(todoItem);
+                eventBus.publish(TodoEvent.created(todoItem));
+            });
+    }
+
+    /**
+     * Creates one {@link TodoItem} per command, writing them to the database in batches.
+     * Commands are requested from {@code createCmds} one batch at a time, so a large upload is never held in memory at once.
+     *
+     * @param createCmds the {@link TodoCreateCommand}s that contain the properties to create
+     * @return           a {@link Flux} that emits the created elements in the order of the commands
+     */
+    public Flux<TodoItem> createAll(Flux<TodoCreateCommand> createCmds) {
+        return createCmds
+            .buffer(bulkProperties.getBatchSize())
+            .concatMap(repository::createAll, 1)
+            .doOnNext(todoItem -> {
+                statsCounter.created(todoItem);
+                eventBus.publish(TodoEvent.created(todoItem));
+            });
     }
 
     /**
      * Updates the element with the specified {@code id}, based on the given update command.
+     * When update coalescing is enabled, updates of the same element within the coalescing window are written together.
      *
      * @param id        the id of the {@link TodoItem} to update
      * @param updateCmd the {@link TodoUpdateCommand} containing the new values
@@ -54,10 +144,58 @@ public class TodoService {
      */
     public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd) {
         if (!updateCmd.hasAnyUpdate()) {
-            return repository.findById(id);
+            return find(id);
         }
 
-        return repository.update(id, updateCmd);
+        // The event is published once per write, not once per coalesced update
+        return updateCoalescer.update(id, updateCmd, (itemId, mergedCmd) -> countedUpdate(itemId, mergedCmd)
+            .doOnNext(todoItem -> eventBus.publish(TodoEvent.updated(todoItem)))
+            .doFinally(signal -> itemCache.invalidate(itemId)));
+    }
+
+    /**
+     * Updates many elements in one transaction. Commands for the same id are merged in order, so later commands win.
+     *
+     * @param bulkUpdateCmds the {@link TodoBulkUpdateCommand}s containing the ids and new values
+     * @return               a {@link Flux} that emits the updated {@link TodoItem}s ordered by id, skipping ids that were
+     *                       not found
+     */
+    public Flux<TodoItem> updateAll(List<TodoBulkUpdateCommand> bulkUpdateCmds) {
+        var updateCmds = new LinkedHashMap<Long, TodoUpdateCommand>();
+        for (var bulkUpdateCmd : bulkUpdateCmds) {
+            updateCmds.merge(bulkUpdateCmd.id(), bulkUpdateCmd.update(), TodoUpdateCommand::mergedWith);
+        }
+
+        // Reading the previous state of every item would cost more than counting them all once
+        var completionUpdated = updateCmds.values().stream().anyMatch(updateCmd -> updateCmd.getCompleted().isPresent());
+
+        return repository.updateAll(updateCmds)
+            .doOnNext(todoItem -> eventBus.publish(TodoEvent.updated(todoItem)))
+            .doOnComplete(() -> {
+                if (completionUpdated) {
+                    statsCounter.requestReconcile();
+                }
+            })
+            .doFinally(signal -> updateCmds.keySet().forEach(itemCache::invalidate));
+    }
+
+    /**
+     * Moves an element right before or after another element on the same list, in the order of the list. Only the moved
+     * element is written, with the order halfway between the other element and its neighbour on that side. When that
+     * leaves little room for the next move to the same place, the elements around it are rebalanced in the background,
+     * and when there is no room at all, they are rebalanced before the move. Moves on the same list run one after the other.
+     *
+     * @param id      the id of the {@link TodoItem} to move
+     * @param moveCmd the {@link TodoMoveCommand} with the element to move it next to, which is not the moved element
+     * @return        a {@link Mono} that emits the moved {@link TodoItem}, or {@link Mono}.empty() if either element was
+     *                not found. Fails with a {@link MoveConflictException} if the elements are on different lists, or if
+     *                the other element has no order.
+     */
+    public Mono<TodoItem> move(long id, TodoMoveCommand moveCmd) {
+        // The list of an item never changes, but its order may have until the move gets its turn on the list
+        return findPrevious(moveCmd.target())
+            .flatMap(target -> rebalancer.serialized(target.getList(), Mono.zip(findPrevious(id), findPrevious(moveCmd.target()))
+                .flatMap(items -> move(items.getT1(), items.getT2(), moveCmd.isBefore(), true))));
     }
 
     /**
@@ -67,7 +205,49 @@ public class TodoService {
      * @return   a {@link Mono} that returns true if the element was deleted, otherwise false
      */
     public Mono<Boolean> delete(long id) {
-        return repository.delete(id);
+        return repository.delete(id)
+            .doOnNext(deletedItem -> {
+                statsCounter.deleted(deletedItem);
+                eventBus.publish(TodoEvent.deleted(id));
+            })
+            .hasElement()
+            .doFinally(signal -> itemCache.invalidate(id));
+    }
+
+    /**
+     * Deletes all elements that match the filters of the query, in chunks of ascending ids with a pause after each chunk.
+     * Every chunk is written on its own, so a cancelled delete keeps the chunks that were already deleted.
+     *
+     * @param filter the filters of the elements to delete, its sort order and cursor are ignored
+     * @return       a {@link Flux} that emits the progress after every chunk, and a last time once no element matches
+     */
+    public Flux<DeleteProgress> deleteMatching(TodoQuery filter) {
+        return Flux.defer(() -> {
+            var progress = new DeleteProgress[] { new DeleteProgress(0, null, false) };
+
+            // A chunk may delete none of the items it selected, when they all stopped matching, so only a chunk that
+            // selected nothing ends the delete
+            return deleteChunk(filter, null)
+                .expand(deletedChunk -> deletedChunk.lastSelectedId() == null
+                    ? Mono.empty()
+                    : Mono.delay(bulkProperties.getDeletePause())
+                        .then(deleteChunk(filter, deletedChunk.lastSelectedId())))
+                .map(deletedChunk -> {
+                    var deletedItems = deletedChunk.deletedItems();
+                    var lastId = deletedItems.isEmpty() ? progress[0].lastId() : Long.valueOf(deletedItems.get(deletedItems.size() - 1).getId());
+                    progress[0] = new DeleteProgress(progress[0].deleted() + deletedItems.size(), lastId, deletedChunk.lastSelectedId() == null);
+                    return progress[0];
+                });
+        });
+    }
+
+    /**
+     * Subscribes to the changes of all elements, made on any node from now on.
+     *
+     * @return a {@link Flux} that emits a {@link TodoEvent} per change until it's cancelled
+     */
+    public Flux<TodoEvent> events() {
+        return eventBus.subscribe();
     }
 
     /**
@@ -76,6 +256,86 @@ public class TodoService {
      * @return a {@link Mono}.empty()
      */
     public Mono<Void> deleteAll() {
-        return repository.deleteAll();
+        return repository.deleteAll()
+            .doOnSuccess(done -> {
+                statsCounter.cleared();
+                eventBus.publish(TodoEvent.cleared());
+            })
+            .doFinally(signal -> itemCache.invalidateAll());
+    }
+
+    private Mono<TodoDeletedChunk> deleteChunk(TodoQuery filter, Long afterId) {
+        var query = new TodoQuery(filter.list(), filter.completed(), filter.titlePrefix(), TodoQuery.SortBy.ID,
+            afterId != null ? new TodoQuery.Cursor(afterId, null) : null);
+
+        return repository.deleteChunk(query, bulkProperties.getDeleteChunkSize())
+            .doOnNext(deletedChunk -> deletedChunk.deletedItems().forEach(todoItem -> {
+                itemCache.invalidate(todoItem.getId());
+                statsCounter.deleted(todoItem);
+                eventBus.publish(TodoEvent.deleted(todoItem.getId()));
+            }));
+    }
+
+    private Mono<TodoItem> move(TodoItem todoItem, TodoItem target, boolean before, boolean rebalanceIfFull) {
+        if (!Objects.equals(todoItem.getList(), target.getList())) {
+            return Mono.error(new MoveConflictException(OTHER_LIST_ERROR_MSG));
+        }
+
+        if (target.getOrder() == null) {
+            return Mono.error(new MoveConflictException(NO_ORDER_ERROR_MSG));
+        }
+
+        var query = new TodoQuery(target.getList(), null, null, TodoQuery.SortBy.ORDER, TodoQuery.Cursor.of(target));
+        var neighbour = (before ? repository.getPageBefore(query, 1) : repository.getPage(query, 1))
+            .next()
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .contextWrite(ReadSource.PRIMARY.context());
+
+        return neighbour.flatMap(next -> {
+            if (next.isPresent() && next.get().getId() == todoItem.getId()) {
+                return Mono.just(todoItem);
+            }
+
+            // Items without an order come last, so there is room for any order after the last item with one
+            var nextOrder = next.map(TodoItem::getOrder).orElse(null);
+            var lower = before ? nextOrder : target.getOrder();
+            var upper = before ? target.getOrder() : nextOrder;
+            var sortKeys = rebalancer.sortKeys();
+            var order = sortKeys.between(lower, upper);
+            if (order == null) {
+                return rebalanceIfFull
+                    ? rebalancer.rebalance(target)
+                        .then(findPrevious(target.getId()))
+                        .flatMap(rebalancedTarget -> move(todoItem, rebalancedTarget, before, false))
+                    : Mono.error(new MoveConflictException(NO_ROOM_ERROR_MSG));
+            }
+
+            return repository.update(todoItem.getId(), TodoUpdateCommand.withOrder(order))
+                .doOnNext(movedItem -> {
+                    eventBus.publish(TodoEvent.updated(movedItem));
+                    if (sortKeys.isCrowded(lower, order, upper)) {
+                        rebalancer.requestRebalance(movedItem);
+                    }
+                })
+                .doFinally(signal -> itemCache.invalidate(todoItem.getId()));
+        });
+    }
+
+    // The previous state is only read when the update may change it, which is all the counts need
+    private Mono<TodoItem> countedUpdate(long id, TodoUpdateCommand updateCmd) {
+        if (!updateCmd.getCompleted().isPresent()) {
+            return repository.update(id, updateCmd);
+        }
+
+        return repository.updateWithPrevious(id, updateCmd)
+            .doOnNext(itemUpdate -> statsCounter.updated(itemUpdate.wasCompleted(), itemUpdate.updatedItem()))
+            .map(TodoItemUpdate::updatedItem);
+    }
+
+    // The state an item is written over is read from the primary database, the read replica and the cache may lag behind it
+    private Mono<TodoItem> findPrevious(long id) {
+        return find(id)
+            .contextWrite(ReadSource.PRIMARY.context());
     }
 }
@@ -0,0 +1,146 @@
+package com.rajven.todo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import com.rajven.todo.config.StatsProperties;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoRepository;
+import com.rajven.todo.db.TodoStats;
+
+/**
+ * Counts the {@link TodoItem}s in total and by completion state, so the statistics are read without reading the items.
+ * <p>
+ * The counts are changed by the writes of this node as they happen, and replaced by a count of the items in the
+ * repository every reconcile interval. That corrects the counts for writes made on other nodes, and for concurrent writes
+ * to the same item that were counted against a state it no longer had. Writes of this node that are counted while the
+ * repository is counted are added to its count, instead of being lost until the next one. The items are first counted
+ * once the application is ready, and reading the counts waits for that, but never reads the repository itself. The
+ * counts are published as {@code todo.items} metrics.
+ */
+@Component
+@Log4j2
+public class TodoStatsCounter {
+    private final TodoRepository repository;
+    private final AtomicReference<TodoStats> stats = new AtomicReference<>(new TodoStats(0, 0));
+    // Changed when the counts are reset, so a count that was running then is dropped
+    private final AtomicLong generation = new AtomicLong();
+    private final Sinks.Many<Long> reconcileRequests = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Empty<Void> firstReconcile = Sinks.empty();
+    private final Disposable reconciling;
+
+    public TodoStatsCounter(TodoRepository repository, StatsProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+
+        // Requests that arrive while a reconcile runs are merged into one that runs after it
+        this.reconciling = Flux.merge(Flux.interval(properties.getReconcileInterval()), reconcileRequests.asFlux())
+            .onBackpressureLatest()
+            .concatMap(request -> reconcile()
+                .onErrorResume(e -> {
+                    log.warn("Failed to count the todo items: {}", e.toString());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> firstReconcile.tryEmitEmpty()), 1)
+            .subscribe();
+
+        Gauge.builder("todo.items", stats, current -> current.get().completed())
+            .description("Todo items by completion state")
+            .tag("state", "completed")
+            .register(meterRegistry);
+        Gauge.builder("todo.items", stats, current -> current.get().active())
+            .description("Todo items by completion state")
+            .tag("state", "active")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Counts the items in the repository for the first time, once the application is ready to serve requests.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prime() {
+        // Unlike other requests it must not get lost, so it's retried while another thread requests one
+        reconcileRequests.emitNext(System.nanoTime(), (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    /**
+     * Gets the current counts, once the items were first counted, or failed to be.
+     *
+     * @return a {@link Mono} that emits the current {@link TodoStats}
+     */
+    public Mono<TodoStats> get() {
+        return firstReconcile.asMono().then(Mono.fromSupplier(stats::get));
+    }
+
+    public void created(TodoItem todoItem) {
+        add(1, todoItem.isCompleted() ? 1 : 0);
+    }
+
+    /**
+     * Counts an update of an item that may have changed its completion state.
+     *
+     * @param wasCompleted whether the item was completed before the update
+     * @param updatedItem  the item after the update
+     */
+    public void updated(boolean wasCompleted, TodoItem updatedItem) {
+        if (wasCompleted != updatedItem.isCompleted()) {
+            add(0, updatedItem.isCompleted() ? 1 : -1);
+        }
+    }
+
+    public void deleted(TodoItem previousItem) {
+        add(-1, previousItem.isCompleted() ? -1 : 0);
+    }
+
+    public void cleared() {
+        generation.incrementAndGet();
+        stats.set(new TodoStats(0, 0));
+    }
+
+    /**
+     * Counts the items in the repository soon, in the background, for writes whose effect on the counts is not known.
+     */
+    public void requestReconcile() {
+        // Fails while another thread requests one, which then covers this request too
+        reconcileRequests.tryEmitNext(System.nanoTime());
+    }
+
+    @PreDestroy
+    public void close() {
+        reconciling.dispose();
+    }
+
+    private void add(long total, long completed) {
+        stats.updateAndGet(current -> new TodoStats(current.total() + total, current.completed() + completed));
+    }
+
+    // The counts changed by writes while the repository is counted are added to its count
+    private Mono<Void> reconcile() {
+        return Mono.defer(() -> {
+            var countedGeneration = generation.get();
+            var before = stats.get();
+
+            return repository.countItems()
+                .doOnNext(counted -> {
+                    var previous = stats.getAndUpdate(current -> generation.get() != countedGeneration
+                        ? current
+                        : new TodoStats(counted.total() + current.total() - before.total(), counted.completed() + current.completed() - before.completed()));
+                    var corrected = stats.get();
+                    if (!previous.equals(corrected)) {
+                        log.debug("Corrected the todo item counts from {} to {}", previous, corrected);
+                    }
+                })
+                .then();
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.rajven.todo.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.UpdateCoalescingProperties;
+import com.rajven.todo.db.TodoItem;
+
+/**
+ * Coalesces updates of the same item that arrive within a short window into one write. The first update of an item
+ * opens the window, later updates are merged into it with {@link TodoUpdateCommand#mergedWith}, so the last update wins
+ * per property, and when the window closes the merged update is written once. Every caller gets the result of that write.
+ * <p>
+ * Updates that were merged away are counted as {@code todo.updates.coalesced}, and updates that were written right away
+ * because too many items already had updates waiting as {@code todo.updates.bypassed}.
+ */
+@Component
+public class UpdateCoalescer {
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxPendingItems;
+    private final Map<Long, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+    private final Counter bypassedCounter;
+
+    public UpdateCoalescer(UpdateCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxPendingItems = properties.getMaxPendingItems();
+        this.coalescedCounter = Counter.builder("todo.updates.coalesced")
+            .description("Updates that were merged into another update of the same item")
+            .register(meterRegistry);
+        this.bypassedCounter = Counter.builder("todo.updates.bypassed")
+            .description("Updates that were written right away because too many items had updates waiting")
+            .register(meterRegistry);
+
+        meterRegistry.gaugeMapSize("todo.updates.pending", Tags.empty(), pendingUpdates);
+    }
+
+    /**
+     * Updates an item, coalescing the update with other updates of the same item if coalescing is enabled.
+     *
+     * @param id        the id of the item to update
+     * @param updateCmd the update to apply
+     * @param write     writes an update of an item, called once per window with the merged update
+     * @return          a {@link Mono} that emits the item after the merged update, or {@link Mono}.empty() if the item
+     *                  was not found
+     */
+    public Mono<TodoItem> update(long id, TodoUpdateCommand updateCmd, BiFunction<Long, TodoUpdateCommand, Mono<TodoItem>> write) {
+        if (!enabled) {
+            return Mono.defer(() -> write.apply(id, updateCmd));
+        }
+
+        return Mono.defer(() -> {
+            if (pendingUpdates.size() >= maxPendingItems && !pendingUpdates.containsKey(id)) {
+                bypassedCounter.increment();
+                return write.apply(id, updateCmd);
+            }
+
+            var opened = new boolean[1];
+            var pendingUpdate = pendingUpdates.compute(id, (key, pending) -> {
+                if (pending == null) {
+                    opened[0] = true;
+                    return new PendingUpdate(updateCmd);
+                }
+
+                pending.merge(updateCmd);
+                return pending;
+            });
+
+            if (opened[0]) {
+                Schedulers.parallel().schedule(() -> flush(id, pendingUpdate, write), windowNanos, TimeUnit.NANOSECONDS);
+            } else {
+                coalescedCounter.increment();
+            }
+
+            return pendingUpdate.result.asMono();
+        });
+    }
+
+    private void flush(long id, PendingUpdate pendingUpdate, BiFunction<Long, TodoUpdateCommand, Mono<TodoItem>> write) {
+        // Once removed no more updates are merged into it, later ones open a new window
+        pendingUpdates.remove(id, pendingUpdate);
+
+        // Deferred, so a write that throws instead of returning a failed Mono still fails every waiting caller
+        var result = pendingUpdate.result;
+        Mono.defer(() -> write.apply(id, pendingUpdate.updateCmd))
+            .subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+    }
+
+    // Only changed inside ConcurrentHashMap.compute, which also publishes the merged command to the flushing thread
+    private static class PendingUpdate {
+        private final Sinks.One<TodoItem> result = Sinks.one();
+        private TodoUpdateCommand updateCmd;
+
+        PendingUpdate(TodoUpdateCommand updateCmd) {
+            this.updateCmd = updateCmd;
+        }
+
+        void merge(TodoUpdateCommand laterCmd) {
+            updateCmd = updateCmd.mergedWith(laterCmd);
+        }
+    }
+}
@@ -1,6 +1,75 @@
+CREATE SEQUENCE IF NOT EXISTS todo_item_version_seq;
+
 CREATE TABLE IF NOT EXISTS todo_item (
    id           BIGSERIAL PRIMARY KEY,
    title        TEXT,
    completed    BOOLEAN,
-   sort_order   BIGINT
+   sort_order   BIGINT,
+   version      BIGINT NOT NULL DEFAULT nextval('todo_item_version_seq')
 );
+
+ALTER TABLE todo_item ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('todo_item_version_seq');
+ALTER TABLE todo_item ADD COLUMN IF NOT EXISTS list_key TEXT;
+
+-- Back the filters and sort orders of the list query, see R2dbcTodoRepository.listQuery
+CREATE INDEX IF NOT EXISTS todo_item_completed_idx ON todo_item (completed, id);
+CREATE INDEX IF NOT EXISTS todo_item_sort_order_idx ON todo_item (sort_order, id);
+CREATE INDEX IF NOT EXISTS todo_item_completed_sort_order_idx ON todo_item (completed, sort_order, id);
+CREATE INDEX IF NOT EXISTS todo_item_list_key_idx ON todo_item (list_key, id);
+CREATE INDEX IF NOT EXISTS todo_item_list_key_sort_order_idx ON todo_item (list_key, sort_order, id);
+-- LIKE 'prefix%' can only use an index with pattern ops, unless the database uses the C collation
+CREATE INDEX IF NOT EXISTS todo_item_title_prefix_idx ON todo_item (title text_pattern_ops);
+
+-- Full-text search on titles, see R2dbcTodoRepository.search. The simple configuration doesn't stem or drop stop words,
+-- so titles in any language are searched the same way.
+ALTER TABLE todo_item ADD COLUMN IF NOT EXISTS title_tsv TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, ''))) STORED;
+CREATE INDEX IF NOT EXISTS todo_item_title_tsv_idx ON todo_item USING GIN (title_tsv);
+
+-- The number of items and the sum of their versions, see R2dbcTodoRepository.getItemsVersion. Kept up to date by
+-- triggers in the transaction of every write, once per statement, so the version of the list is read without looking at
+-- the items. Every connection counts in a slot of its own, so concurrent writes rarely queue up behind the same row.
+CREATE TABLE IF NOT EXISTS todo_items_version (
+   slot         INT PRIMARY KEY,
+   item_count   BIGINT NOT NULL,
+   version_sum  BIGINT NOT NULL
+);
+
+-- Quoted with single rather than dollar quotes, which the script runner would split at every semicolon
+CREATE OR REPLACE FUNCTION todo_items_version_count() RETURNS TRIGGER LANGUAGE plpgsql AS '
+DECLARE
+    item_delta BIGINT := 0;
+    version_delta BIGINT := 0;
+BEGIN
+    IF TG_OP IN (''INSERT'', ''UPDATE'') THEN
+        SELECT count(*), coalesce(sum(version), 0) INTO item_delta, version_delta FROM new_items;
+    END IF;
+    IF TG_OP IN (''UPDATE'', ''DELETE'') THEN
+        SELECT item_delta - count(*), version_delta - coalesce(sum(version), 0) INTO item_delta, version_delta FROM old_items;
+    END IF;
+    IF item_delta <> 0 OR version_delta <> 0 THEN
+        INSERT INTO todo_items_version AS counts (slot, item_count, version_sum)
+            VALUES (pg_backend_pid() % 64, item_delta, version_delta)
+            ON CONFLICT (slot) DO UPDATE SET item_count = counts.item_count + excluded.item_count,
+                                             version_sum = counts.version_sum + excluded.version_sum;
+    END IF;
+    RETURN NULL;
+END';
+
+-- Writes wait while the triggers are replaced and the items that are already there are counted, so every write is
+-- counted exactly once. A slot stays locked until the write commits, so writes that run more than one statement lock
+-- all their items first, see R2dbcTodoRepository.updateAll.
+BEGIN;
+DROP TRIGGER IF EXISTS todo_items_version_insert ON todo_item;
+DROP TRIGGER IF EXISTS todo_items_version_update ON todo_item;
+DROP TRIGGER IF EXISTS todo_items_version_delete ON todo_item;
+CREATE TRIGGER todo_items_version_insert AFTER INSERT ON todo_item REFERENCING NEW TABLE AS new_items
+    FOR EACH STATEMENT EXECUTE FUNCTION todo_items_version_count();
+CREATE TRIGGER todo_items_version_update AFTER UPDATE ON todo_item REFERENCING OLD TABLE AS old_items NEW TABLE AS new_items
+    FOR EACH STATEMENT EXECUTE FUNCTION todo_items_version_count();
+CREATE TRIGGER todo_items_version_delete AFTER DELETE ON todo_item REFERENCING OLD TABLE AS old_items
+    FOR EACH STATEMENT EXECUTE FUNCTION todo_items_version_count();
+INSERT INTO todo_items_version (slot, item_count, version_sum)
+    SELECT 0, count(*), coalesce(sum(version), 0) FROM todo_item
+    HAVING NOT EXISTS (SELECT 1 FROM todo_items_version);
+COMMIT;
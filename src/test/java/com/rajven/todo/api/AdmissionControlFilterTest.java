@@ -0,0 +1,161 @@
+package com.rajven.todo.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.rajven.todo.config.Constants.API_PATH;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import com.rajven.todo.config.AdmissionProperties;
+import com.rajven.todo.db.RepositoryMetrics;
+
+public class AdmissionControlFilterTest {
+    private static final String CLIENT_HEADER = "X-Client";
+    private static final WebFilterChain HANDLED = exchange -> Mono.empty();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RepositoryMetrics repositoryMetrics = new RepositoryMetrics(meterRegistry);
+    private final AdmissionProperties properties = new AdmissionProperties();
+    private AdmissionControlFilter filter;
+
+    AdmissionControlFilterTest() {
+        properties.setEnabled(true);
+        properties.setClientHeader(CLIENT_HEADER);
+        properties.setAdjustInterval(Duration.ofHours(1));
+        properties.setLatencyThreshold(Duration.ofMillis(50));
+        properties.setGet(new AdmissionProperties.EndpointLimits(0.001, 2, 1, 100));
+        properties.setList(new AdmissionProperties.EndpointLimits(0, 0, 1, 4));
+    }
+
+    @BeforeEach
+    void createFilter() {
+        filter = new AdmissionControlFilter(properties, repositoryMetrics, meterRegistry);
+    }
+
+    @AfterEach
+    void closeFilter() {
+        filter.close();
+    }
+
+    @Test
+    void givenAClientUsedUpItsBurst_whenItSendsAnotherRequest_then429IsReturnedWhileOtherClientsAreAdmitted() {
+        assertThat(send(get("/1", "greedy"), HANDLED).getResponse().getStatusCode()).isNull();
+        assertThat(send(get("/1", "greedy"), HANDLED).getResponse().getStatusCode()).isNull();
+
+        var rejected = send(get("/1", "greedy"), HANDLED).getResponse();
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(Long.parseLong(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isGreaterThan(100);
+        assertThat(send(get("/1", "modest"), HANDLED).getResponse().getStatusCode()).isNull();
+        assertThat(meterRegistry.get("todo.admission.rejected").tag("endpoint", "get").tag("reason", "rate").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void givenTheConcurrencyLimitIsReached_whenAnotherRequestArrives_then503IsReturnedUntilOneCompletes() {
+        var pending = Sinks.<Void>empty();
+        WebFilterChain slow = exchange -> pending.asMono();
+
+        for (var i = 0; i < 4; i++) {
+            filter.filter(get("", "client " + i), slow).subscribe();
+        }
+
+        var rejected = send(get("", "one more"), HANDLED).getResponse();
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        pending.tryEmitEmpty();
+        assertThat(send(get("", "one more"), HANDLED).getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void givenAClientSendsAnotherForwardedAddressEveryTime_whenItUsedUpItsBurst_then429IsStillReturned() {
+        assertThat(send(get("/1", "10.0.0.1, 192.0.2.7"), HANDLED).getResponse().getStatusCode()).isNull();
+        assertThat(send(get("/1", "10.0.0.2, 192.0.2.7"), HANDLED).getResponse().getStatusCode()).isNull();
+
+        assertThat(send(get("/1", "10.0.0.3, 192.0.2.7"), HANDLED).getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void givenAForwardedHeader_whenTellingClientsApart_thenTheValueTheTrustedProxiesAppendedIsUsed() {
+        var request = MockServerHttpRequest.get(API_PATH)
+            .header(CLIENT_HEADER, "spoofed, 203.0.113.9")
+            .header(CLIENT_HEADER, "192.0.2.7 , 10.0.0.1")
+            .remoteAddress(new InetSocketAddress("10.0.0.2", 443))
+            .build();
+
+        assertThat(ApiClient.of(request, CLIENT_HEADER, 1)).isEqualTo("10.0.0.1");
+        assertThat(ApiClient.of(request, CLIENT_HEADER, 2)).isEqualTo("192.0.2.7");
+        assertThat(ApiClient.of(request, CLIENT_HEADER, 9)).isEqualTo("spoofed");
+        assertThat(ApiClient.of(request, "X-Missing", 1)).isEqualTo("10.0.0.2");
+        assertThat(ApiClient.of(request, null, 1)).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    void givenTheRepositoryIsSlow_whenTheLimitsAreAdjusted_thenTheyShrinkAndGrowBackOnceItIsFastAndTheLimitIsReached() {
+        var limit = filter.concurrencyLimit(ApiEndpoint.GET);
+
+        repositoryMetrics.timed("findById", Mono.delay(Duration.ofMillis(100))).block();
+        filter.adjustLimits();
+        assertThat(limit.limit()).isEqualTo(90);
+
+        repositoryMetrics.timed("findById", Mono.just(1)).block();
+        filter.adjustLimits();
+        assertThat(limit.limit()).as("not reached, so not grown").isEqualTo(90);
+
+        for (var i = 0; i < 90; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+        filter.adjustLimits();
+        assertThat(limit.limit()).isEqualTo(91);
+    }
+
+    @Test
+    void givenTheDefaults_whenAClientSendsMoreThanItsBurst_thenEveryRequestIsHandled() {
+        var defaults = new AdmissionProperties();
+        defaults.setGet(properties.getGet());
+        var unlimited = new AdmissionControlFilter(defaults, repositoryMetrics, meterRegistry);
+        try {
+            for (var i = 0; i < 5; i++) {
+                var exchange = get("/1", "greedy");
+                unlimited.filter(exchange, HANDLED).block();
+                assertThat(exchange.getResponse().getStatusCode()).isNull();
+            }
+        } finally {
+            unlimited.close();
+        }
+    }
+
+    @Test
+    void givenRequestsToTheApi_whenTheirEndpointIsResolved_thenEachBelongsToItsLimits() {
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.get(API_PATH).build())).isEqualTo(ApiEndpoint.LIST);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.get(API_PATH + "/search").build())).isEqualTo(ApiEndpoint.LIST);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.get(API_PATH + "/7").build())).isEqualTo(ApiEndpoint.GET);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.get(API_PATH + "/events").build())).isEqualTo(ApiEndpoint.EVENTS);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.patch(API_PATH + "/7").build())).isEqualTo(ApiEndpoint.WRITE);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.post(API_PATH + "/bulk").build())).isEqualTo(ApiEndpoint.BULK);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.delete(API_PATH).build())).isEqualTo(ApiEndpoint.BULK);
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.get("/actuator/health").build())).isNull();
+        assertThat(ApiEndpoint.of(MockServerHttpRequest.options(API_PATH).build())).isNull();
+    }
+
+    private MockServerWebExchange send(MockServerWebExchange exchange, WebFilterChain chain) {
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange get(String resource, String client) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(API_PATH + resource).header(CLIENT_HEADER, client));
+    }
+}
@@ -0,0 +1,108 @@
+package com.rajven.todo.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.rajven.todo.config.Constants.API_PATH;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.rajven.todo.config.DeadlineProperties;
+import com.rajven.todo.config.RequestDeadline;
+
+public class DeadlineFilterTest {
+    private static final String DEADLINE_HEADER = "X-Request-Timeout";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeadlineProperties properties = new DeadlineProperties();
+    private final AtomicReference<RequestDeadline> deadline = new AtomicReference<>();
+    private final WebFilterChain hanging = exchange -> Mono.deferContextual(context -> {
+        deadline.set(RequestDeadline.from(context));
+        return Mono.never();
+    });
+
+    DeadlineFilterTest() {
+        properties.setGet(Duration.ofMillis(100));
+        properties.setList(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void givenARequestTakesLongerThanItsEndpointBudget_whenTheBudgetRunsOut_thenItFailsWith504AndIsAbandoned() {
+        var filter = new DeadlineFilter(properties, meterRegistry);
+
+        StepVerifier.create(filter.filter(request(MockServerHttpRequest.get(API_PATH + "/1")), hanging))
+            .expectErrorSatisfies(error -> assertThat(error)
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT)))
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(deadline.get().isAbandoned()).isTrue();
+        assertThat(meterRegistry.get("todo.requests.timed.out").tag("endpoint", "get").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("todo.requests.cancelled").tag("endpoint", "get").counter().count()).isZero();
+    }
+
+    @Test
+    void givenAClientAsksForAShorterDeadline_whenItRunsOut_thenTheRequestFailsBeforeTheBudgetOfTheEndpoint() {
+        var filter = new DeadlineFilter(properties, meterRegistry);
+
+        StepVerifier.create(filter.filter(request(MockServerHttpRequest.get(API_PATH).header(DEADLINE_HEADER, "50")), hanging))
+            .expectError(ResponseStatusException.class)
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.get("todo.requests.timed.out").tag("endpoint", "list").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenTheClientGoesAway_whenTheRequestIsCancelled_thenItIsAbandonedAndCounted() {
+        var filter = new DeadlineFilter(properties, meterRegistry);
+
+        filter.filter(request(MockServerHttpRequest.get(API_PATH)), hanging).subscribe().dispose();
+
+        assertThat(deadline.get().isAbandoned()).isTrue();
+        assertThat(meterRegistry.get("todo.requests.cancelled").tag("endpoint", "list").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("todo.requests.timed.out").tag("endpoint", "list").counter().count()).isZero();
+    }
+
+    @Test
+    void givenAListStreamsItsItems_whenItTakesLongerThanTheBudget_thenItIsNotCutOffOnceItsFirstItemIsSent() {
+        properties.setList(Duration.ofMillis(100));
+        var filter = new DeadlineFilter(properties, meterRegistry);
+        var exchange = request(MockServerHttpRequest.get(API_PATH));
+        WebFilterChain streaming = chain -> chain.getResponse().writeWith(Flux.interval(Duration.ofMillis(50))
+            .take(6)
+            .map(i -> chain.getResponse().bufferFactory().wrap(("{\"id\":" + i + "}\n").getBytes(StandardCharsets.UTF_8))));
+
+        StepVerifier.create(filter.filter(exchange, streaming))
+            .verifyComplete();
+
+        StepVerifier.create(exchange.getResponse().getBodyAsString())
+            .assertNext(body -> assertThat(body.lines()).hasSize(6))
+            .verifyComplete();
+        assertThat(meterRegistry.get("todo.requests.timed.out").tag("endpoint", "list").counter().count()).isZero();
+    }
+
+    @Test
+    void givenAStreamOfEvents_whenItStaysOpen_thenItHasNoDeadline() {
+        properties.setEvents(Duration.ZERO);
+        var filter = new DeadlineFilter(properties, meterRegistry);
+
+        StepVerifier.create(filter.filter(request(MockServerHttpRequest.get(API_PATH + "/events").header(DEADLINE_HEADER, "50")), hanging))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(200))
+            .thenCancel()
+            .verify();
+    }
+
+    private static MockServerWebExchange request(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -0,0 +1,35 @@
+package com.rajven.todo.api;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import com.rajven.todo.config.Constants;
+import com.rajven.todo.db.TodoRepository;
+import com.rajven.todo.helper.DbTestHelper;
+import com.rajven.todo.helper.WebRequestHelper;
+import com.rajven.todo.service.TodoService;
+
+/**
+ * Runs all of {@link TodoIntegrationTest} against the in-memory storage engine.
+ */
+@ActiveProfiles(Constants.IN_MEMORY_PROFILE)
+public class InMemoryTodoIntegrationTest extends TodoIntegrationTest {
+
+    public InMemoryTodoIntegrationTest(WebRequestHelper webRequestHelper,
+                                       DbTestHelper dbTestHelper,
+                                       MeterRegistry meterRegistry,
+                                       TodoService todoService,
+                                       TodoRepository repository) {
+        super(webRequestHelper, dbTestHelper, meterRegistry, todoService, repository);
+    }
+
+    @DynamicPropertySource
+    static void logPath(DynamicPropertyRegistry registry) throws IOException {
+        var logDirectory = Files.createTempDirectory("todo-in-memory");
+        registry.add("todo.in-memory.log-path", () -> logDirectory.resolve("todo.log").toString());
+    }
+}
@@ -0,0 +1,188 @@
+package com.rajven.todo.api;
+
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestConstructor;
+import org.springframework.test.context.TestPropertySource;
+import com.rajven.todo.config.Constants;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.helper.DbTestHelper;
+import com.rajven.todo.helper.WebRequestHelper;
+
+/**
+ * Runs with a second database as the read replica. Nothing replicates the primary to it, so whether an item is found
+ * tells which of them it was read from.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "todo.db.replica.url = r2dbc:h2:mem:///todo-replica?options=DB_CLOSE_DELAY=-1",
+    "todo.db.replica.sticky-window = 1h",
+    "todo.admission.client-header = " + ReadReplicaIntegrationTest.CLIENT_HEADER
+})
+@TestConstructor(autowireMode = TestConstructor.AutowireMode.ALL)
+@AutoConfigureWebTestClient(timeout = "PT30S")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReadReplicaIntegrationTest {
+    static final String CLIENT_HEADER = "X-Client";
+
+    private final WebRequestHelper webRequestHelper;
+    private final DbTestHelper dbTestHelper;
+    private final ConnectionFactory replicaConnectionFactory;
+
+    public ReadReplicaIntegrationTest(WebRequestHelper webRequestHelper,
+                                      DbTestHelper dbTestHelper,
+                                      @Qualifier(Constants.REPLICA_CONNECTION_FACTORY) ConnectionFactory replicaConnectionFactory) {
+        this.webRequestHelper = webRequestHelper;
+        this.dbTestHelper = dbTestHelper;
+        this.replicaConnectionFactory = replicaConnectionFactory;
+    }
+
+    @BeforeAll
+    void createReplicaSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(replicaConnectionFactory).block();
+    }
+
+    @AfterEach
+    void clearDatabases() {
+        dbTestHelper.clearTodoItems();
+        DbTestHelper.truncate(replicaConnectionFactory);
+    }
+
+    @Test
+    void givenItemsOnlyOnTheReplica_whenAClientThatDidNotWriteReadsThem_thenTheyAreReadFromTheReplica() {
+        createOnReplica(new TodoItem(1, "replicated", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(2, "not yet replicated", false, null));
+        var reader = webRequestHelper.withHeader(CLIENT_HEADER, "reader");
+
+        reader.getTodoItem(1)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("replicated");
+        reader.getTodoItem(2)
+            .expectStatus().isNotFound();
+        reader.getAllTodoItems()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$[0].id").isEqualTo(1);
+    }
+
+    @Test
+    void givenAClientCreatedAnItem_whenItReadsItBack_thenItIsReadFromThePrimaryWhileOtherClientsReadTheReplica() {
+        var writer = webRequestHelper.withHeader(CLIENT_HEADER, "writer");
+        var id = writer.postTodoItem(new TodoCreateCommand("mine", false, null))
+            .expectStatus().isCreated()
+            .expectBody(TodoResponse.class)
+            .returnResult()
+            .getResponseBody()
+            .id();
+
+        webRequestHelper.withHeader(CLIENT_HEADER, "someone else").getTodoItem(id)
+            .expectStatus().isNotFound();
+        writer.getTodoItem(id)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("mine");
+        writer.getAllTodoItems()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void givenAnItemOnlyOnThePrimary_whenItIsUpdated_thenItsPreviousAndUpdatedStateAreReadFromThePrimary() {
+        dbTestHelper.createTodoItem(new TodoItem(3, "not yet replicated", false, null));
+
+        webRequestHelper.withHeader(CLIENT_HEADER, "updater").updateTodoItem(3, "updated", true, null)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("updated")
+            .jsonPath("$.completed").isEqualTo(true);
+    }
+
+    @Test
+    void givenTheReplicaLagsBehindAnUpdate_whenAnotherClientReadsTheItemBeforeTheWriter_thenTheWriterStillReadsItsWrite() {
+        dbTestHelper.createTodoItem(new TodoItem(4, "before", false, null));
+        createOnReplica(new TodoItem(4, "before", false, null));
+        var writer = webRequestHelper.withHeader(CLIENT_HEADER, "writer");
+
+        writer.updateTodoItem(4, "after", false, null)
+            .expectStatus().isOk();
+        webRequestHelper.withHeader(CLIENT_HEADER, "someone else").getTodoItem(4)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("before");
+        writer.getTodoItem(4)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("after");
+    }
+
+    @Test
+    void givenAnotherClientReadTheLaggingReplica_whenTheReplicaCatchesUp_thenTheItemItReadWasNotCached() {
+        dbTestHelper.createTodoItem(new TodoItem(5, "before", false, null));
+        createOnReplica(new TodoItem(5, "before", false, null));
+        var someoneElse = webRequestHelper.withHeader(CLIENT_HEADER, "someone else");
+
+        webRequestHelper.withHeader(CLIENT_HEADER, "writer").updateTodoItem(5, "after", false, null)
+            .expectStatus().isOk();
+        someoneElse.getTodoItem(5)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("before");
+        retitleOnReplica(5, "after");
+        someoneElse.getTodoItem(5)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("after");
+    }
+
+    @Test
+    void givenTheWriterReadItsWriteFromThePrimary_whenAnotherClientReadsTheItem_thenItGetsTheCachedWrite() {
+        dbTestHelper.createTodoItem(new TodoItem(6, "before", false, null));
+        createOnReplica(new TodoItem(6, "before", false, null));
+        var writer = webRequestHelper.withHeader(CLIENT_HEADER, "writer");
+
+        writer.updateTodoItem(6, "after", false, null)
+            .expectStatus().isOk();
+        writer.getTodoItem(6)
+            .expectStatus().isOk();
+        webRequestHelper.withHeader(CLIENT_HEADER, "someone else").getTodoItem(6)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("after");
+    }
+
+    private void createOnReplica(TodoItem todoItem) {
+        DatabaseClient.create(replicaConnectionFactory)
+            .sql("INSERT INTO todo_item (id, title, completed) VALUES (:id, :title, :completed)")
+            .bind("id", todoItem.getId())
+            .bind("title", todoItem.getTitle())
+            .bind("completed", todoItem.isCompleted())
+            .fetch()
+            .rowsUpdated()
+            .block();
+    }
+
+    private void retitleOnReplica(long id, String title) {
+        DatabaseClient.create(replicaConnectionFactory)
+            .sql("UPDATE todo_item SET title = :title WHERE id = :id")
+            .bind("id", id)
+            .bind("title", title)
+            .fetch()
+            .rowsUpdated()
+            .block();
+    }
+}
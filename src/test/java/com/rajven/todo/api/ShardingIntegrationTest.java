@@ -0,0 +1,196 @@
+package com.rajven.todo.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpStatus.CREATED;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestConstructor;
+import org.springframework.test.context.TestPropertySource;
+import com.rajven.todo.config.ShardConnectionFactories;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.helper.DbTestHelper;
+import com.rajven.todo.helper.WebRequestHelper;
+import com.rajven.todo.service.DeleteProgress;
+
+/**
+ * Runs with a second database as the second shard. Items are created on many lists through the API, which spreads them
+ * over both databases, and what ended up where is checked in the databases directly.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    // H2 moves the id sequence past ids that are inserted explicitly, so the first shard isn't shared with other tests
+    "spring.r2dbc.url = r2dbc:h2:mem:///todo-shard-0?options=DB_CLOSE_DELAY=-1",
+    "todo.db.sharding.shards[0].url = r2dbc:h2:mem:///todo-shard-1?options=DB_CLOSE_DELAY=-1"
+})
+@TestConstructor(autowireMode = TestConstructor.AutowireMode.ALL)
+@AutoConfigureWebTestClient(timeout = "PT30S")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@RequiredArgsConstructor
+public class ShardingIntegrationTest {
+    private static final List<String> LISTS = IntStream.range(0, 16).mapToObj(i -> "list " + i).toList();
+
+    private final WebRequestHelper webRequestHelper;
+    private final DbTestHelper dbTestHelper;
+    private final ConnectionFactory connectionFactory;
+    private final ShardConnectionFactories shardConnectionFactories;
+
+    @BeforeAll
+    void createShardSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(secondShard()).block();
+    }
+
+    @AfterEach
+    void clearDatabases() {
+        dbTestHelper.clearTodoItems();
+        DbTestHelper.truncate(secondShard());
+    }
+
+    @Test
+    void givenItemsOnManyLists_whenTheyAreCreated_thenTheyAreSpreadOverTheShardsAndFoundById() {
+        var created = createItemsOnAllLists();
+        var single = webRequestHelper.postTodoItem(new TodoCreateCommand("another one", false, null, "list 3"))
+            .expectStatus().isEqualTo(CREATED)
+            .expectBody(TodoResponse.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(created).extracting(TodoResponse::list).containsExactlyElementsOf(LISTS);
+        assertThat(countItems(connectionFactory)).isPositive();
+        assertThat(countItems(secondShard())).isPositive();
+        assertThat(isOn(secondShard(), single.id())).isEqualTo(isOn(secondShard(), created.get(3).id()));
+        for (var item : created) {
+            webRequestHelper.getTodoItem(item.id())
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo(item.title())
+                .jsonPath("$.list").isEqualTo(item.list());
+        }
+        webRequestHelper.getStats()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.total").isEqualTo(LISTS.size() + 1);
+    }
+
+    @Test
+    void givenItemsOnBothShards_whenListingThem_thenTheyAreMergedInTheSortOrder() {
+        var created = createItemsOnAllLists();
+        var ids = created.stream().map(TodoResponse::id).sorted().toList();
+
+        webRequestHelper.getAllTodoItems()
+            .expectStatus().isOk()
+            .expectBodyList(TodoResponse.class)
+            .value(items -> assertThat(items).extracting(TodoResponse::id).containsExactlyElementsOf(ids));
+        webRequestHelper.getTodoItems("sort=order")
+            .expectStatus().isOk()
+            .expectBodyList(TodoResponse.class)
+            .value(items -> assertThat(items).extracting(TodoResponse::order).hasSize(LISTS.size()).isSorted());
+        webRequestHelper.getTodoItems("list=list 5")
+            .expectStatus().isOk()
+            .expectBodyList(TodoResponse.class)
+            .value(items -> assertThat(items).extracting(TodoResponse::title).containsExactly("item on list 5"));
+
+        var pagedIds = new ArrayList<Long>();
+        List<TodoResponse> page;
+        do {
+            page = webRequestHelper.getTodoItemPage(pagedIds.isEmpty() ? null : pagedIds.get(pagedIds.size() - 1), 5)
+                .expectStatus().isOk()
+                .expectBodyList(TodoResponse.class)
+                .returnResult()
+                .getResponseBody();
+            page.forEach(item -> pagedIds.add(item.id()));
+        } while (page.size() == 5);
+        assertThat(pagedIds).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void givenItemsOnBothShards_whenUpdatingAndDeletingThem_thenTheyAreWrittenOnTheirShards() {
+        var created = createItemsOnAllLists();
+        var onSecondShard = created.stream().filter(item -> isOn(secondShard(), item.id())).findFirst().orElseThrow();
+
+        webRequestHelper.updateTodoItem(onSecondShard.id(), "updated", true, null)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("updated")
+            .jsonPath("$.list").isEqualTo(onSecondShard.list());
+        webRequestHelper.updateTodoItems(created.stream()
+                .map(item -> "{ \"id\": %d, \"update\": { \"completed\": true } }".formatted(item.id()))
+                .toList()
+                .toString())
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(LISTS.size());
+
+        webRequestHelper.deleteTodoItem(onSecondShard.id())
+            .expectStatus().isNoContent();
+        webRequestHelper.getTodoItem(onSecondShard.id())
+            .expectStatus().isNotFound();
+        webRequestHelper.deleteTodoItems("completed=true")
+            .expectStatus().is2xxSuccessful()
+            .expectBodyList(DeleteProgress.class)
+            .value(progress -> assertThat(progress.get(progress.size() - 1).deleted()).isEqualTo(LISTS.size() - 1));
+
+        assertThat(countItems(connectionFactory)).isZero();
+        assertThat(countItems(secondShard())).isZero();
+    }
+
+    @Test
+    void givenAnItemCreatedBeforeSharding_whenGettingIt_thenItIsFoundOnTheFirstShard() {
+        // An id from a sequence that has bits set where generated ids have the shard
+        dbTestHelper.createTodoItem(new TodoItem(70_000, "from before", false, null));
+
+        webRequestHelper.getTodoItem(70_000)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("from before");
+    }
+
+    // Ordered the other way around than created, so that the order and the id sort differently
+    private List<TodoResponse> createItemsOnAllLists() {
+        return webRequestHelper.postTodoItems(IntStream.range(0, LISTS.size())
+                .mapToObj(i -> new TodoCreateCommand("item on " + LISTS.get(i), false, (long) LISTS.size() - i, LISTS.get(i)))
+                .toList())
+            .expectStatus().isEqualTo(CREATED)
+            .expectBodyList(TodoResponse.class)
+            .value(items -> assertThat(items).isSortedAccordingTo(Comparator.comparingLong(TodoResponse::id)))
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private ConnectionFactory secondShard() {
+        return shardConnectionFactories.pools().get(0);
+    }
+
+    private static long countItems(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory)
+            .sql("SELECT count(*) FROM todo_item")
+            .map(row -> ((Number) row.get(0)).longValue())
+            .one()
+            .block();
+    }
+
+    private static boolean isOn(ConnectionFactory connectionFactory, long id) {
+        return DatabaseClient.create(connectionFactory)
+            .sql("SELECT count(*) FROM todo_item WHERE id = :id")
+            .bind("id", id)
+            .map(row -> ((Number) row.get(0)).longValue())
+            .one()
+            .block() > 0;
+    }
+}
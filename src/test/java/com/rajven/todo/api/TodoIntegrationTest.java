@@ -1,23 +1,48 @@
 package com.rajven.todo.api;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.LINK;
 import static org.springframework.http.HttpStatus.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static com.rajven.todo.config.Constants.API_PATH;
 
-import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.openapitools.jackson.nullable.JsonNullable;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.core.convert.support.ConfigurableConversionService;
-import org.springframework.data.relational.core.conversion.BasicRelationalConverter;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestConstructor;
-import com.rajven.todo.converter.ClobConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import com.rajven.todo.config.Constants;
 import com.rajven.todo.helper.DbTestHelper;
 import com.rajven.todo.helper.WebRequestHelper;
 import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoItemsVersion;
+import com.rajven.todo.db.TodoQuery;
+import com.rajven.todo.db.TodoRepository;
+import com.rajven.todo.service.DeleteProgress;
+import com.rajven.todo.service.TodoEvent;
+import com.rajven.todo.service.TodoService;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -28,13 +53,9 @@ import com.rajven.todo.db.TodoItem;
 public class TodoIntegrationTest {
     private final WebRequestHelper webRequestHelper;
     private final DbTestHelper dbTestHelper;
-    private final BasicRelationalConverter basicRelationalConverter;
-
-    @PostConstruct
-    void addClobConverter() {
-        ((ConfigurableConversionService) basicRelationalConverter.getConversionService())
-            .addConverter(new ClobConverter());
-    }
+    private final MeterRegistry meterRegistry;
+    private final TodoService todoService;
+    private final TodoRepository repository;
 
     @AfterEach
     void clearDatabase() {
@@ -89,6 +110,303 @@ public class TodoIntegrationTest {
             .jsonPath("$[1].order").isEqualTo(expectedTodo2.getOrder());
     }
 
+    @Test
+    void givenThreeItemsAdded_whenGettingPagesOfTwo_thenPagesAreLinkedByCursor() {
+        dbTestHelper.createTodoItem(new TodoItem(3, "first", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(7, "second", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(11, "third", true, null));
+
+        webRequestHelper.getTodoItemPage(null, 2)
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().value(LINK, link -> assertThat(link).contains("after=7").endsWith("rel=\"next\""))
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].id").isEqualTo(3)
+            .jsonPath("$[1].id").isEqualTo(7);
+
+        webRequestHelper.getTodoItemPage(7L, 2)
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().doesNotExist(LINK)
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$[0].id").isEqualTo(11);
+    }
+
+    @Test
+    void givenItemsAdded_whenListingCompletedItemsSortedByOrder_thenPagesContinueAfterTheOrderAndIdOfTheLastItem() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "late", true, 5L));
+        dbTestHelper.createTodoItem(new TodoItem(2, "open", false, 1L));
+        dbTestHelper.createTodoItem(new TodoItem(3, "unordered", true, null));
+        dbTestHelper.createTodoItem(new TodoItem(4, "early", true, 2L));
+        dbTestHelper.createTodoItem(new TodoItem(5, "also early", true, 2L));
+        dbTestHelper.createTodoItem(new TodoItem(6, "also unordered", true, null));
+
+        webRequestHelper.getTodoItems("completed=true&sort=order")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of(4, 5, 1, 3, 6)));
+
+        webRequestHelper.getTodoItems("completed=true&sort=order&limit=2&after=5&afterOrder=2")
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().value(LINK, link -> assertThat(link).contains("completed=true", "sort=order", "after=3").doesNotContain("afterOrder"))
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of(1, 3)));
+
+        webRequestHelper.getTodoItems("completed=true&sort=order&limit=2&after=3")
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().doesNotExist(LINK)
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of(6)));
+    }
+
+    @Test
+    void givenItemsAdded_whenListingByTitlePrefix_thenOnlyTitlesStartingWithThePrefixLiterallyAreReturned() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "Buy milk", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(2, "Sell the car", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(3, "Buy bread", true, null));
+        dbTestHelper.createTodoItem(new TodoItem(4, "100% done", true, null));
+        dbTestHelper.createTodoItem(new TodoItem(5, "1000 done", true, null));
+
+        webRequestHelper.getTodoItems("titlePrefix=Buy")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of(1, 3)));
+
+        webRequestHelper.getTodoItems("titlePrefix=100%")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of(4)));
+    }
+
+    @Test
+    void givenItemsCreated_whenSearchingTitles_thenItemsWithAllWordsAreReturnedBestMatchFirst() {
+        webRequestHelper.postTodoItems(List.of(
+                new TodoCreateCommand("Buy milk", false, null),
+                new TodoCreateCommand("Buy oat milk, and milk for the cat", false, null),
+                new TodoCreateCommand("Sell milk", false, null),
+                new TodoCreateCommand("Buy bread", false, null)))
+            .expectStatus().isEqualTo(CREATED);
+
+        webRequestHelper.searchTodoItems("q=buy MILK")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[*].title").value(titles -> assertThat(titles).isEqualTo(List.of("Buy oat milk, and milk for the cat", "Buy milk")));
+
+        webRequestHelper.searchTodoItems("q=buy mi&limit=1")
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().value(LINK, link -> assertThat(link).contains("offset=1", "limit=1", "q=buy%20mi"))
+            .expectBody()
+            .jsonPath("$[*].title").value(titles -> assertThat(titles).isEqualTo(List.of("Buy oat milk, and milk for the cat")));
+
+        webRequestHelper.searchTodoItems("q=buy mi&limit=1&offset=1")
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().doesNotExist(LINK)
+            .expectBody()
+            .jsonPath("$[*].title").value(titles -> assertThat(titles).isEqualTo(List.of("Buy milk")));
+    }
+
+    @Test
+    void givenAnItemWasFoundBySearch_whenItIsRenamedAndDeleted_thenSearchesFollow() {
+        var item = todoService.create(new TodoCreateCommand("Call the plumber", false, null)).block();
+
+        webRequestHelper.searchTodoItems("q=plumber")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$[*].id").value(ids -> assertThat(ids).isEqualTo(List.of((int) item.getId())));
+
+        webRequestHelper.updateTodoItem(item.getId(), "Call the electrician", false, null)
+            .expectStatus().isOk();
+
+        webRequestHelper.searchTodoItems("q=plumber")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(0);
+        webRequestHelper.searchTodoItems("q=electrician")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1);
+
+        webRequestHelper.deleteTodoItem(item.getId())
+            .expectStatus().isEqualTo(NO_CONTENT);
+
+        webRequestHelper.searchTodoItems("q=electrician")
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void givenASearchWithoutWords_whenSearching_then400IsReturned() {
+        webRequestHelper.searchTodoItems("q= - ")
+            .expectStatus().isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    void givenItemsAreWritten_whenGettingStats_thenTheCountsFollowTheWrites() {
+        webRequestHelper.postTodoItems(List.of(
+                new TodoCreateCommand("one", false, null),
+                new TodoCreateCommand("two", true, null),
+                new TodoCreateCommand("three", false, null)))
+            .expectStatus().isEqualTo(CREATED);
+        var item = todoService.create(new TodoCreateCommand("four", false, null)).block();
+        assertStats(4, 1, 3);
+
+        webRequestHelper.updateTodoItem(item.getId(), "four", true, null)
+            .expectStatus().isOk();
+        webRequestHelper.updateTodoItem(item.getId(), "four again", true, null)
+            .expectStatus().isOk();
+        assertStats(4, 2, 2);
+
+        webRequestHelper.deleteTodoItem(item.getId())
+            .expectStatus().isEqualTo(NO_CONTENT);
+        webRequestHelper.deleteTodoItem(item.getId())
+            .expectStatus().isEqualTo(NOT_FOUND);
+        assertStats(3, 1, 2);
+
+        webRequestHelper.deleteAll()
+            .expectStatus().isEqualTo(NO_CONTENT);
+        assertStats(0, 0, 0);
+    }
+
+    @Test
+    void givenConcurrentUpdatesOfAnItem_whenUpdatingWithThePreviousState_thenEachUpdateSeesTheStateTheOneBeforeLeft() {
+        var item = todoService.create(new TodoCreateCommand("toggled", false, null)).block();
+
+        var itemUpdates = Flux.range(0, 40)
+            .flatMap(i -> {
+                var toggle = new TodoUpdateCommand();
+                toggle.setCompleted(JsonNullable.of(i % 3 != 0));
+                // H2 runs statements on the thread that subscribes to them, so they only overlap on threads of their own
+                return repository.updateWithPrevious(item.getId(), toggle)
+                    .subscribeOn(Schedulers.boundedElastic());
+            }, 8)
+            .sort(Comparator.comparing(itemUpdate -> itemUpdate.updatedItem().getVersion()))
+            .collectList()
+            .block();
+
+        assertThat(itemUpdates).hasSize(40);
+        var completed = false;
+        for (var itemUpdate : itemUpdates) {
+            assertThat(itemUpdate.wasCompleted()).isEqualTo(completed);
+            completed = itemUpdate.updatedItem().isCompleted();
+        }
+    }
+
+    @Test
+    void givenItemsWrittenPastTheCounters_whenABulkUpdateCompletesOne_thenTheItemsAreCounted() {
+        webRequestHelper.getStats()
+            .expectStatus().is2xxSuccessful();
+        dbTestHelper.createTodoItem(1, "one", false, null);
+        dbTestHelper.createTodoItem(2, "two", true, null);
+        dbTestHelper.createTodoItem(3, "three", false, null);
+        assertStats(0, 0, 0);
+
+        // Bulk updates of the completion state are counted by counting all items in the background
+        webRequestHelper.updateTodoItems("""
+                [ { "id": 1, "update": { "completed": true } } ]
+                """)
+            .expectStatus().isOk();
+
+        todoService.getStats()
+            .filter(stats -> stats.total() == 3)
+            .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(10)).take(500))
+            .block();
+        assertStats(3, 2, 1);
+    }
+
+    @Test
+    void givenCompletedItems_whenDeletingCompletedItemsInBulk_thenThoseAreDeletedInChunksWithProgress() {
+        webRequestHelper.postTodoItems(List.of(
+                new TodoCreateCommand("one", true, null),
+                new TodoCreateCommand("two", false, null),
+                new TodoCreateCommand("three", true, null),
+                new TodoCreateCommand("four", true, null),
+                new TodoCreateCommand("five", false, null)))
+            .expectStatus().isEqualTo(CREATED);
+
+        webRequestHelper.deleteTodoItems("completed=true")
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+            .expectBodyList(DeleteProgress.class)
+            .value(progress -> assertThat(progress).extracting(DeleteProgress::deleted, DeleteProgress::done)
+                .containsExactly(tuple(2L, false), tuple(3L, false), tuple(3L, true)));
+
+        webRequestHelper.getAllTodoItems()
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[*].title").value(titles -> assertThat(titles).isEqualTo(List.of("two", "five")));
+        assertStats(2, 0, 2);
+    }
+
+    @Test
+    void givenNoFilter_whenDeletingInBulk_then400IsReturned() {
+        webRequestHelper.deleteTodoItems("")
+            .expectStatus().isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    void givenAnUnknownSortOrder_whenListingItems_then400IsReturned() {
+        webRequestHelper.getTodoItems("sort=title")
+            .expectStatus().isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    void givenARequestUrlEndingWithTheItemId_whenGettingAPage_thenTheItemUrlStillPointsToTheItem() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "one", false, null));
+
+        webRequestHelper.getTodoItemPage(null, 1)
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$[0].url").value(url -> assertThat((String) url).endsWith("/api/todo/1"));
+    }
+
+    @Test
+    void givenALimitAboveTheMaximum_whenGettingAPage_then400IsReturned() {
+        webRequestHelper.getTodoItemPage(null, Integer.MAX_VALUE)
+            .expectStatus().isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    void givenTwoItemsAdded_whenStreamingAllItems_thenOneJsonLinePerItemIsReturned() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "stream me", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(2, "stream me too", true, 2L));
+
+        var responseBody = webRequestHelper.streamAllTodoItems()
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+            .returnResult(TodoResponse.class)
+            .getResponseBody();
+
+        StepVerifier.create(responseBody)
+            .assertNext(todo -> assertThat(todo.id()).isEqualTo(1))
+            .assertNext(todo -> assertThat(todo.id()).isEqualTo(2))
+            .verifyComplete();
+    }
+
+    @Test
+    void givenAClientAcceptingGzip_whenGettingItems_thenOnlyTheLargeListIsCompressed() {
+        // Enough items for the list to be larger than the minimum size that is compressed
+        IntStream.rangeClosed(1, 50).forEach(id -> dbTestHelper.createTodoItem(new TodoItem(id, "squeeze me", false, null)));
+
+        webRequestHelper.getAcceptingGzip(API_PATH, APPLICATION_JSON)
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().valueEquals(CONTENT_ENCODING, "gzip");
+        webRequestHelper.getAcceptingGzip(API_PATH + "/1", APPLICATION_JSON)
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().doesNotExist(CONTENT_ENCODING);
+        webRequestHelper.getAcceptingGzip(API_PATH, APPLICATION_NDJSON)
+            .expectStatus().is2xxSuccessful()
+            .expectHeader().doesNotExist(CONTENT_ENCODING);
+    }
+
     @Test
     void givenOneItemAdded_whenGettingItemById_ThenThatItemIsReturned() {
         var expectedTodo = new TodoItem(1, "kiss hands & shake babies", true, null);
@@ -140,6 +458,64 @@ public class TodoIntegrationTest {
             .jsonPath("$.order").isEqualTo(expectedResult.order());
     }
 
+    @Test
+    void givenAnArrayOfValidModels_whenPostingInBulk_thenAllItemsAreCreatedInOrder() {
+        var createCommands = List.of(
+            new TodoCreateCommand("Buy milk", false, 1L),
+            new TodoCreateCommand("Buy bread", true, null),
+            new TodoCreateCommand(null, false, 3L));
+
+        webRequestHelper.postTodoItems(createCommands)
+            .expectStatus().isEqualTo(CREATED)
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.length()").isEqualTo(3)
+            .jsonPath("$[0].id").isNotEmpty()
+            .jsonPath("$[0].title").isEqualTo("Buy milk")
+            .jsonPath("$[0].url").value(url -> assertThat((String) url).doesNotContain("bulk"))
+            .jsonPath("$[1].title").isEqualTo("Buy bread")
+            .jsonPath("$[1].completed").isEqualTo(true)
+            .jsonPath("$[2].title").isEmpty()
+            .jsonPath("$[2].order").isEqualTo(3);
+
+        webRequestHelper.getAllTodoItems()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    void givenItemsCreatedOneByOneAndInBulk_whenReadingThemBack_thenTheyHaveTheVersionsTheCreatesReturned() {
+        var createdItems = new ArrayList<TodoItem>();
+        createdItems.add(todoService.create(new TodoCreateCommand("one", false, null)).block());
+        createdItems.addAll(todoService.createAll(Flux.just(new TodoCreateCommand("two", false, 2L), new TodoCreateCommand("three", true, null)))
+            .collectList()
+            .block());
+
+        assertThat(createdItems).extracting(TodoItem::getVersion).doesNotContainNull().doesNotHaveDuplicates();
+        for (var createdItem : createdItems) {
+            webRequestHelper.getTodoItem(createdItem.getId())
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(ETAG, "\"%d\"".formatted(createdItem.getVersion()));
+        }
+    }
+
+    @Test
+    void givenAStreamOfValidModels_whenPostingInBulk_thenAllItemsAreCreated() {
+        var createCommands = IntStream.range(0, 250)
+            .mapToObj(i -> new TodoCreateCommand("item " + i, i % 2 == 0, (long) i))
+            .toList();
+
+        webRequestHelper.postTodoItemsAsNdjson(createCommands)
+            .expectStatus().isEqualTo(CREATED)
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(250)
+            .jsonPath("$[249].title").isEqualTo("item 249");
+
+        webRequestHelper.getAllTodoItems()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(250);
+    }
+
     @Test
     void givenAnItemExists_whenUpdatingThatItem_thenThatItemIsUpdated() {
         var expectedId = 8;
@@ -164,6 +540,342 @@ public class TodoIntegrationTest {
             .jsonPath("$.order").isEmpty();
     }
 
+    @Test
+    void givenACompletedItem_whenUpdatingItsCompletedToNull_thenItIsNotCompletedOnEveryRead() {
+        dbTestHelper.createTodoItem(new TodoItem(4, "one", true, null));
+        dbTestHelper.createTodoItem(new TodoItem(5, "two", true, null));
+
+        webRequestHelper.updateTodoItem(4, "one", null, null)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.completed").isEqualTo(false);
+        webRequestHelper.updateTodoItems("""
+                [ { "id": 5, "update": { "completed": null } } ]
+                """)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].completed").isEqualTo(false);
+
+        webRequestHelper.getAllTodoItems()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].completed").isEqualTo(false)
+            .jsonPath("$[1].completed").isEqualTo(false);
+    }
+
+    @Test
+    void givenNoItemsExist_whenUpdatingAnItem_then404IsReturned() {
+        webRequestHelper.updateTodoItem(1, "does not exist", true, null)
+            .expectStatus().isEqualTo(NOT_FOUND)
+            .expectBody()
+            .consumeWith(System.out::println);
+    }
+
+    @Test
+    void givenNoItemsExist_whenGettingAnItem_thenTheErrorAndTheRepositoryCallAreRecorded() {
+        var errorCounter = meterRegistry.counter("http.server.errors", "status", "404", "uri", Constants.API_PATH + "/{id}");
+        var errorsBefore = errorCounter.count();
+
+        webRequestHelper.getTodoItem(404)
+            .expectStatus().isEqualTo(NOT_FOUND);
+
+        assertThat(errorCounter.count()).isEqualTo(errorsBefore + 1);
+        assertThat(meterRegistry.get("todo.repository").tags("method", "findById", "outcome", "success").timer().count())
+            .isPositive();
+    }
+
+    @Test
+    void givenAnItemWasRead_whenUpdatingThatItem_thenTheUpdatedItemIsReturnedOnTheNextRead() {
+        var originalItem = new TodoItem(9, "water the plants", false, null);
+        dbTestHelper.createTodoItem(originalItem);
+
+        webRequestHelper.getTodoItem(originalItem.getId())
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .jsonPath("$.completed").isEqualTo(false);
+
+        webRequestHelper.updateTodoItem(originalItem.getId(), originalItem.getTitle(), true, null)
+            .expectStatus().is2xxSuccessful();
+
+        webRequestHelper.getTodoItem(originalItem.getId())
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.completed").isEqualTo(true);
+    }
+
+    @Test
+    void givenAnItemExists_whenUpdatingItTwiceWithinTheCoalescingWindow_thenBothCallersGetTheMergedUpdate() {
+        dbTestHelper.createTodoItem(new TodoItem(3, "draft", false, null));
+        var rename = new TodoUpdateCommand();
+        rename.setTitle(JsonNullable.of("final"));
+        var complete = new TodoUpdateCommand();
+        complete.setCompleted(JsonNullable.of(true));
+        var coalescedCounter = meterRegistry.counter("todo.updates.coalesced");
+        var coalescedBefore = coalescedCounter.count();
+
+        StepVerifier.create(Mono.zip(todoService.update(3, rename), todoService.update(3, complete)))
+            .assertNext(results -> {
+                assertThat(results.getT1()).usingRecursiveComparison().ignoringFields("version")
+                    .isEqualTo(new TodoItem(3, "final", true, null));
+                assertThat(results.getT2()).isEqualTo(results.getT1());
+            })
+            .verifyComplete();
+
+        assertThat(coalescedCounter.count()).isEqualTo(coalescedBefore + 1);
+    }
+
+    @Test
+    void givenItemsExist_whenUpdatingThemInBulk_thenOnlyTheGivenPropertiesAreUpdated() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "first", false, 1L));
+        dbTestHelper.createTodoItem(new TodoItem(2, "second", false, 2L));
+        dbTestHelper.createTodoItem(new TodoItem(3, "third", false, 3L));
+
+        webRequestHelper.updateTodoItems("""
+                [
+                  { "id": 1, "update": { "completed": true } },
+                  { "id": 3, "update": { "completed": true } },
+                  { "id": 2, "update": { "title": "renamed", "order": null } },
+                  { "id": 1, "update": { "order": 10 } },
+                  { "id": 99, "update": { "completed": true } }
+                ]
+                """)
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.length()").isEqualTo(3)
+            .jsonPath("$[0].id").isEqualTo(1)
+            .jsonPath("$[0].title").isEqualTo("first")
+            .jsonPath("$[0].completed").isEqualTo(true)
+            .jsonPath("$[0].order").isEqualTo(10)
+            .jsonPath("$[1].id").isEqualTo(2)
+            .jsonPath("$[1].title").isEqualTo("renamed")
+            .jsonPath("$[1].completed").isEqualTo(false)
+            .jsonPath("$[1].order").isEmpty()
+            .jsonPath("$[2].id").isEqualTo(3)
+            .jsonPath("$[2].completed").isEqualTo(true);
+    }
+
+    @Test
+    void givenItemsWithRoomBetweenTheirOrders_whenMovingOneBetweenThem_thenOnlyTheMovedItemIsWritten() {
+        var items = createItemsOnList("moves", 1000, 2000, 3000, 4000);
+
+        webRequestHelper.moveTodoItem(items.get(3).id(), "{ \"before\": %d }".formatted(items.get(1).id()))
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(items.get(3).id())
+            .jsonPath("$.order").isEqualTo(1500);
+        webRequestHelper.moveTodoItem(items.get(0).id(), "{ \"after\": %d }".formatted(items.get(2).id()))
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.order").isEqualTo(3064);
+
+        assertThat(listByOrder("moves")).extracting(TodoResponse::title, TodoResponse::order).containsExactly(
+            tuple("item 3", 1500L),
+            tuple("item 1", 2000L),
+            tuple("item 2", 3000L),
+            tuple("item 0", 3064L));
+    }
+
+    @Test
+    void givenItemsWithoutRoomBetweenTheirOrders_whenMovingOneBetweenThem_thenTheItemsAroundAreRebalancedFirst() {
+        var items = createItemsOnList("moves", 1, 2, 3, 4, 5);
+        var rebalances = meterRegistry.counter("todo.sort-order.rebalances", "trigger", "foreground").count();
+
+        webRequestHelper.moveTodoItem(items.get(4).id(), "{ \"after\": %d }".formatted(items.get(0).id()))
+            .expectStatus().isOk();
+
+        var listed = listByOrder("moves");
+        assertThat(listed).extracting(TodoResponse::title).containsExactly("item 0", "item 4", "item 1", "item 2", "item 3");
+        assertThat(listed).extracting(TodoResponse::order).isSorted().doesNotHaveDuplicates();
+        assertThat(meterRegistry.counter("todo.sort-order.rebalances", "trigger", "foreground").count()).isEqualTo(rebalances + 1);
+    }
+
+    @Test
+    void givenManyMovesToTheSamePlace_whenMoving_thenTheListKeepsTheOrderOfTheMoves() {
+        var expected = new ArrayList<>(createItemsOnList("moves", LongStream.rangeClosed(1, 10).map(i -> i * 64).toArray()));
+        var rebalances = meterRegistry.counter("todo.sort-order.rebalances", "trigger", "background").count();
+
+        // The last item always goes right after the first one, which crowds the same place with every move
+        for (int i = 1; i <= 30; i++) {
+            webRequestHelper.moveTodoItem(expected.get(expected.size() - 1).id(), "{ \"after\": %d }".formatted(expected.get(0).id()))
+                .expectStatus().isOk();
+            expected.add(1, expected.remove(expected.size() - 1));
+
+            if (i % 10 == 0) {
+                assertThat(listByOrder("moves")).extracting(TodoResponse::id)
+                    .containsExactlyElementsOf(expected.stream().map(TodoResponse::id).toList());
+            }
+        }
+        assertThat(meterRegistry.counter("todo.sort-order.rebalances", "trigger", "background").count()).isGreaterThan(rebalances);
+    }
+
+    @Test
+    void givenInvalidMoves_whenMovingItems_thenTheyAreRejected() {
+        var items = createItemsOnList("moves", 1000, 2000);
+        var onOtherList = createItemsOnList("other list", 1000).get(0);
+        var withoutOrder = webRequestHelper.postTodoItem(new TodoCreateCommand("without order", false, null, "moves"))
+            .expectStatus().isEqualTo(CREATED)
+            .expectBody(TodoResponse.class)
+            .returnResult()
+            .getResponseBody();
+        var id = items.get(0).id();
+
+        webRequestHelper.moveTodoItem(id, "{ \"before\": %d, \"after\": %d }".formatted(items.get(1).id(), items.get(1).id()))
+            .expectStatus().isBadRequest();
+        webRequestHelper.moveTodoItem(id, "{}")
+            .expectStatus().isBadRequest();
+        webRequestHelper.moveTodoItem(id, "{ \"after\": %d }".formatted(id))
+            .expectStatus().isBadRequest();
+        webRequestHelper.moveTodoItem(id, "{ \"after\": 424242 }")
+            .expectStatus().isNotFound();
+        webRequestHelper.moveTodoItem(id, "{ \"after\": %d }".formatted(onOtherList.id()))
+            .expectStatus().isEqualTo(CONFLICT);
+        webRequestHelper.moveTodoItem(id, "{ \"after\": %d }".formatted(withoutOrder.id()))
+            .expectStatus().isEqualTo(CONFLICT);
+    }
+
+    @Test
+    void givenAnItemWasRead_whenReadingItAgainWithItsETag_then304IsReturnedUntilTheItemChanges() {
+        dbTestHelper.createTodoItem(new TodoItem(6, "poll me", false, null));
+
+        var eTag = webRequestHelper.getTodoItem(6)
+            .expectStatus().isOk()
+            .expectHeader().exists(ETAG)
+            .returnResult(TodoResponse.class)
+            .getResponseHeaders().getETag();
+
+        webRequestHelper.getTodoItemIfNoneMatch(6, eTag)
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+
+        webRequestHelper.updateTodoItem(6, "poll me", true, null)
+            .expectStatus().isOk();
+
+        webRequestHelper.getTodoItemIfNoneMatch(6, eTag)
+            .expectStatus().isOk()
+            .expectHeader().value(ETAG, newETag -> assertThat(newETag).isNotEqualTo(eTag))
+            .expectBody()
+            .jsonPath("$.completed").isEqualTo(true);
+    }
+
+    @Test
+    void givenTheListWasRead_whenReadingItAgainWithItsETag_then304IsReturnedUntilAnyItemChanges() {
+        dbTestHelper.createTodoItem(new TodoItem(1, "first", false, null));
+        dbTestHelper.createTodoItem(new TodoItem(2, "second", false, null));
+
+        var eTag = webRequestHelper.getAllTodoItems()
+            .expectStatus().isOk()
+            .expectHeader().exists(ETAG)
+            .returnResult(TodoResponse.class)
+            .getResponseHeaders().getETag();
+
+        webRequestHelper.getAllTodoItemsIfNoneMatch(eTag)
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+
+        webRequestHelper.updateTodoItem(1, "first", true, null)
+            .expectStatus().isOk();
+
+        var eTagAfterUpdate = webRequestHelper.getAllTodoItemsIfNoneMatch(eTag)
+            .expectStatus().isOk()
+            .returnResult(TodoResponse.class)
+            .getResponseHeaders().getETag();
+        assertThat(eTagAfterUpdate).isNotEqualTo(eTag);
+
+        webRequestHelper.deleteTodoItem(2)
+            .expectStatus().isNoContent();
+
+        webRequestHelper.getAllTodoItemsIfNoneMatch(eTagAfterUpdate)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void givenItemsAreWrittenInEveryWay_whenGettingTheVersionOfTheList_thenItSummarisesTheItemsRead() {
+        assertItemsVersionSummarisesTheItems();
+
+        webRequestHelper.postTodoItems(List.of(
+                new TodoCreateCommand("one", true, 1L),
+                new TodoCreateCommand("two", false, 2L),
+                new TodoCreateCommand("three", true, 3L)))
+            .expectStatus().isEqualTo(CREATED);
+        webRequestHelper.postTodoItem(new TodoCreateCommand("four", false, 4L))
+            .expectStatus().isEqualTo(CREATED);
+        assertItemsVersionSummarisesTheItems();
+
+        var ids = todoService.getAll(new TodoQuery(null, null, null, TodoQuery.SortBy.ID, null))
+            .map(TodoItem::getId)
+            .collectList()
+            .block();
+        webRequestHelper.updateTodoItem(ids.get(1), "two", true, 2L)
+            .expectStatus().isOk();
+        webRequestHelper.updateTodoItems("""
+                [
+                  { "id": %d, "update": { "title": "renamed" } },
+                  { "id": %d, "update": { "completed": false } }
+                ]
+                """.formatted(ids.get(3), ids.get(0)))
+            .expectStatus().is2xxSuccessful();
+        assertItemsVersionSummarisesTheItems();
+
+        webRequestHelper.deleteTodoItem(ids.get(3))
+            .expectStatus().isNoContent();
+        webRequestHelper.deleteTodoItems("completed=true")
+            .expectStatus().is2xxSuccessful()
+            .expectBody().consumeWith(System.out::println);
+        assertItemsVersionSummarisesTheItems();
+
+        webRequestHelper.deleteAll()
+            .expectStatus().is2xxSuccessful();
+        assertItemsVersionSummarisesTheItems();
+    }
+
+    @Test
+    void givenAClientStreamsEvents_whenAnItemIsUpdatedAndDeleted_thenTheClientGetsBothChanges() {
+        dbTestHelper.createTodoItem(new TodoItem(9, "Water the plants", false, null));
+
+        var events = webRequestHelper.streamEvents()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+            .getResponseBody();
+
+        StepVerifier.create(events)
+            .expectNextMatches(event -> "heartbeat".equals(event.comment()))
+            .then(() -> webRequestHelper.updateTodoItem(9, "Water the plants", true, null).expectStatus().isOk())
+            .assertNext(event -> {
+                assertThat(event.event()).isEqualTo("updated");
+                assertThat(event.data()).contains("\"title\":\"Water the plants\"", "\"completed\":true");
+            })
+            .then(() -> webRequestHelper.deleteTodoItem(9).expectStatus().isEqualTo(NO_CONTENT))
+            .assertNext(event -> {
+                assertThat(event.event()).isEqualTo("deleted");
+                assertThat(event.data()).isEqualTo("{\"id\":9}");
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void givenASubscriberIsNotReading_whenMoreChangesThanItsBufferHoldsAreMade_thenItIsToldToResync() {
+        var creates = IntStream.range(0, 20)
+            .mapToObj(i -> new TodoCreateCommand("item " + i, false, null))
+            .toList();
+        var resyncCounter = meterRegistry.counter("todo.events.resyncs");
+        var resyncsBefore = resyncCounter.count();
+
+        StepVerifier.create(todoService.events(), 0)
+            .then(() -> todoService.createAll(Flux.fromIterable(creates)).blockLast())
+            .thenRequest(Long.MAX_VALUE)
+            .thenConsumeWhile(event -> event.type() == TodoEvent.Type.CREATED)
+            .expectNextMatches(event -> event.type() == TodoEvent.Type.RESYNC)
+            .thenCancel()
+            .verify(Duration.ofSeconds(10));
+
+        assertThat(resyncCounter.count()).isEqualTo(resyncsBefore + 1);
+    }
+
     @Test
     void givenAnItemExists_whenDeletingThatItem_thenThatItemIsDeleted() {
         var existingItem = new TodoItem(32, "Learn a new skill", false, 32L);
@@ -200,4 +912,39 @@ public class TodoIntegrationTest {
             .jsonPath("$").isArray()
             .jsonPath("$.length()").isEqualTo(0);
     }
+
+    private List<TodoResponse> createItemsOnList(String list, long... orders) {
+        return webRequestHelper.postTodoItems(IntStream.range(0, orders.length)
+                .mapToObj(i -> new TodoCreateCommand("item " + i, false, orders[i], list))
+                .toList())
+            .expectStatus().isEqualTo(CREATED)
+            .expectBodyList(TodoResponse.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private List<TodoResponse> listByOrder(String list) {
+        return webRequestHelper.getTodoItems("sort=order&list=" + list)
+            .expectStatus().isOk()
+            .expectBodyList(TodoResponse.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private void assertItemsVersionSummarisesTheItems() {
+        var items = todoService.getAll(new TodoQuery(null, null, null, TodoQuery.SortBy.ID, null)).collectList().block();
+
+        assertThat(todoService.getItemsVersion().block())
+            .isEqualTo(new TodoItemsVersion(items.size(), items.stream().mapToLong(TodoItem::getVersion).sum()));
+    }
+
+    private void assertStats(long total, long completed, long active) {
+        webRequestHelper.getStats()
+            .expectStatus().is2xxSuccessful()
+            .expectBody()
+            .consumeWith(System.out::println)
+            .jsonPath("$.total").isEqualTo(total)
+            .jsonPath("$.completed").isEqualTo(completed)
+            .jsonPath("$.active").isEqualTo(active);
+    }
 }
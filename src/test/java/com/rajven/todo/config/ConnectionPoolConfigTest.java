@@ -0,0 +1,86 @@
+package com.rajven.todo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import reactor.core.publisher.Mono;
+
+public class ConnectionPoolConfigTest {
+    private static final String METRICS_NAME = "testConnectionFactory";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final R2dbcProperties r2dbcProperties = new R2dbcProperties();
+    private ConnectionPool pool;
+
+    ConnectionPoolConfigTest() {
+        r2dbcProperties.setUrl("r2dbc:h2:mem:///pool-" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+        r2dbcProperties.setUsername("todo");
+        r2dbcProperties.setPassword("todo");
+        r2dbcProperties.getPool().setInitialSize(3);
+        r2dbcProperties.getPool().setMaxSize(4);
+        r2dbcProperties.getPool().setMaxAcquireTime(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void disposePool() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+
+    @Test
+    void givenSpringR2dbcPoolSettings_whenThePoolIsWarmedUp_thenItHoldsTheInitialConnectionsIdleUpToTheMaxSize() {
+        pool = pool();
+
+        new ConnectionPoolWarmUp(List.of(pool), 3).start();
+
+        var metrics = pool.getMetrics().orElseThrow();
+        assertThat(metrics.idleSize()).isEqualTo(3);
+        assertThat(metrics.acquiredSize()).isZero();
+        assertThat(metrics.getMaxAllocatedSize()).isEqualTo(4);
+        assertThat(acquireTimerCount("success")).isEqualTo(3);
+    }
+
+    @Test
+    void givenThePoolIsExhausted_whenAConnectionIsAcquired_thenItFailsAfterTheMaxAcquireTimeAndIsTimed() {
+        pool = pool();
+        var connections = List.of(pool.create().block(), pool.create().block(), pool.create().block(), pool.create().block());
+
+        assertThatThrownBy(() -> pool.create().block()).isInstanceOf(R2dbcTimeoutException.class);
+        assertThat(acquireTimerCount("success")).isEqualTo(4);
+        assertThat(acquireTimerCount("failure")).isEqualTo(1);
+
+        connections.forEach(connection -> Mono.from(connection.close()).block());
+        Mono.usingWhen(pool.create(), connection -> Mono.empty(), Connection::close).block();
+        assertThat(acquireTimerCount("success")).isEqualTo(5);
+    }
+
+    @Test
+    void givenThePoolIsDisabled_whenItIsCreated_thenTheStartupFails() {
+        r2dbcProperties.getPool().setEnabled(false);
+
+        assertThatThrownBy(this::pool)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("spring.r2dbc.pool.enabled");
+    }
+
+    private ConnectionPool pool() {
+        return ConnectionPoolConfig.pool("test", METRICS_NAME, r2dbcProperties.getUrl(), r2dbcProperties.getUsername(),
+            r2dbcProperties.getPassword(), r2dbcProperties, new DbPoolProperties(), meterRegistry);
+    }
+
+    private long acquireTimerCount(String outcome) {
+        return meterRegistry.get("r2dbc.pool.acquire").tag("name", METRICS_NAME).tag("outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,25 @@
+package com.rajven.todo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+
+public class NettyServerConfigTest {
+
+    @Test
+    void givenPooledDirectBuffers_whenPickingTheAllocator_thenTheDefaultOneThatNettyAndTheDriverUseIsShared() {
+        assertThat(NettyServerConfig.allocator(NettyServerProperties.BufferAllocator.POOLED_DIRECT))
+            .isSameAs(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @Test
+    void givenPooledHeapBuffers_whenPickingTheAllocatorTwice_thenBothServersShareOnePoolOfHeapBuffers() {
+        var allocator = NettyServerConfig.allocator(NettyServerProperties.BufferAllocator.POOLED_HEAP);
+
+        assertThat(allocator).isSameAs(NettyServerConfig.allocator(NettyServerProperties.BufferAllocator.POOLED_HEAP));
+        var buffer = allocator.buffer();
+        assertThat(buffer.hasArray()).isTrue();
+        buffer.release();
+    }
+}
@@ -0,0 +1,91 @@
+package com.rajven.todo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+public class SchemaPopulatorTest {
+    // Every run of the script adds a row, so the rows tell how often it ran
+    private static final String SCRIPT = """
+        CREATE TABLE IF NOT EXISTS schema_runs (script VARCHAR(16) NOT NULL);
+        INSERT INTO schema_runs (script) VALUES ('%s');
+        """;
+
+    @TempDir
+    Path directory;
+
+    private Path script;
+    private ConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void createDatabase() throws IOException {
+        script = directory.resolve("schema.sql");
+        Files.writeString(script, SCRIPT.formatted("first"));
+        connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///schema-" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    void givenANewDatabase_whenTheSchemaIsPopulated_thenTheScriptRunsAndItsHashIsRecorded() {
+        populate(false);
+
+        assertThat(runs()).isEqualTo(1);
+        assertThat(DatabaseClient.create(connectionFactory).sql("SELECT hash FROM todo_schema")
+            .map((row, metadata) -> row.get(0, String.class))
+            .all()
+            .collectList()
+            .block()).singleElement().asString().hasSize(64);
+    }
+
+    @Test
+    void givenTheScriptRanBefore_whenItDidNotChange_thenItIsSkipped() {
+        populate(false);
+        populate(false);
+
+        assertThat(runs()).isEqualTo(1);
+    }
+
+    @Test
+    void givenTheScriptRanBefore_whenItChanged_thenItRunsAgainAndOnlyOnce() throws IOException {
+        populate(false);
+        Files.writeString(script, SCRIPT.formatted("second"));
+        populate(false);
+        populate(false);
+
+        assertThat(runs()).isEqualTo(2);
+        assertThat(DatabaseClient.create(connectionFactory).sql("SELECT count(*) FROM todo_schema")
+            .map((row, metadata) -> row.get(0, Long.class))
+            .one()
+            .block()).isEqualTo(1);
+    }
+
+    @Test
+    void givenAlwaysRun_whenTheScriptDidNotChange_thenItRunsAnyway() {
+        populate(false);
+        populate(true);
+        populate(true);
+
+        assertThat(runs()).isEqualTo(3);
+    }
+
+    private void populate(boolean alwaysRun) {
+        new SchemaPopulator(new FileSystemResource(script), alwaysRun).populate(connectionFactory).block();
+    }
+
+    private long runs() {
+        return DatabaseClient.create(connectionFactory).sql("SELECT count(*) FROM schema_runs")
+            .map((row, metadata) -> row.get(0, Long.class))
+            .one()
+            .block();
+    }
+}
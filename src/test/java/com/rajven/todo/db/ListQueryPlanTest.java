@@ -0,0 +1,158 @@
+package com.rajven.todo.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.PreparedOperation;
+import org.springframework.r2dbc.core.binding.BindTarget;
+
+/**
+ * Checks that the list and search queries are backed by the indexes in {@code schema.sql}, so filtering, sorting and
+ * searching never scan or sort the whole table. Plans depend on the planner and its statistics, so this runs against a
+ * real Postgres, given as R2DBC URL in {@code TODO_TEST_POSTGRES_URL}, and is skipped without one. The items are created
+ * in a schema of their own, which is dropped first.
+ */
+@EnabledIfEnvironmentVariable(named = ListQueryPlanTest.POSTGRES_URL_VARIABLE, matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ListQueryPlanTest {
+    static final String POSTGRES_URL_VARIABLE = "TODO_TEST_POSTGRES_URL";
+    private static final String SCHEMA = "todo_plan_test";
+    private static final int ITEMS = 100_000;
+    private static final int PAGE_SIZE = 100;
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    private R2dbcEntityTemplate template;
+
+    @BeforeAll
+    void createItems() {
+        var options = ConnectionFactoryOptions.parse(System.getenv(POSTGRES_URL_VARIABLE));
+        DatabaseClient.create(ConnectionFactories.get(options))
+            .sql("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE; CREATE SCHEMA " + SCHEMA)
+            .then()
+            .block(TIMEOUT);
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.mutate()
+            .option(Option.valueOf("schema"), SCHEMA)
+            .build());
+        new ResourceDatabasePopulator(new FileSystemResource("src/main/resources/schema.sql"))
+            .populate(connectionFactory)
+            .block(TIMEOUT);
+
+        template = new R2dbcEntityTemplate(connectionFactory);
+        template.getDatabaseClient()
+            .sql("""
+                INSERT INTO todo_item (title, completed, sort_order, list_key)
+                SELECT 'item ' || i || ' tag' || i % 5000, i % 2 = 0, CASE WHEN i % 10 = 0 THEN NULL ELSE i * 7919 % $1 END, 'list ' || i % 100
+                FROM generate_series(1, $1) AS i
+                """)
+            .bind(0, ITEMS)
+            .then()
+            .then(template.getDatabaseClient().sql("ANALYZE todo_item").then())
+            .block(TIMEOUT);
+    }
+
+    @Test
+    void givenACompletedFilter_whenListingById_thenAnIndexIsScannedInOrder() {
+        assertIndexBacked(new TodoQuery(null, true, null, TodoQuery.SortBy.ID, new TodoQuery.Cursor(ITEMS / 2, null)), true);
+    }
+
+    @Test
+    void givenNoFilter_whenListingByOrder_thenAnIndexIsScannedInOrder() {
+        assertIndexBacked(new TodoQuery(null, null, null, TodoQuery.SortBy.ORDER, new TodoQuery.Cursor(1234, 50_000L)), true);
+    }
+
+    @Test
+    void givenACompletedFilter_whenListingByOrder_thenAnIndexIsScannedInOrder() {
+        assertIndexBacked(new TodoQuery(null, false, null, TodoQuery.SortBy.ORDER, null), true);
+        assertIndexBacked(new TodoQuery(null, false, null, TodoQuery.SortBy.ORDER, new TodoQuery.Cursor(1234, 50_000L)), true);
+    }
+
+    @Test
+    void givenAList_whenListingItsItems_thenAnIndexIsScannedInOrder() {
+        assertIndexBacked(new TodoQuery("list 42", null, null, TodoQuery.SortBy.ID, new TodoQuery.Cursor(ITEMS / 2, null)), true);
+        assertIndexBacked(new TodoQuery("list 42", null, null, TodoQuery.SortBy.ORDER, new TodoQuery.Cursor(1234, 50_000L)), true);
+    }
+
+    @Test
+    void givenAPosition_whenListingTheItemsBeforeIt_thenAnIndexIsScannedBackwards() {
+        assertIndexBacked(R2dbcTodoRepository.listQueryBefore(
+            new TodoQuery("list 42", null, null, TodoQuery.SortBy.ORDER, new TodoQuery.Cursor(1234, 50_000L))), true);
+        assertIndexBacked(R2dbcTodoRepository.listQueryBefore(
+            new TodoQuery(null, null, null, TodoQuery.SortBy.ID, new TodoQuery.Cursor(ITEMS / 2, null))), true);
+    }
+
+    @Test
+    void givenATitlePrefix_whenListingById_thenTheTableIsNotScanned() {
+        assertIndexBacked(new TodoQuery(null, null, "item 4242", TodoQuery.SortBy.ID, null), false);
+    }
+
+    @Test
+    void givenASearch_whenSearchingTitles_thenTheFullTextIndexIsUsed() {
+        var plan = template.getDatabaseClient().sql("EXPLAIN (FORMAT JSON) " + R2dbcTodoRepository.SEARCH_SQL)
+            .bind(0, R2dbcTodoRepository.tsQuery(TodoSearch.parse("tag4242")))
+            .bind(1, PAGE_SIZE)
+            .bind(2, 0)
+            .map(row -> row.get(0, String.class))
+            .one()
+            .block(TIMEOUT);
+
+        assertThat(plan)
+            .contains("todo_item_title_tsv_idx")
+            .doesNotContain("\"Seq Scan\"");
+    }
+
+    private void assertIndexBacked(TodoQuery query, boolean inIndexOrder) {
+        assertIndexBacked(R2dbcTodoRepository.listQuery(query), inIndexOrder);
+    }
+
+    private void assertIndexBacked(Query query, boolean inIndexOrder) {
+        var select = R2dbcTodoRepository.listSelect(template, query.limit(PAGE_SIZE));
+
+        var plan = template.getDatabaseClient().sql(explain(select))
+            .map(row -> row.get(0, String.class))
+            .one()
+            .block(TIMEOUT);
+
+        assertThat(plan).as("plan of %s", select.toQuery())
+            .contains("Index")
+            .doesNotContain("\"Seq Scan\"");
+        if (inIndexOrder) {
+            assertThat(plan).as("plan of %s", select.toQuery())
+                .doesNotContain("\"Sort\"");
+        }
+    }
+
+    // Runs the same statement with the same bindings, prefixed with EXPLAIN
+    private static PreparedOperation<?> explain(PreparedOperation<?> operation) {
+        return new PreparedOperation<Object>() {
+            @Override
+            public Object getSource() {
+                return operation.getSource();
+            }
+
+            @Override
+            public void bindTo(BindTarget target) {
+                operation.bindTo(target);
+            }
+
+            @Override
+            public String toQuery() {
+                return "EXPLAIN (FORMAT JSON) " + operation.toQuery();
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.rajven.todo.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardRingTest {
+    private static final List<String> LISTS = IntStream.range(0, 10_000).mapToObj(i -> "list " + i).toList();
+
+    @Test
+    void givenManyLists_whenAssigningThemToShards_thenEveryShardGetsAboutItsShare() {
+        var ring = new ShardRing(4, 128);
+
+        var counts = new int[4];
+        LISTS.forEach(list -> counts[ring.shardOf(list)]++);
+
+        for (var count : counts) {
+            assertThat(count).isBetween(1_800, 3_200);
+        }
+    }
+
+    @Test
+    void givenAShardIsAdded_whenAssigningListsAgain_thenOnlyListsMovingToTheNewShardMove() {
+        var before = new ShardRing(4, 128);
+        var after = new ShardRing(5, 128);
+
+        var moved = LISTS.stream().filter(list -> before.shardOf(list) != after.shardOf(list)).toList();
+
+        assertThat(moved).allMatch(list -> after.shardOf(list) == 4);
+        assertThat(moved.size()).isBetween(1_400, 2_600);
+    }
+}
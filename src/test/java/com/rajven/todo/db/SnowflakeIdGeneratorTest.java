@@ -0,0 +1,75 @@
+package com.rajven.todo.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class SnowflakeIdGeneratorTest {
+    private final AtomicLong clock = new AtomicLong(Instant.parse("2026-10-18T12:00:00Z").toEpochMilli());
+
+    @Test
+    void givenIdsForSeveralShards_whenGenerated_thenTheyGrowAndTellTheirShard() {
+        var generator = new SnowflakeIdGenerator(5, clock::get);
+
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 5000; i++) {
+            var shard = i % SnowflakeIdGenerator.MAX_SHARDS;
+            var id = generator.next(shard);
+            assertThat(SnowflakeIdGenerator.shardOf(id)).isEqualTo(shard);
+            ids.add(id);
+            if (i % 100 == 0) {
+                clock.incrementAndGet();
+            }
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void givenTheClockGoesBack_whenGeneratingIds_thenTheyStillGrow() {
+        var generator = new SnowflakeIdGenerator(0, clock::get);
+        var first = generator.next(1);
+
+        clock.addAndGet(-10_000);
+
+        assertThat(generator.next(1)).isGreaterThan(first);
+    }
+
+    @Test
+    void givenTwoNodes_whenGeneratingIdsAtTheSameTime_thenTheyDiffer() {
+        var ids = new ArrayList<Long>();
+        for (int node = 0; node < 2; node++) {
+            var generator = new SnowflakeIdGenerator(node, clock::get);
+            for (int i = 0; i < 10; i++) {
+                ids.add(generator.next(3));
+            }
+        }
+
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void givenTheLastNodeAndShardUntilTheTimestampRunsOut_whenGeneratingIds_thenTheyRoundTripThroughADouble() {
+        var generator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODES - 1, clock::get);
+        var lastClock = Instant.parse("2069-07-01T00:00:00Z").toEpochMilli();
+
+        for (; clock.get() < lastClock; clock.addAndGet(Duration.ofDays(100).toMillis())) {
+            for (int i = 0; i < 100; i++) {
+                var id = generator.next(SnowflakeIdGenerator.MAX_SHARDS - 1);
+                assertThat((long) (double) id).isEqualTo(id);
+            }
+        }
+    }
+
+    @Test
+    void givenIdsFromTheSequenceOfTheFirstDatabase_whenLookingUpTheirShard_thenItIsTheFirst() {
+        assertThat(SnowflakeIdGenerator.shardOf(1)).isZero();
+        assertThat(SnowflakeIdGenerator.shardOf(70_000)).isZero();
+        assertThat(SnowflakeIdGenerator.shardOf(Integer.MAX_VALUE * 1000L)).isZero();
+    }
+}
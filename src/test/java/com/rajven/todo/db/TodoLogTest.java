@@ -0,0 +1,92 @@
+package com.rajven.todo.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TodoLogTest {
+    private static final long INITIAL_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenWritesWereAppended_whenReopeningTheLog_thenTheLiveItemsAreReplayed() throws IOException {
+        var path = directory.resolve("todo.log");
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, new TreeMap<>())) {
+            todoLog.append(List.of(
+                new TodoLog.Put(new TodoItem(1, "first", false, null, 1L)),
+                new TodoLog.Put(new TodoItem(2, "second", true, 2L, 2L, "errands"))));
+            todoLog.append(List.of(new TodoLog.Put(new TodoItem(1, "first, renamed", true, 1L, 3L))));
+            todoLog.append(List.of(new TodoLog.Put(new TodoItem(3, "third", false, null, 4L))));
+            todoLog.append(List.of(new TodoLog.Delete(3)));
+        }
+
+        var items = new TreeMap<Long, TodoItem>();
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, items)) {
+            assertThat(items.values()).containsExactly(
+                new TodoItem(1, "first, renamed", true, 1L, 3L),
+                new TodoItem(2, "second", true, 2L, 2L, "errands"));
+            assertThat(todoLog.sequences()).isEqualTo(new TodoLog.Sequences(3, 4));
+        }
+
+        // The compacted log has no trace of item 3 left, but still knows that its id and version were used
+        items.clear();
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, items)) {
+            assertThat(items).containsOnlyKeys(1L, 2L);
+            assertThat(todoLog.sequences()).isEqualTo(new TodoLog.Sequences(3, 4));
+        }
+    }
+
+    @Test
+    void givenTheLastFrameIsTorn_whenReopeningTheLog_thenOnlyTheCompleteFramesAreReplayed() throws IOException {
+        var path = directory.resolve("todo.log");
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, new TreeMap<>())) {
+            todoLog.append(List.of(new TodoLog.Put(new TodoItem(1, "kept", false, null))));
+            todoLog.append(List.of(new TodoLog.Put(new TodoItem(2, "torn", false, null))));
+        }
+
+        // Flip the last byte of the last frame, as if the process died while writing it
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            var lastByte = buffer.limit() - 1;
+            while (buffer.get(lastByte) == 0) {
+                lastByte--;
+            }
+            buffer.put(lastByte, (byte) ~buffer.get(lastByte));
+            buffer.force();
+        }
+
+        var items = new TreeMap<Long, TodoItem>();
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, items)) {
+            assertThat(items.values()).containsExactly(new TodoItem(1, "kept", false, null));
+        }
+    }
+
+    @Test
+    void givenMoreWritesThanTheInitialSize_whenReopeningTheLog_thenAllItemsAreReplayed() throws IOException {
+        var path = directory.resolve("todo.log");
+        var title = "x".repeat(100);
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, new TreeMap<>())) {
+            for (long id = 1; id <= 100; id++) {
+                todoLog.append(List.of(new TodoLog.Put(new TodoItem(id, title, false, id))));
+            }
+            todoLog.append(List.of(new TodoLog.Clear()));
+            todoLog.append(List.of(new TodoLog.Put(new TodoItem(101, null, true, null))));
+        }
+
+        var items = new TreeMap<Long, TodoItem>();
+        try (var todoLog = TodoLog.open(path, INITIAL_SIZE, false, items)) {
+            assertThat(items.values()).containsExactly(new TodoItem(101, null, true, null));
+            assertThat(todoLog.sequences()).isEqualTo(new TodoLog.Sequences(101, 0));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.rajven.todo.helper;
+
+import javax.annotation.PostConstruct;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.data.relational.core.conversion.BasicRelationalConverter;
+import org.springframework.stereotype.Component;
+import com.rajven.todo.converter.ClobConverter;
+
+/**
+ * Adds the {@link ClobConverter} to every application context that is started with the test classes, so H2 can read the
+ * text columns. Picked up by component scanning like the other helpers.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClobConverterRegistrar {
+    // Missing with the in-memory profile, which has no database
+    private final ObjectProvider<BasicRelationalConverter> basicRelationalConverter;
+
+    @PostConstruct
+    void addClobConverter() {
+        basicRelationalConverter.ifAvailable(converter -> ((ConfigurableConversionService) converter.getConversionService())
+            .addConverter(new ClobConverter()));
+    }
+}
@@ -2,27 +2,41 @@ package com.rajven.todo.helper;
 
 import io.r2dbc.spi.ConnectionFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.r2dbc.core.Parameter;
 import org.springframework.stereotype.Component;
+import com.rajven.todo.db.InMemoryTodoRepository;
 import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.service.TodoItemCache;
+import com.rajven.todo.service.TodoStatsCounter;
 
 @Component
 @RequiredArgsConstructor
 public class DbTestHelper {
-    private final ConnectionFactory connectionFactory;
+    // Only one of them exists, depending on whether the in-memory profile is active
+    private final ObjectProvider<ConnectionFactory> connectionFactory;
+    private final ObjectProvider<InMemoryTodoRepository> inMemoryRepository;
+    private final TodoItemCache itemCache;
+    private final TodoStatsCounter statsCounter;
 
     public void createTodoItem(TodoItem todoItem) {
         createTodoItem(todoItem.getId(), todoItem.getTitle(), todoItem.isCompleted(), todoItem.getOrder());
     }
 
     public void createTodoItem(long id, String title, boolean completed, Long order) {
+        var inMemory = inMemoryRepository.getIfAvailable();
+        if (inMemory != null) {
+            inMemory.save(new TodoItem(id, title, completed, order)).block();
+            return;
+        }
+
         var sql = """
             INSERT INTO todo_item (id, title, completed, sort_order)
                 VALUES (:id, :title, :completed, :sortOrder)
          """;
 
-        DatabaseClient.create(connectionFactory)
+        DatabaseClient.create(connectionFactory.getObject())
             .sql(sql)
             .bind("id", id)
             .bind("title", Parameter.fromOrEmpty(title, String.class))
@@ -34,14 +48,23 @@ public class DbTestHelper {
     }
 
     public void clearTodoItems() {
-        var sql = """
-            TRUNCATE TABLE todo_item
-         """;
+        var inMemory = inMemoryRepository.getIfAvailable();
+        if (inMemory != null) {
+            inMemory.deleteAll().block();
+        } else {
+            truncate(connectionFactory.getObject());
+        }
 
-        DatabaseClient.create(connectionFactory)
-            .sql(sql)
-            .fetch()
-            .rowsUpdated()
+        itemCache.invalidateAll();
+        statsCounter.cleared();
+    }
+
+    // Truncating fires no triggers, so the counts of the items are reset like TodoRepository.deleteAll does
+    public static void truncate(ConnectionFactory connectionFactory) {
+        var databaseClient = DatabaseClient.create(connectionFactory);
+        databaseClient.sql("TRUNCATE TABLE todo_item")
+            .then()
+            .then(databaseClient.sql("UPDATE todo_items_version SET item_count = 0, version_sum = 0").then())
             .block();
     }
 }
@@ -0,0 +1,65 @@
+package com.rajven.todo.helper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.h2.api.Trigger;
+
+/**
+ * Keeps the {@code todo_items_version} table of the H2 test schema up to date, like the trigger of the main schema does
+ * on Postgres. Runs for every written row, in the transaction of the write.
+ */
+public class ItemsVersionTrigger implements Trigger {
+    private static final String VERSION_COLUMN_SQL = """
+        SELECT ORDINAL_POSITION FROM INFORMATION_SCHEMA.COLUMNS
+        WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND COLUMN_NAME = 'VERSION'
+        """;
+    private static final String UPDATE_SQL = """
+        UPDATE todo_items_version SET item_count = item_count + ?, version_sum = version_sum + ?
+        WHERE slot = SESSION_ID() % 64
+        """;
+    private static final String INSERT_SQL = "INSERT INTO todo_items_version (slot, item_count, version_sum) VALUES (SESSION_ID() % 64, ?, ?)";
+
+    private int versionIndex;
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        try (var statement = connection.prepareStatement(VERSION_COLUMN_SQL)) {
+            statement.setString(1, schemaName);
+            statement.setString(2, tableName);
+            try (var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                versionIndex = resultSet.getInt(1) - 1;
+            }
+        }
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        var itemCount = (newRow != null ? 1 : 0) - (oldRow != null ? 1 : 0);
+        var versionSum = version(newRow) - version(oldRow);
+        if (count(connection, UPDATE_SQL, itemCount, versionSum) == 0) {
+            count(connection, INSERT_SQL, itemCount, versionSum);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+
+    private long version(Object[] row) {
+        return row != null ? ((Number) row[versionIndex]).longValue() : 0;
+    }
+
+    private static int count(Connection connection, String sql, long itemCount, long versionSum) throws SQLException {
+        try (var statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, itemCount);
+            statement.setLong(2, versionSum);
+            return statement.executeUpdate();
+        }
+    }
+}
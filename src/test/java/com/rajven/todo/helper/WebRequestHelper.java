@@ -1,18 +1,37 @@
 package com.rajven.todo.helper;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
 import static com.rajven.todo.config.Constants.API_PATH;
 
+import java.util.List;
+import java.util.Optional;
+
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 import com.rajven.todo.api.TodoCreateCommand;
 
 @Component
 @RequiredArgsConstructor
 public class WebRequestHelper {
     private final WebTestClient webClient;
+    private final Environment environment;
+
+    /**
+     * @return a helper whose requests all have the header, e.g. to send them as another client
+     */
+    public WebRequestHelper withHeader(String name, String value) {
+        return new WebRequestHelper(webClient.mutate().defaultHeader(name, value).build(), environment);
+    }
 
     public WebTestClient.ResponseSpec postTodoItem(TodoCreateCommand createCommand) {
         return webClient
@@ -22,6 +41,24 @@ public class WebRequestHelper {
             .exchange();
     }
 
+    public WebTestClient.ResponseSpec postTodoItems(List<TodoCreateCommand> createCommands) {
+        return webClient
+            .post()
+            .uri(API_PATH + "/bulk")
+            .contentType(APPLICATION_JSON)
+            .bodyValue(createCommands)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec postTodoItemsAsNdjson(List<TodoCreateCommand> createCommands) {
+        return webClient
+            .post()
+            .uri(API_PATH + "/bulk")
+            .contentType(APPLICATION_NDJSON)
+            .body(Flux.fromIterable(createCommands), TodoCreateCommand.class)
+            .exchange();
+    }
+
     public WebTestClient.ResponseSpec getAllTodoItems() {
         return webClient
             .get()
@@ -29,6 +66,76 @@ public class WebRequestHelper {
             .exchange();
     }
 
+    public WebTestClient.ResponseSpec getAllTodoItemsIfNoneMatch(String eTag) {
+        return webClient
+            .get()
+            .uri(API_PATH)
+            .ifNoneMatch(eTag)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec getTodoItemPage(Long after, int limit) {
+        return webClient
+            .get()
+            .uri(uriBuilder -> uriBuilder
+                .path(API_PATH)
+                .queryParamIfPresent("after", Optional.ofNullable(after))
+                .queryParam("limit", limit)
+                .build())
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec getTodoItems(String queryString) {
+        return webClient
+            .get()
+            .uri(API_PATH + "?" + queryString)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec searchTodoItems(String queryString) {
+        return webClient
+            .get()
+            .uri(API_PATH + "/search?" + queryString)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec getStats() {
+        return webClient
+            .get()
+            .uri(API_PATH + "/stats")
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec streamAllTodoItems() {
+        return webClient
+            .get()
+            .uri(API_PATH)
+            .accept(APPLICATION_NDJSON)
+            .exchange();
+    }
+
+    // Reactor Netty drops the Accept-Encoding header of requests unless it decompresses responses itself, which would
+    // hide whether they were compressed, so the header is added to the request as it's sent
+    public WebTestClient.ResponseSpec getAcceptingGzip(String path, MediaType accept) {
+        var httpClient = HttpClient.create()
+            .doOnRequest((request, connection) -> request.header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        return WebTestClient.bindToServer(new ReactorClientHttpConnector(httpClient))
+            .baseUrl("http://localhost:" + environment.getRequiredProperty("local.server.port"))
+            .build()
+            .get()
+            .uri(path)
+            .accept(accept)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec streamEvents() {
+        return webClient
+            .get()
+            .uri(API_PATH + "/events")
+            .accept(TEXT_EVENT_STREAM)
+            .exchange();
+    }
+
     public WebTestClient.ResponseSpec getTodoItem(long id) {
         return webClient
             .get()
@@ -36,6 +143,23 @@ public class WebRequestHelper {
             .exchange();
     }
 
+    public WebTestClient.ResponseSpec getTodoItemIfNoneMatch(long id, String eTag) {
+        return webClient
+            .get()
+            .uri(String.format("%s/%d", API_PATH, id))
+            .ifNoneMatch(eTag)
+            .exchange();
+    }
+
+    public WebTestClient.ResponseSpec moveTodoItem(long id, String moveJson) {
+        return webClient
+            .post()
+            .uri(String.format("%s/%d/move", API_PATH, id))
+            .contentType(APPLICATION_JSON)
+            .bodyValue(moveJson)
+            .exchange();
+    }
+
     public WebTestClient.ResponseSpec updateTodoItem(long id, String title, Boolean completed, Long order) {
         return webClient
             .patch()
@@ -47,6 +171,15 @@ public class WebRequestHelper {
             .exchange();
     }
 
+    public WebTestClient.ResponseSpec updateTodoItems(String bulkUpdateJson) {
+        return webClient
+            .patch()
+            .uri(API_PATH + "/bulk")
+            .contentType(APPLICATION_JSON)
+            .bodyValue(bulkUpdateJson)
+            .exchange();
+    }
+
     public WebTestClient.ResponseSpec deleteTodoItem(long id) {
         return webClient
             .delete()
@@ -54,6 +187,14 @@ public class WebRequestHelper {
             .exchange();
     }
 
+    public WebTestClient.ResponseSpec deleteTodoItems(String queryString) {
+        return webClient
+            .delete()
+            .uri(API_PATH + "/bulk?" + queryString)
+            .accept(APPLICATION_NDJSON)
+            .exchange();
+    }
+
     public WebTestClient.ResponseSpec deleteAll() {
         return webClient
             .delete()
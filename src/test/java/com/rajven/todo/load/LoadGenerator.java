@@ -0,0 +1,108 @@
+package com.rajven.todo.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import lombok.extern.log4j.Log4j2;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Starts requests at a fixed rate, however long earlier requests take, like independent clients do (an open model), and
+ * records their latency per operation.
+ * <p>
+ * Latency is measured from when a request was due, not from when it was sent. A request that waited for a free worker
+ * because the service fell behind counts that wait, which a closed loop of clients that slow down with the service would
+ * leave out of its percentiles.
+ */
+@Log4j2
+public class LoadGenerator {
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1);
+
+    public enum Operation { LIST, GET, CREATE, PATCH, DELETE }
+
+    private final LoadSettings settings;
+    private final Predicate<Operation> client;
+
+    /**
+     * @param settings the rate, concurrency and mix of the requests
+     * @param client   sends a request for an operation and waits for its response, tells whether it succeeded
+     */
+    public LoadGenerator(LoadSettings settings, Predicate<Operation> client) {
+        this.settings = settings;
+        this.client = client;
+    }
+
+    /**
+     * Sends requests at the configured rate for a while, and waits for the last of them to complete.
+     *
+     * @param duration how long requests are started
+     * @return         the latency of the requests, and their throughput over the whole run
+     * @throws InterruptedException when interrupted while waiting for the requests
+     */
+    public LoadReport run(Duration duration) throws InterruptedException {
+        var histograms = new EnumMap<Operation, Histogram>(Operation.class);
+        var errors = new EnumMap<Operation, LongAdder>(Operation.class);
+        for (var operation : settings.mix().keySet()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+
+        var workers = Executors.newFixedThreadPool(settings.concurrency());
+        var requests = duration.toNanos() * settings.rate() / TimeUnit.SECONDS.toNanos(1);
+        var interval = (double) TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        var random = ThreadLocalRandom.current();
+        var start = System.nanoTime();
+        try {
+            for (long i = 0; i < requests; i++) {
+                var due = start + (long) (i * interval);
+                for (var wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                var operation = settings.pick(random);
+                workers.execute(() -> send(operation, due, histograms.get(operation), errors.get(operation)));
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        if (!workers.awaitTermination(DRAIN_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+            log.warn("Requests were still running {} after the last one was started", DRAIN_TIMEOUT);
+            workers.shutdownNow();
+        }
+
+        return LoadReport.of(histograms, counts(errors), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void send(Operation operation, long due, Histogram histogram, LongAdder errors) {
+        boolean succeeded;
+        try {
+            succeeded = client.test(operation);
+        } catch (RuntimeException e) {
+            log.debug("{} failed: {}", operation, e.toString());
+            succeeded = false;
+        }
+
+        var latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+        histogram.recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+        if (!succeeded) {
+            errors.increment();
+        }
+    }
+
+    private static Map<Operation, Long> counts(Map<Operation, LongAdder> adders) {
+        var counts = new EnumMap<Operation, Long>(Operation.class);
+        adders.forEach((operation, adder) -> counts.put(operation, adder.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,118 @@
+package com.rajven.todo.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latency percentiles and throughput of a load run, per operation and for all requests together, with latencies in
+ * milliseconds. Stored as JSON, so a run can be kept as the baseline that later runs are compared with.
+ *
+ * @param operations the results by lower case operation name, and {@value #TOTAL} for all requests
+ */
+public record LoadReport(Map<String, Result> operations) {
+    public static final String TOTAL = "total";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String ROW_FORMAT = "%-8s %9s %7s %10s %10s %10s %10s %10s%n";
+
+    public record Result(long requests, long errors, double throughput, double p50, double p99, double p999, double max) {
+    }
+
+    static LoadReport of(Map<LoadGenerator.Operation, Histogram> histograms, Map<LoadGenerator.Operation, Long> errors, Duration elapsed) {
+        var operations = new LinkedHashMap<String, Result>();
+        var first = histograms.values().iterator().next();
+        var total = new Histogram(first.getHighestTrackableValue(), first.getNumberOfSignificantValueDigits());
+        var totalErrors = 0L;
+        for (var entry : histograms.entrySet()) {
+            var operationErrors = errors.get(entry.getKey());
+            operations.put(entry.getKey().name().toLowerCase(Locale.ROOT), result(entry.getValue(), operationErrors, elapsed));
+            total.add(entry.getValue());
+            totalErrors += operationErrors;
+        }
+        operations.put(TOTAL, result(total, totalErrors, elapsed));
+
+        return new LoadReport(operations);
+    }
+
+    public static LoadReport read(Path file) throws IOException {
+        return objectMapper.readValue(file.toFile(), LoadReport.class);
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    public double errorRate() {
+        var total = operations.get(TOTAL);
+        return total.requests() == 0 ? 0 : (double) total.errors() / total.requests();
+    }
+
+    /**
+     * Lists what is worse than in the baseline by more than the threshold: the median and 99th percentile latency, and the
+     * throughput. The 99.9th percentile is only reported, a short run has too few requests that slow for it to be stable.
+     *
+     * @param baseline  the results to compare with
+     * @param threshold how much worse a result may be, as a fraction of the baseline
+     * @return          a description of every regression, empty when there is none
+     */
+    public List<String> regressionsFrom(LoadReport baseline, double threshold) {
+        var regressions = new ArrayList<String>();
+        operations.forEach((operation, result) -> {
+            var base = baseline.operations().get(operation);
+            if (base == null) {
+                return;
+            }
+
+            if (result.p50() > base.p50() * (1 + threshold)) {
+                regressions.add("%s p50 %.3f ms, baseline %.3f ms".formatted(operation, result.p50(), base.p50()));
+            }
+            if (result.p99() > base.p99() * (1 + threshold)) {
+                regressions.add("%s p99 %.3f ms, baseline %.3f ms".formatted(operation, result.p99(), base.p99()));
+            }
+            if (result.throughput() < base.throughput() * (1 - threshold)) {
+                regressions.add("%s throughput %.1f/s, baseline %.1f/s".formatted(operation, result.throughput(), base.throughput()));
+            }
+        });
+
+        return regressions;
+    }
+
+    public void print() {
+        System.out.printf(ROW_FORMAT, "", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        operations.forEach((operation, result) -> System.out.printf(ROW_FORMAT,
+            operation,
+            result.requests(),
+            result.errors(),
+            "%.1f".formatted(result.throughput()),
+            "%.3f".formatted(result.p50()),
+            "%.3f".formatted(result.p99()),
+            "%.3f".formatted(result.p999()),
+            "%.3f".formatted(result.max())));
+    }
+
+    private static Result result(Histogram histogram, long errors, Duration elapsed) {
+        return new Result(
+            histogram.getTotalCount(),
+            errors,
+            histogram.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed.toNanos(),
+            millis(histogram.getValueAtPercentile(50)),
+            millis(histogram.getValueAtPercentile(99)),
+            millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
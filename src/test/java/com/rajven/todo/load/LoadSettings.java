@@ -0,0 +1,81 @@
+package com.rajven.todo.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * What {@link LoadTest} runs and how its results are judged, read from {@code load.*} system properties, which Maven
+ * passes on from the command line, e.g. {@code mvn -P load test -Dload.rate=500 -Dload.duration=1m}.
+ *
+ * @param rate         requests started per second, however long earlier ones take
+ * @param warmup       how long requests are sent before anything is recorded
+ * @param duration     how long requests are sent and recorded
+ * @param concurrency  the maximum number of requests in flight, later ones wait for one of them and their waiting counts
+ *                     towards their latency
+ * @param mix          the share of each operation, as relative weights
+ * @param threshold    how much worse than the baseline a result may be, as a fraction
+ * @param maxErrorRate the fraction of requests that may fail, with an error status or without a response
+ * @param baselineFile the stored results to compare with
+ * @param resultFile   where the results are written
+ */
+public record LoadSettings(int rate, Duration warmup, Duration duration, int concurrency, Map<LoadGenerator.Operation, Integer> mix,
+                           double threshold, double maxErrorRate, Path baselineFile, Path resultFile) {
+    private static final String PREFIX = "load.";
+
+    public static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+            Integer.parseInt(property("rate", "100")),
+            DurationStyle.detectAndParse(property("warmup", "20s")),
+            DurationStyle.detectAndParse(property("duration", "30s")),
+            Integer.parseInt(property("concurrency", "64")),
+            parseMix(property("mix", "list=10,get=50,create=15,patch=15,delete=10")),
+            Double.parseDouble(property("threshold", "0.25")),
+            Double.parseDouble(property("max-error-rate", "0.001")),
+            Path.of(property("baseline", "src/test/resources/load-baseline.json")),
+            Path.of(property("result", "target/load-result.json")));
+    }
+
+    /**
+     * Picks the next operation, each one as often as its weight in the mix.
+     *
+     * @param random the source of randomness
+     * @return       an operation of the mix
+     */
+    public LoadGenerator.Operation pick(RandomGenerator random) {
+        var total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        var pick = random.nextInt(total);
+        for (var entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+
+        throw new IllegalStateException("Weights changed while picking");
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    // "list=10,get=50" weighs gets five times as much as lists, operations that are left out are not sent
+    private static Map<LoadGenerator.Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<LoadGenerator.Operation, Integer>(LoadGenerator.Operation.class);
+        for (var weight : mix.split(",")) {
+            var parts = weight.split("=");
+            weights.put(LoadGenerator.Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The load mix needs a positive weight: " + mix);
+        }
+
+        return weights;
+    }
+}
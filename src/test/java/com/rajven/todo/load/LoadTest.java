@@ -0,0 +1,125 @@
+package com.rajven.todo.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestConstructor;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import com.rajven.todo.api.TodoCreateCommand;
+import com.rajven.todo.api.TodoResponse;
+import com.rajven.todo.helper.DbTestHelper;
+import com.rajven.todo.helper.WebRequestHelper;
+
+/**
+ * Drives a mix of list, get, create, patch and delete requests against the service with the H2 test profile, at the rate
+ * and for the time given in {@link LoadSettings}, and fails when the results are worse than the stored baseline.
+ * <p>
+ * Only runs with the {@code load} Maven profile: {@code mvn -P load test}. The results are written to
+ * {@code target/load-result.json}, copy that over {@code src/test/resources/load-baseline.json} to store a new baseline.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "logging.level.com.rajven.todo.access=WARN")
+@ActiveProfiles("test")
+@TestConstructor(autowireMode = TestConstructor.AutowireMode.ALL)
+@AutoConfigureWebTestClient(timeout = "PT30S")
+@RequiredArgsConstructor
+public class LoadTest {
+    private static final int INITIAL_ITEMS = 1000;
+    private static final int PAGE_SIZE = 50;
+
+    private final WebRequestHelper webRequestHelper;
+    private final DbTestHelper dbTestHelper;
+    // The items that exist, so gets, patches and deletes mostly hit one
+    private final NavigableSet<Long> itemIds = new ConcurrentSkipListSet<>();
+    private final AtomicLong created = new AtomicLong();
+
+    @AfterEach
+    void clearDatabase() {
+        dbTestHelper.clearTodoItems();
+    }
+
+    @Test
+    void givenTheConfiguredMix_whenSentAtTheConfiguredRate_thenNothingIsWorseThanTheBaseline() throws IOException, InterruptedException {
+        var settings = LoadSettings.fromSystemProperties();
+        webRequestHelper.postTodoItems(IntStream.range(0, INITIAL_ITEMS).mapToObj(i -> createCommand()).toList())
+            .expectStatus().is2xxSuccessful()
+            .expectBodyList(TodoResponse.class)
+            .value(todos -> todos.forEach(todo -> itemIds.add(todo.id())));
+
+        var generator = new LoadGenerator(settings, this::send);
+        generator.run(settings.warmup());
+        var report = generator.run(settings.duration());
+        report.print();
+        report.write(settings.resultFile());
+
+        assertThat(report.errorRate()).as("error rate").isLessThanOrEqualTo(settings.maxErrorRate());
+        if (Files.exists(settings.baselineFile())) {
+            assertThat(report.regressionsFrom(LoadReport.read(settings.baselineFile()), settings.threshold()))
+                .as("regressions from %s", settings.baselineFile())
+                .isEmpty();
+        } else {
+            System.out.printf("No baseline found at %s, copy %s there to create one%n", settings.baselineFile(), settings.resultFile());
+        }
+    }
+
+    // An item that another request deleted first is not found, which doesn't count as an error
+    private boolean send(LoadGenerator.Operation operation) {
+        return switch (operation) {
+            case LIST -> isSuccess(webRequestHelper.getTodoItemPage(null, PAGE_SIZE), false);
+            case GET -> isSuccess(webRequestHelper.getTodoItem(anyItemId()), true);
+            case CREATE -> {
+                var createCommand = createCommand();
+                var result = webRequestHelper.postTodoItem(createCommand)
+                    .expectBody(TodoResponse.class)
+                    .returnResult();
+                if (result.getResponseBody() != null) {
+                    itemIds.add(result.getResponseBody().id());
+                }
+                yield result.getStatus().is2xxSuccessful();
+            }
+            case PATCH -> {
+                var id = anyItemId();
+                yield isSuccess(webRequestHelper.updateTodoItem(id, "load patched " + id, ThreadLocalRandom.current().nextBoolean(), id), true);
+            }
+            case DELETE -> {
+                var id = anyItemId();
+                itemIds.remove(id);
+                yield isSuccess(webRequestHelper.deleteTodoItem(id), true);
+            }
+        };
+    }
+
+    private TodoCreateCommand createCommand() {
+        var number = created.incrementAndGet();
+        return new TodoCreateCommand("load item " + number, false, number);
+    }
+
+    private long anyItemId() {
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+
+        var id = itemIds.ceiling(ThreadLocalRandom.current().nextLong(itemIds.first(), itemIds.last() + 1));
+        return id != null ? id : 0;
+    }
+
+    private static boolean isSuccess(WebTestClient.ResponseSpec response, boolean notFoundAllowed) {
+        var status = response.expectBody().returnResult().getStatus();
+        return status.is2xxSuccessful() || notFoundAllowed && status == HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rajven.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class SortKeysTest {
+    private final SortKeys sortKeys = new SortKeys(1024, 16);
+
+    @Test
+    void givenTwoOrders_whenPlacingAnItemBetweenThem_thenItGetsTheOrderHalfwayUntilThereIsNoRoom() {
+        assertThat(sortKeys.between(1000L, 2000L)).isEqualTo(1500);
+        assertThat(sortKeys.between(-3L, 3L)).isZero();
+        assertThat(sortKeys.between(1000L, 1002L)).isEqualTo(1001);
+        assertThat(sortKeys.between(1000L, 1001L)).isNull();
+        assertThat(sortKeys.between(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(-1);
+    }
+
+    @Test
+    void givenAnOpenEnd_whenPlacingAnItemAtIt_thenItGetsTheOrderAGapAway() {
+        assertThat(sortKeys.between(null, 5000L)).isEqualTo(5000 - 1024);
+        assertThat(sortKeys.between(5000L, null)).isEqualTo(5000 + 1024);
+        assertThat(sortKeys.between(null, null)).isZero();
+        assertThat(sortKeys.between(Long.MAX_VALUE - 10, null)).isEqualTo(Long.MAX_VALUE - 5);
+        assertThat(sortKeys.between(Long.MAX_VALUE - 1, null)).isNull();
+    }
+
+    @Test
+    void givenAnOrder_whenCheckingForRoom_thenItIsCrowdedCloserThanTheMinimumGap() {
+        assertThat(sortKeys.isCrowded(1000L, 1016, 2000L)).isFalse();
+        assertThat(sortKeys.isCrowded(1000L, 1015, 2000L)).isTrue();
+        assertThat(sortKeys.isCrowded(1000L, 1990, 2000L)).isTrue();
+        assertThat(sortKeys.isCrowded(null, 1990, null)).isFalse();
+        assertThat(sortKeys.isCrowded(Long.MIN_VALUE, Long.MAX_VALUE, null)).isFalse();
+    }
+
+    @Test
+    void givenARange_whenSpreadingIt_thenTheOrdersAreEvenlyApartOrNullIfTooClose() {
+        assertThat(sortKeys.spread(0L, 1000L, 3, 16)).containsExactly(250, 500, 750);
+        assertThat(sortKeys.spread(0L, 40L, 3, 16)).isNull();
+        assertThat(sortKeys.spread(null, 0L, 2, 1024)).containsExactly(-2048, -1024);
+        assertThat(sortKeys.spread(100L, null, 2, 1024)).containsExactly(1124, 2148);
+        assertThat(sortKeys.spread(null, null, 3, 1024)).containsExactly(1024, 2048, 3072);
+        assertThat(sortKeys.spread(Long.MAX_VALUE - 100, null, 3, 16)).containsExactly(
+            Long.MAX_VALUE - 75, Long.MAX_VALUE - 50, Long.MAX_VALUE - 25);
+    }
+}
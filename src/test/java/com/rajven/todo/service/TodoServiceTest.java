@@ -0,0 +1,116 @@
+package com.rajven.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openapitools.jackson.nullable.JsonNullable;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.BulkProperties;
+import com.rajven.todo.config.InMemoryStoreProperties;
+import com.rajven.todo.config.ItemCacheProperties;
+import com.rajven.todo.config.ReplicaProperties;
+import com.rajven.todo.config.SortOrderProperties;
+import com.rajven.todo.config.StatsProperties;
+import com.rajven.todo.config.TodoEventsProperties;
+import com.rajven.todo.config.UpdateCoalescingProperties;
+import com.rajven.todo.db.InMemoryTodoRepository;
+import com.rajven.todo.db.RepositoryMetrics;
+import com.rajven.todo.db.TodoDeletedChunk;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoQuery;
+
+public class TodoServiceTest {
+    private static final TodoQuery COMPLETED = new TodoQuery(null, true, null, TodoQuery.SortBy.ID, null);
+    private static final TodoQuery ALL = new TodoQuery(null, null, null, TodoQuery.SortBy.ID, null);
+
+    @TempDir
+    Path directory;
+
+    private RacingRepository repository;
+    private TodoEventBus eventBus;
+    private TodoStatsCounter statsCounter;
+    private SortOrderRebalancer rebalancer;
+    private TodoService todoService;
+
+    @BeforeEach
+    void createService() throws IOException {
+        var storeProperties = new InMemoryStoreProperties();
+        storeProperties.setLogPath(directory.resolve("todo.log"));
+        var meterRegistry = new SimpleMeterRegistry();
+        repository = new RacingRepository(storeProperties, new RepositoryMetrics(meterRegistry));
+
+        var bulkProperties = new BulkProperties();
+        bulkProperties.setDeleteChunkSize(2);
+        bulkProperties.setDeletePause(Duration.ofMillis(1));
+
+        var itemCache = new TodoItemCache(new ItemCacheProperties(), new ReplicaProperties(), meterRegistry);
+        eventBus = new TodoEventBus(new TodoEventsProperties(), itemCache,
+            new DefaultListableBeanFactory().getBeanProvider(PostgresTodoEventRelay.class), meterRegistry);
+        statsCounter = new TodoStatsCounter(repository, new StatsProperties(), meterRegistry);
+        rebalancer = new SortOrderRebalancer(repository, itemCache, eventBus, new SortOrderProperties(), meterRegistry);
+        todoService = new TodoService(repository, itemCache, new UpdateCoalescer(new UpdateCoalescingProperties(), meterRegistry),
+            eventBus, statsCounter, bulkProperties, rebalancer);
+    }
+
+    @AfterEach
+    void closeService() throws IOException {
+        rebalancer.close();
+        statsCounter.close();
+        eventBus.close();
+        repository.close();
+    }
+
+    @Test
+    void givenEverySelectedItemStopsMatchingBeforeItIsDeleted_whenDeletingMatchingItems_thenTheItemsAfterThemAreStillDeleted() {
+        for (long id = 1; id <= 5; id++) {
+            repository.save(new TodoItem(id, "item " + id, true, null)).block();
+        }
+
+        StepVerifier.create(todoService.deleteMatching(COMPLETED))
+            .expectNext(new DeleteProgress(0, null, false))
+            .expectNext(new DeleteProgress(2, 4L, false))
+            .expectNext(new DeleteProgress(3, 5L, false))
+            .expectNext(new DeleteProgress(3, 5L, true))
+            .verifyComplete();
+        assertThat(repository.getAll(ALL).map(TodoItem::getId).collectList().block()).containsExactly(1L, 2L);
+    }
+
+    // The items of the first chunk are uncompleted right after they were selected, like a concurrent write would
+    static class RacingRepository extends InMemoryTodoRepository {
+        private boolean raced;
+
+        RacingRepository(InMemoryStoreProperties properties, RepositoryMetrics metrics) throws IOException {
+            super(properties, metrics);
+        }
+
+        @Override
+        public Mono<TodoDeletedChunk> deleteChunk(TodoQuery query, int limit) {
+            if (raced) {
+                return super.deleteChunk(query, limit);
+            }
+
+            raced = true;
+            var uncomplete = new TodoUpdateCommand();
+            uncomplete.setCompleted(JsonNullable.of(false));
+
+            return getPage(query, limit)
+                .collectList()
+                .flatMap(selectedItems -> Flux.fromIterable(selectedItems)
+                    .concatMap(todoItem -> update(todoItem.getId(), uncomplete))
+                    .then(Mono.just(TodoDeletedChunk.of(selectedItems, List.of()))));
+        }
+    }
+}
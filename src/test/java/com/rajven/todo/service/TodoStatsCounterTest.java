@@ -0,0 +1,114 @@
+package com.rajven.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import com.rajven.todo.config.InMemoryStoreProperties;
+import com.rajven.todo.config.StatsProperties;
+import com.rajven.todo.db.InMemoryTodoRepository;
+import com.rajven.todo.db.RepositoryMetrics;
+import com.rajven.todo.db.TodoItem;
+import com.rajven.todo.db.TodoStats;
+
+public class TodoStatsCounterTest {
+    private static final TodoItem ACTIVE = new TodoItem(1, "active", false, null);
+    private static final TodoItem COMPLETED = new TodoItem(2, "completed", true, null);
+
+    @TempDir
+    Path directory;
+
+    private CountingRepository repository;
+    private TodoStatsCounter statsCounter;
+
+    @BeforeEach
+    void createCounter() throws IOException {
+        var storeProperties = new InMemoryStoreProperties();
+        storeProperties.setLogPath(directory.resolve("todo.log"));
+        var meterRegistry = new SimpleMeterRegistry();
+        repository = new CountingRepository(storeProperties, new RepositoryMetrics(meterRegistry));
+
+        var properties = new StatsProperties();
+        properties.setReconcileInterval(Duration.ofHours(1));
+        statsCounter = new TodoStatsCounter(repository, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void closeCounter() throws IOException {
+        statsCounter.close();
+        repository.close();
+    }
+
+    @Test
+    void givenTheApplicationIsReady_whenTheCountsAreRead_thenTheyWereCountedOnceAtStartupAndNotOnRead() {
+        repository.save(ACTIVE).block();
+        repository.save(COMPLETED).block();
+
+        StepVerifier.create(statsCounter.get())
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(100))
+            .then(statsCounter::prime)
+            .expectNext(new TodoStats(2, 1))
+            .verifyComplete();
+        statsCounter.get().block();
+        statsCounter.get().block();
+
+        assertThat(repository.counts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenWritesWhileTheItemsAreCounted_whenTheCountIsDone_thenTheWritesAreAddedToIt() {
+        var count = Sinks.<TodoStats>one();
+        repository.pendingCount = count.asMono();
+        statsCounter.prime();
+
+        statsCounter.created(ACTIVE);
+        statsCounter.created(COMPLETED);
+        statsCounter.deleted(ACTIVE);
+        count.tryEmitValue(new TodoStats(10, 4));
+
+        assertThat(statsCounter.get().block()).isEqualTo(new TodoStats(11, 5));
+    }
+
+    @Test
+    void givenTheItemsAreClearedWhileTheyAreCounted_whenTheCountIsDone_thenItIsDropped() {
+        var count = Sinks.<TodoStats>one();
+        repository.pendingCount = count.asMono();
+        statsCounter.prime();
+
+        statsCounter.cleared();
+        statsCounter.created(ACTIVE);
+        count.tryEmitValue(new TodoStats(10, 4));
+
+        assertThat(statsCounter.get().block()).isEqualTo(new TodoStats(1, 0));
+    }
+
+    /**
+     * Counts how often the items are counted, and lets a test decide when a count is done.
+     */
+    static class CountingRepository extends InMemoryTodoRepository {
+        private final AtomicInteger counts = new AtomicInteger();
+        private Mono<TodoStats> pendingCount;
+
+        CountingRepository(InMemoryStoreProperties properties, RepositoryMetrics metrics) throws IOException {
+            super(properties, metrics);
+        }
+
+        @Override
+        public Mono<TodoStats> countItems() {
+            counts.incrementAndGet();
+            return pendingCount != null ? pendingCount : super.countItems();
+        }
+    }
+}
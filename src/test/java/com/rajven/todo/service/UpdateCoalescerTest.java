@@ -0,0 +1,66 @@
+package com.rajven.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openapitools.jackson.nullable.JsonNullable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.rajven.todo.api.TodoUpdateCommand;
+import com.rajven.todo.config.UpdateCoalescingProperties;
+import com.rajven.todo.db.TodoItem;
+
+public class UpdateCoalescerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void givenUpdatesWithinTheWindow_whenTheWriteThrowsInsteadOfFailing_thenEveryCallerGetsTheError() {
+        var updateCoalescer = updateCoalescer(true);
+        var writes = new AtomicInteger();
+
+        var updates = Mono.zip(
+            updateCoalescer.update(1, titled("first"), (id, updateCmd) -> failingWrite(writes)),
+            updateCoalescer.update(1, titled("second"), (id, updateCmd) -> failingWrite(writes)));
+
+        StepVerifier.create(updates)
+            .expectErrorMessage("no connection")
+            .verify(TIMEOUT);
+        StepVerifier.create(updateCoalescer.update(1, titled("third"), (id, updateCmd) -> Mono.just(new TodoItem(id, "third", false, null))))
+            .expectNextMatches(todoItem -> todoItem.getTitle().equals("third"))
+            .verifyComplete();
+        assertThat(writes).hasValue(1);
+    }
+
+    @Test
+    void givenCoalescingIsDisabled_whenTheWriteThrowsInsteadOfFailing_thenTheCallerGetsTheError() {
+        var updateCoalescer = updateCoalescer(false);
+
+        StepVerifier.create(updateCoalescer.update(1, titled("first"), (id, updateCmd) -> failingWrite(new AtomicInteger())))
+            .expectErrorMessage("no connection")
+            .verify(TIMEOUT);
+    }
+
+    private static UpdateCoalescer updateCoalescer(boolean enabled) {
+        var properties = new UpdateCoalescingProperties();
+        properties.setEnabled(enabled);
+        properties.setWindow(Duration.ofMillis(20));
+
+        return new UpdateCoalescer(properties, new SimpleMeterRegistry());
+    }
+
+    private static Mono<TodoItem> failingWrite(AtomicInteger writes) {
+        writes.incrementAndGet();
+        throw new IllegalStateException("no connection");
+    }
+
+    private static TodoUpdateCommand titled(String title) {
+        var updateCmd = new TodoUpdateCommand();
+        updateCmd.setTitle(JsonNullable.of(title));
+
+        return updateCmd;
+    }
+}
@@ -1,8 +1,31 @@
 CREATE SCHEMA IF NOT EXISTS TODO;
 
+CREATE SEQUENCE IF NOT EXISTS TODO_ITEM_VERSION_SEQ;
+
 CREATE TABLE IF NOT EXISTS TODO_ITEM (
    id           BIGSERIAL PRIMARY KEY,
    title        TEXT,
    completed    BOOLEAN,
-   sort_order   BIGINT
-);
\ No newline at end of file
+   sort_order   BIGINT,
+   version      BIGINT DEFAULT NEXT VALUE FOR TODO_ITEM_VERSION_SEQ NOT NULL,
+   list_key     VARCHAR(255)
+);
+
+CREATE INDEX IF NOT EXISTS TODO_ITEM_COMPLETED_IDX ON TODO_ITEM (completed, id);
+CREATE INDEX IF NOT EXISTS TODO_ITEM_SORT_ORDER_IDX ON TODO_ITEM (sort_order, id);
+CREATE INDEX IF NOT EXISTS TODO_ITEM_COMPLETED_SORT_ORDER_IDX ON TODO_ITEM (completed, sort_order, id);
+CREATE INDEX IF NOT EXISTS TODO_ITEM_LIST_KEY_IDX ON TODO_ITEM (list_key, id);
+CREATE INDEX IF NOT EXISTS TODO_ITEM_LIST_KEY_SORT_ORDER_IDX ON TODO_ITEM (list_key, sort_order, id);
+
+-- Kept up to date like on Postgres, but by a Java trigger, since H2 has no procedural language
+CREATE TABLE IF NOT EXISTS TODO_ITEMS_VERSION (
+   slot         INT PRIMARY KEY,
+   item_count   BIGINT NOT NULL,
+   version_sum  BIGINT NOT NULL
+);
+
+INSERT INTO TODO_ITEMS_VERSION (slot, item_count, version_sum)
+    SELECT 0, count(*), coalesce(sum(version), 0) FROM TODO_ITEM
+    HAVING NOT EXISTS (SELECT 1 FROM TODO_ITEMS_VERSION);
+CREATE TRIGGER IF NOT EXISTS TODO_ITEMS_VERSION_TRIGGER AFTER INSERT, UPDATE, DELETE ON TODO_ITEM
+    FOR EACH ROW CALL "com.rajven.todo.helper.ItemsVersionTrigger";
\ No newline at end of file